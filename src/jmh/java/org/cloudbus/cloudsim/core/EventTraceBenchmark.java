@@ -0,0 +1,49 @@
+package org.cloudbus.cloudsim.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording a delivered event into an {@link EventTrace}. The ring is small enough to
+ * wrap around during the measurement, as it does in long simulations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EventTraceBenchmark {
+
+    private File file;
+    private EventTrace trace;
+    private SimEvent[] events;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("trace", ".bin");
+        trace = new EventTrace(file, 1 << 20);
+        events = new SimEvent[1024];
+        for (int i = 0; i < events.length; i++) {
+            // alternate the payload types, as the messages of a simulation do
+            Object data = i % 3 == 0 ? null : i % 3 == 1 ? (Object) i : "data";
+            events[i] = new SimEvent(SimEvent.SEND, i, i % 16, (i + 1) % 16, i % 8, data);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        trace.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void record() {
+        trace.record(events[next]);
+        next = (next + 1) & (events.length - 1);
+    }
+}
@@ -0,0 +1,51 @@
+package org.cloudbus.cloudsim.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classic "hold" benchmark of the future event queues: the queue is kept at a constant size while
+ * the earliest event is repeatedly polled and replaced by a new event scheduled a random delay
+ * after it, which is the access pattern of {@link CloudSim#runClockTick()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FutureQueueBenchmark {
+
+    @Param({"TREE_SET", "HEAP"})
+    public String queueType;
+
+    @Param({"1000", "100000"})
+    public int pendingEvents;
+
+    private FutureEventQueue queue;
+    private Random random;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        queue = queueType.equals("HEAP") ? new HeapFutureQueue() : new FutureQueue();
+        random = new Random(42);
+
+        for (int i = 0; i < pendingEvents; i++) {
+            queue.addEvent(newEvent(random.nextInt(1000)));
+        }
+    }
+
+    @Benchmark
+    public SimEvent hold() {
+        SimEvent first = queue.poll();
+        // coarse delays make many events share the same time, as zero-delay sends do
+        queue.addEvent(newEvent(first.eventTime() + random.nextInt(1000)));
+        return first;
+    }
+
+    private static SimEvent newEvent(double time) {
+        return new SimEvent(SimEvent.SEND, time, 0, 1, 0, null);
+    }
+}
@@ -0,0 +1,109 @@
+package org.cloudbus.cloudsim.core;
+
+import org.cloudbus.cloudsim.Log;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of {@link Simulation#setParallelExecution(int, double, EntityPartitioner)}: a ring of
+ * nodes forwards tokens to the next node with a delay of one time unit, burning some CPU on every
+ * event. The nodes are spread over 16 logical processes and the lookahead is the forwarding delay.
+ * {@link #ringTickParallel()} runs the same ring with the entities of each clock tick running
+ * concurrently instead (see {@link Simulation#setTickParallelism(int)}). A thread count of 0 runs
+ * the simulation sequentially.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelSimulationBenchmark {
+
+    private static final int NODES = 64;
+    private static final int LOGICAL_PROCESSES = 16;
+    private static final int TOKENS_PER_NODE = 4;
+    private static final int HOPS = 200;
+    private static final double DELAY = 1.0;
+
+    @Param({"0", "1", "2", "4", "8", "16"})
+    public int threads;
+
+    @Param({"1000", "20000"})
+    public long workPerEvent;
+
+    @Setup(Level.Trial)
+    public void disableLog() {
+        Log.disable();
+    }
+
+    @TearDown(Level.Trial)
+    public void enableLog() {
+        Log.enable();
+    }
+
+    @Benchmark
+    public double ring() {
+        Simulation simulation = new Simulation();
+        simulation.init(0, Calendar.getInstance(), false, new HeapFutureQueue());
+        if (threads > 0) {
+            simulation.setParallelExecution(threads, DELAY, entity -> entity.getId() % LOGICAL_PROCESSES);
+        }
+        return run(simulation);
+    }
+
+    @Benchmark
+    public double ringTickParallel() {
+        Simulation simulation = new Simulation();
+        simulation.init(0, Calendar.getInstance(), false, new HeapFutureQueue());
+        if (threads > 0) {
+            simulation.setTickParallelism(threads);
+        }
+        return run(simulation);
+    }
+
+    private double run(Simulation simulation) {
+        Node[] nodes = new Node[NODES];
+        for (int i = 0; i < NODES; i++) {
+            nodes[i] = new Node("node" + i, workPerEvent);
+        }
+        for (int i = 0; i < NODES; i++) {
+            nodes[i].next = nodes[(i + 1) % NODES].getId();
+        }
+        return simulation.startSimulation();
+    }
+
+    private static class Node extends SimEntity {
+
+        private final long work;
+        private int next;
+
+        Node(String name, long work) {
+            super(name);
+            this.work = work;
+        }
+
+        @Override
+        public void startEntity() {
+            for (int i = 0; i < TOKENS_PER_NODE; i++) {
+                schedule(next, DELAY, 0, 0);
+            }
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            Blackhole.consumeCPU(work);
+            int hops = (Integer) ev.getData();
+            if (hops < HOPS) {
+                schedule(next, DELAY, 0, hops + 1);
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+}
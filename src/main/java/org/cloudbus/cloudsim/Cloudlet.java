@@ -7,6 +7,7 @@
  */
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -23,7 +24,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
  * @since CloudSim Toolkit 1.0
  * @todo The documentation is wrong. Cloudlet isn't extending any class.
  */
-public class Cloudlet {
+public class Cloudlet implements Serializable {
 
     /**
      * The cloudlet ID.
@@ -466,7 +467,7 @@ public class Cloudlet {
      * CloudResources. Each time a cloudlet is run on a given VM, the cloudlet's
      * execution history on each VM is registered at {@link Cloudlet#resList}
      */
-    private static class Resource {
+    private static class Resource implements Serializable {
 
         /**
          * Cloudlet's submission (arrival) time to a CloudResource.
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import org.cloudbus.cloudsim.network.datacenter.NetworkCloudletSpaceSharedScheduler;
@@ -24,7 +25,7 @@ import org.cloudbus.cloudsim.network.datacenter.NetworkCloudletSpaceSharedSchedu
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public abstract class CloudletScheduler {
+public abstract class CloudletScheduler implements Serializable {
 
 	/** The previous time. */
 	private double previousTime;
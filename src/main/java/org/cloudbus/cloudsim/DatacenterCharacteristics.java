@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -29,7 +30,7 @@ import org.cloudbus.cloudsim.lists.PeList;
  * giving the idea that the class can be used to describe characteristics of other resources.
  * However, the class was found being used only for datacenters.
  */
-public class DatacenterCharacteristics {
+public class DatacenterCharacteristics implements Serializable {
 
 	/** The datacenter id -- setup when datacenter is created. */
 	private int id;
@@ -32,8 +32,17 @@ public class Log {
          the call for any print method has no effect. */
 	private static boolean disabled;
 	
-	/** Buffer to avoid creating new string builder upon every print. */
-	private static StringBuilder buffer = new StringBuilder();		    
+	/** Buffer to avoid creating new string builder upon every print, one per thread so that
+	 * concurrent simulations do not mix their messages. */
+	private static final ThreadLocal<StringBuilder> buffer = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder();
+		}
+	};
+
+	/** The text captured for each thread, see {@link #startCapture()}. */
+	private static final ThreadLocal<StringBuilder> capture = new ThreadLocal<StringBuilder>();
 
 	/**
 	 * Prints a message.
@@ -42,6 +51,11 @@ public class Log {
 	 */
 	public static void print(String message) {
 		if (!isDisabled()) {
+			StringBuilder captured = capture.get();
+			if (captured != null) {
+				captured.append(message);
+				return;
+			}
 			try {
 				getOutput().write(message.getBytes());
 			} catch (IOException e) {
@@ -89,6 +103,7 @@ public class Log {
 	 */
 	public static void printConcat(Object... messages) {
 		if (!isDisabled()) {
+			StringBuilder buffer = Log.buffer.get();
 			buffer.setLength(0); // Clear the buffer		    
 			for(int i = 0 ; i < messages.length ; i ++) {
 				buffer.append(String.valueOf(messages[i]));
@@ -104,6 +119,7 @@ public class Log {
 	 */
 	public static void printConcatLine(Object... messages) {
 		if (!isDisabled()) {
+			StringBuilder buffer = Log.buffer.get();
 			buffer.setLength(0); // Clear the buffer		    
 			for(int i = 0 ; i < messages.length ; i ++) {
 				buffer.append(String.valueOf(messages[i]));
@@ -151,6 +167,26 @@ public class Log {
 		}
 	}
 
+	/**
+	 * Starts capturing the messages printed by the calling thread instead of writing them to the
+	 * output stream, so that they can be printed later in a deterministic order.
+	 */
+	public static void startCapture() {
+		capture.set(new StringBuilder());
+	}
+
+	/**
+	 * Stops capturing the messages printed by the calling thread.
+	 * 
+	 * @return the messages printed since {@link #startCapture()}, or an empty string if the thread
+	 *         was not capturing them
+	 */
+	public static String stopCapture() {
+		StringBuilder captured = capture.get();
+		capture.remove();
+		return captured == null ? "" : captured.toString();
+	}
+
 	/**
 	 * Sets the output stream.
 	 * 
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -21,7 +22,7 @@ import java.util.List;
  * @author Anthony Sulistio
  * @since CloudSim Toolkit 1.0
  */
-public interface Storage {
+public interface Storage extends Serializable {
 
 	/**
 	 * Gets the name of the storage.
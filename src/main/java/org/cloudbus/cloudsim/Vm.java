@@ -7,6 +7,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,7 +21,7 @@ import java.util.List;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public class Vm {
+public class Vm implements Serializable {
 
 	/** The VM unique id. */
 	private int id;
@@ -8,16 +8,13 @@
 
 package org.cloudbus.cloudsim.core;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
-import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 import org.cloudbus.cloudsim.core.predicates.PredicateNone;
@@ -29,6 +26,12 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  * network. Later, nodes in such file are mapped to CloudSim entities. Delay calculated from the
  * BRITE model are added to the messages send through CloudSim. Messages using the old model are
  * converted to the apropriate methods with the correct parameters.
+ * <p>
+ * The state of a simulation is held by a {@link Simulation} object. The static methods of this
+ * class delegate to the simulation bound to the calling thread, which is the one most recently
+ * initialised by that thread (or by the thread that started it). Threads that are not bound to
+ * any simulation use the most recently initialised one. Independent simulations can therefore
+ * run concurrently, each one on its own thread.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -36,63 +39,56 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  */
 public class CloudSim {
 
-	/** The Constant CLOUDSIM_VERSION_STRING. */
-	private static final String CLOUDSIM_VERSION_STRING = "3.0";
+	/** The simulation bound to each thread. */
+	private static final InheritableThreadLocal<Simulation> simulations = new InheritableThreadLocal<Simulation>();
 
-	/** The id of CIS entity. */
-	private static int cisId = -1;
+	/** The simulation used by the threads that are not bound to any simulation. */
+	private static volatile Simulation defaultSimulation = new Simulation();
 
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	private static int shutdownId = -1;
-
-	/** The CIS object. */
-	private static CloudInformationService cis = null;
-
-	/** The Constant NOT_FOUND. */
-	private static final int NOT_FOUND = -1;
+	// The two standard predicates
 
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	private static boolean traceFlag = false;
+	/** A standard predicate that matches any event. */
+	public final static PredicateAny SIM_ANY = new PredicateAny();
 
-	/** The calendar. */
-	private static Calendar calendar = null;
+	/** A standard predicate that does not match any events. */
+	public final static PredicateNone SIM_NONE = new PredicateNone();
 
-	/** The termination time. */
-	private static double terminateAt = -1;
+	/**
+	 * Gets the simulation the static methods of this class delegate to for the calling thread.
+	 * 
+	 * @return the simulation bound to the calling thread, or the most recently initialised
+	 *         simulation if the thread is not bound to any
+	 */
+	public static Simulation getSimulation() {
+		Simulation simulation = simulations.get();
+		return simulation != null ? simulation : defaultSimulation;
+	}
 
-	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
-	private static double minTimeBetweenEvents = 0.0;
-	
 	/**
-	 * Initialises all the common attributes.
+	 * Binds a simulation to the calling thread, and to the threads it starts afterwards. The
+	 * simulation also becomes the one used by the threads that are not bound to any simulation.
+	 * This is done by {@link Simulation#init(int, Calendar, boolean)}, and is only needed to drive
+	 * a simulation from another thread.
 	 * 
-	 * @param _calendar the _calendar
-	 * @param _traceFlag the _trace flag
-	 * @param numUser number of users
-	 * @throws Exception This happens when creating this entity before initialising CloudSim package
-	 *             or this entity name is <tt>null</tt> or empty
-	 * @pre $none
-	 * @post $none
+	 * @param simulation the simulation, or <tt>null</tt> to unbind the calling thread
 	 */
-	private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
-			throws Exception {
-		initialize();
-		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
-
-		// Set the current Wall clock time as the starting time of
-		// simulation
-		if (_calendar == null) {
-			calendar = Calendar.getInstance();
-		} else {
-			calendar = _calendar;
+	public static void setSimulation(Simulation simulation) {
+		if (simulation == null) {
+			simulations.remove();
+			return;
 		}
+		simulations.set(simulation);
+		defaultSimulation = simulation;
+	}
 
-		// creates a CloudSimShutdown object
-		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+	/**
+	 * Binds a simulation to the calling thread only, without changing the simulation used by the
+	 * threads that are not bound to any. Used by the worker threads of a parallel execution.
+	 * 
+	 * @param simulation the simulation
+	 */
+	static void bindThread(Simulation simulation) {
+		simulations.set(simulation);
 	}
 
 	/**
@@ -115,23 +111,10 @@ public class CloudSim {
 	 * @see CloudInformationService.CloudInformationService
 	 * @pre numUser >= 0
 	 * @post $none
+	 * @see Simulation#init(int, Calendar, boolean)
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag) {
-		try {
-			initCommonVariable(cal, traceFlag, numUser);
-
-			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
-
-			// set all the above entity IDs
-			cisId = cis.getId();
-		} catch (IllegalArgumentException s) {
-			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
-			Log.printLine(s.getMessage());
-		} catch (Exception e) {
-			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
-			Log.printLine(e.getMessage());
-		}
+		new Simulation().init(numUser, cal, traceFlag);
 	}
 
 	/**
@@ -158,16 +141,29 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
-	    if (periodBetweenEvents <= 0) {
-		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
-	    }
-	    
-	    init(numUser, cal, traceFlag);
-	    minTimeBetweenEvents = periodBetweenEvents;
+		new Simulation().init(numUser, cal, traceFlag, periodBetweenEvents);
 	}
-	
-	
-	
+
+	/**
+	 * Initialises CloudSim parameters using a given future event queue implementation. This
+	 * method should be called before creating any entities.
+	 * <p>
+	 * The other overloads use a {@link FutureQueue}. A {@link HeapFutureQueue} delivers the
+	 * events in exactly the same order and is faster on simulations with many pending events.
+	 * 
+	 * @param numUser the number of User Entities created.
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param futureQueue an empty queue that will hold the future events of the simulation
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, FutureEventQueue futureQueue) {
+		new Simulation().init(numUser, cal, traceFlag, futureQueue);
+	}
+
 	/**
 	 * Starts the execution of CloudSim simulation. It waits for complete execution of all entities,
 	 * i.e. until all entities threads reach non-RUNNABLE state or there are no more events in the
@@ -183,23 +179,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static double startSimulation() throws NullPointerException {
-		Log.printConcatLine("Starting CloudSim version ", CLOUDSIM_VERSION_STRING);
-		try {
-			double clock = run();
-
-			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
-
-			return clock;
-		} catch (IllegalArgumentException e) {
-			e.printStackTrace();
-			throw new NullPointerException("CloudSim.startCloudSimulation() :"
-					+ " Error - you haven't initialized CloudSim.");
-		}
+		return getSimulation().startSimulation();
 	}
 
 	/**
@@ -215,12 +195,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void stopSimulation() throws NullPointerException {
-		try {
-			runStop();
-		} catch (IllegalArgumentException e) {
-			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
-					+ "Error - can't stop Cloud Simulation.");
-		}
+		getSimulation().stopSimulation();
 	}
 
 	/**
@@ -229,9 +204,7 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
-		printMessage("Simulation: Reached termination time.");
-		return true;
+		return getSimulation().terminateSimulation();
 	}
 
 	/**
@@ -241,21 +214,15 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
-			return false;
-		} else {
-			terminateAt = time;
-		}
-		return true;
+		return getSimulation().terminateSimulation(time);
 	}
 
-	
 	/**
 	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded. 
 	 * @return the minimum time between events.
 	 */
 	public static double getMinTimeBetweenEvents() {
-	    return minTimeBetweenEvents;
+		return getSimulation().getMinTimeBetweenEvents();
 	}
 
 	/**
@@ -268,13 +235,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static Calendar getSimulationCalendar() {
-		// make a new copy
-		Calendar clone = calendar;
-		if (calendar != null) {
-			clone = (Calendar) calendar.clone();
-		}
-
-		return clone;
+		return getSimulation().getSimulationCalendar();
 	}
 
 	/**
@@ -285,7 +246,7 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		return getSimulation().getCloudInfoServiceEntityId();
 	}
 
 	/**
@@ -298,80 +259,24 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
-		if (cis == null) {
-			return null;
-		}
-
-		return cis.getList();
+		return getSimulation().getCloudResourceList();
 	}
 
-	// ======== SIMULATION METHODS ===============//
-
-	/** The entities. */
-	private static List<SimEntity> entities;
-
-	/** The future event queue. */
-	protected static FutureQueue future;
-
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
-
-	/** 
-         * The current simulation clock.
-         */
-	private static double clock;
-
-	/** Flag for checking if the simulation is running. */
-	private static boolean running;
-
-	/** The entities by name. */
-	private static Map<String, SimEntity> entitiesByName;
-
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	private static Map<Integer, Predicate> waitPredicates;
-
-	/** The paused. */
-	private static boolean paused = false;
-
-	/** The pause at. */
-	private static long pauseAt = -1;
-
-	/** The abrupt terminate. */
-	private static boolean abruptTerminate = false;
-
 	/**
 	 * Initialise the simulation for stand alone simulations. This function should be called at the
 	 * start of the simulation.
 	 */
 	protected static void initialize() {
-		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
+		getSimulation().initialize();
 	}
 
-	// The two standard predicates
-
-	/** A standard predicate that matches any event. */
-	public final static PredicateAny SIM_ANY = new PredicateAny();
-
-	/** A standard predicate that does not match any events. */
-	public final static PredicateNone SIM_NONE = new PredicateNone();
-
-	// Public access methods
-
 	/**
 	 * Get the current simulation time.
 	 * 
 	 * @return the simulation time
 	 */
 	public static double clock() {
-		return clock;
+		return getSimulation().clock();
 	}
 
 	/**
@@ -380,7 +285,7 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		return getSimulation().getNumEntities();
 	}
 
 	/**
@@ -390,7 +295,7 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		return getSimulation().getEntity(id);
 	}
 
 	/**
@@ -400,7 +305,7 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		return getSimulation().getEntity(name);
 	}
 
 	/**
@@ -410,12 +315,7 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
-		if (obj == null) {
-			return NOT_FOUND;
-		} else {
-			return obj.getId();
-		}
+		return getSimulation().getEntityId(name);
 	}
 
 	/**
@@ -427,13 +327,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static String getEntityName(int entityID) {
-		try {
-			return getEntity(entityID).getName();
-		} catch (IllegalArgumentException e) {
-			return null;
-		} catch (Exception e) {
-			return null;
-		}
+		return getSimulation().getEntityName(entityID);
 	}
 
 	/**
@@ -445,10 +339,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static String getEntityName(Integer entityID) {
-		if (entityID != null) {
-			return getEntityName(entityID.intValue());
-		}
-		return null;
+		return getSimulation().getEntityName(entityID);
 	}
 
 	/**
@@ -457,15 +348,9 @@ public class CloudSim {
 	 * @return the entity iterator
 	 */
 	public static List<SimEntity> getEntityList() {
-		// create a new list to prevent the user from changing
-		// the list of entities used by Simulation
-		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
-		return list;
+		return getSimulation().getEntityList();
 	}
 
-	// Public update methods
-
 	/**
 	 * Add a new entity to the simulation. This is present for compatibility with existing
 	 * simulations since entities are automatically added to the simulation upon instantiation.
@@ -473,18 +358,7 @@ public class CloudSim {
 	 * @param e The new entity
 	 */
 	public static void addEntity(SimEntity e) {
-		SimEvent evt;
-		if (running) {
-			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
-		}
-		if (e.getId() == -1) { // Only add once!
-			int id = entities.size();
-			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
-		}
+		getSimulation().addEntity(e);
 	}
 
 	/**
@@ -494,12 +368,7 @@ public class CloudSim {
 	 * @param e The new entity
 	 */
 	protected static void addEntityDynamically(SimEntity e) {
-		if (e == null) {
-			throw new IllegalArgumentException("Adding null entity.");
-		} else {
-			printMessage("Adding: " + e.getName());
-		}
-		e.startEntity();
+		getSimulation().addEntityDynamically(e);
 	}
 
 	/**
@@ -512,58 +381,14 @@ public class CloudSim {
          * its visibility to package.
 	 */
 	public static boolean runClockTick() {
-		SimEntity ent;
-		boolean queue_empty;
-		
-		int entities_size = entities.size();
-
-		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
-			if (ent.getState() == SimEntity.RUNNABLE) {
-				ent.run();
-			}
-		}
-				
-		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
-			queue_empty = false;
-			SimEvent first = fit.next();
-			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-			while (trymore) {
-				SimEvent next = fit.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = fit.hasNext();
-				} else {
-					trymore = false;
-				}
-			}
-
-			future.removeAll(toRemove);
-
-		} else {
-			queue_empty = true;
-			running = false;
-			printMessage("Simulation: No more future events");
-		}
-
-		return queue_empty;
+		return getSimulation().runClockTick();
 	}
 
 	/**
 	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
 	 */
 	public static void runStop() {
-		printMessage("Simulation completed.");
+		getSimulation().runStop();
 	}
 
 	/**
@@ -573,9 +398,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		getSimulation().hold(src, delay);
 	}
 
 	/**
@@ -585,9 +408,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		getSimulation().pause(src, delay);
 	}
 
 	/**
@@ -600,12 +421,7 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void send(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+		getSimulation().send(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -618,12 +434,7 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+		getSimulation().sendFirst(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -635,11 +446,7 @@ public class CloudSim {
 	 * @param p the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
-		if (p != SIM_ANY) {
-			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
-		}
+		getSimulation().wait(src, p);
 	}
 
 	/**
@@ -650,16 +457,7 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		return getSimulation().waiting(d, p);
 	}
 
 	/**
@@ -670,16 +468,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				iterator.remove();
-				break;
-			}
-		}
-		return ev;
+		return getSimulation().select(src, p);
 	}
 
 	/**
@@ -690,15 +479,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
-		}
-		return ev;
+		return getSimulation().findFirstDeferred(src, p);
 	}
 
 	/**
@@ -709,17 +490,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
-			}
-		}
-
-		return ev;
+		return getSimulation().cancel(src, p);
 	}
 
 	/**
@@ -731,82 +502,137 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-			}
-		}
-		return previousSize < future.size();
+		return getSimulation().cancelAll(src, p);
 	}
 
-	//
-	// Private internal methods
-	//
+	/**
+	 * Enables or disables event pooling. When enabled, processed events are recycled for new
+	 * messages instead of being left to the garbage collector, and events delivered to waiting
+	 * entities are no longer cloned. Entities that keep a reference to an event after
+	 * {@link SimEntity#processEvent(SimEvent)} returns must call {@link SimEvent#retain()}.
+	 * Pooling is disabled by default and when the simulation finishes.
+	 * 
+	 * @param enabled true to enable event pooling
+	 */
+	public static void setEventPooling(boolean enabled) {
+		getSimulation().setEventPooling(enabled);
+	}
 
 	/**
-	 * Processes an event.
+	 * Checks if event pooling is enabled.
 	 * 
-	 * @param e the e
+	 * @return true, if processed events are recycled
 	 */
-	private static void processEvent(SimEvent e) {
-		int dest, src;
-		SimEntity dest_ent;
-		// Update the system's clock
-		if (e.eventTime() < clock) {
-			throw new IllegalArgumentException("Past event detected.");
-		}
-		clock = e.eventTime();
-
-		// Ok now process it
-		switch (e.getType()) {
-			case SimEvent.ENULL:
-				throw new IllegalArgumentException("Event has a null type.");
-
-			case SimEvent.CREATE:
-				SimEntity newe = (SimEntity) e.getData();
-				addEntityDynamically(newe);
-				break;
-
-			case SimEvent.SEND:
-				// Check for matching wait
-				dest = e.getDestination();
-				if (dest < 0) {
-					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
-				} else {
-					int tag = e.getTag();
-					dest_ent = entities.get(dest);
-					if (dest_ent.getState() == SimEntity.WAITING) {
-						Integer destObj = Integer.valueOf(dest);
-						Predicate p = waitPredicates.get(destObj);
-						if ((p == null) || (tag == 9999) || (p.match(e))) {
-							dest_ent.setEventBuffer((SimEvent) e.clone());
-							dest_ent.setState(SimEntity.RUNNABLE);
-							waitPredicates.remove(destObj);
-						} else {
-							deferred.addEvent(e);
-						}
-					} else {
-						deferred.addEvent(e);
-					}
-				}
-				break;
-
-			case SimEvent.HOLD_DONE:
-				src = e.getSource();
-				if (src < 0) {
-					throw new IllegalArgumentException("Null entity holding.");
-				} else {
-					entities.get(src).setState(SimEntity.RUNNABLE);
-				}
-				break;
-
-			default:
-				break;
-		}
+	public static boolean isEventPooling() {
+		return getSimulation().isEventPooling();
+	}
+
+	/**
+	 * Runs the simulation on several threads, with the entities partitioned into logical processes
+	 * that exchange events at the end of windows as long as the lookahead. The events are delivered
+	 * in exactly the same order as in a sequential run.
+	 * 
+	 * @param threads the number of threads running the logical processes
+	 * @param lookahead the minimum delay of the events sent between logical processes
+	 * @param partitioner the partitioner of the entities into logical processes, or <tt>null</tt>
+	 *            to run the simulation sequentially
+	 * @see Simulation#setParallelExecution(int, double, EntityPartitioner)
+	 */
+	public static void setParallelExecution(int threads, double lookahead, EntityPartitioner partitioner) {
+		getSimulation().setParallelExecution(threads, lookahead, partitioner);
+	}
+
+	/**
+	 * Runs the runnable entities of each clock tick concurrently, on a fork-join pool. The events
+	 * they send are added to the future event queue in entity id order at the end of the run phase
+	 * of the tick, so the simulation delivers exactly the same events as when they run one after
+	 * the other.
+	 * 
+	 * @param parallelism the number of threads running the entities, 1 to run them one after the
+	 *            other
+	 * @see Simulation#setTickParallelism(int)
+	 */
+	public static void setTickParallelism(int parallelism) {
+		getSimulation().setTickParallelism(parallelism);
+	}
+
+	/**
+	 * Runs the runnable entities of each clock tick concurrently, the data of the events sent
+	 * between entities of different logical processes being handed over by a partitioner.
+	 * 
+	 * @param parallelism the number of threads running the entities, 1 to run them one after the
+	 *            other
+	 * @param partitioner the partitioner of the entities into logical processes, or <tt>null</tt>
+	 *            if the entities share no mutable data
+	 * @see Simulation#setTickParallelism(int, EntityPartitioner)
+	 */
+	public static void setTickParallelism(int parallelism, EntityPartitioner partitioner) {
+		getSimulation().setTickParallelism(parallelism, partitioner);
+	}
+
+	/**
+	 * Gets the number of threads running the entities of each clock tick.
+	 * 
+	 * @return the tick parallelism, 1 if the entities run one after the other
+	 */
+	public static int getTickParallelism() {
+		return getSimulation().getTickParallelism();
+	}
+
+	/**
+	 * Records the events delivered by the simulation into a binary trace.
+	 * 
+	 * @param trace the trace, or <tt>null</tt> to stop tracing
+	 * @see Simulation#setEventTrace(EventTrace)
+	 */
+	public static void setEventTrace(EventTrace trace) {
+		getSimulation().setEventTrace(trace);
+	}
+
+	/**
+	 * Makes the simulation write a snapshot of itself to a file once all the events up to a given
+	 * time have been processed.
+	 * 
+	 * @param time the time of the checkpoint
+	 * @param file the file the snapshot is written to
+	 * @see Simulation#setCheckpoint(double, File)
+	 */
+	public static void setCheckpoint(double time, File file) {
+		getSimulation().setCheckpoint(time, file);
+	}
+
+	/**
+	 * Writes a compressed snapshot of the simulation to a stream.
+	 * 
+	 * @param out the stream the snapshot is written to
+	 * @throws IOException if the snapshot can't be written
+	 * @see Simulation#writeSnapshot(OutputStream)
+	 */
+	public static void writeSnapshot(OutputStream out) throws IOException {
+		getSimulation().writeSnapshot(out);
+	}
+
+	/**
+	 * Restores a simulation from a snapshot and makes it the simulation of the calling thread.
+	 * 
+	 * @param in the stream the snapshot is read from
+	 * @return the restored simulation
+	 * @throws IOException if the snapshot can't be read
+	 * @throws ClassNotFoundException if a class of the snapshot can't be found
+	 * @see Simulation#readSnapshot(InputStream)
+	 */
+	public static Simulation readSnapshot(InputStream in) throws IOException, ClassNotFoundException {
+		return Simulation.readSnapshot(in);
+	}
+
+	/**
+	 * Checks if the simulation runs in parallel.
+	 * 
+	 * @return true, if a partitioner was set with
+	 *         {@link #setParallelExecution(int, double, EntityPartitioner)}
+	 */
+	public static boolean isParallelExecution() {
+		return getSimulation().isParallelExecution();
 	}
 
 	/**
@@ -814,13 +640,7 @@ public class CloudSim {
 	 * simulations.
 	 */
 	public static void runStart() {
-		running = true;
-		// Start all the entities
-		for (SimEntity ent : entities) {
-			ent.startEntity();
-		}
-
-		printMessage("Entities started.");
+		getSimulation().runStart();
 	}
 
 	/**
@@ -830,7 +650,7 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		return getSimulation().running();
 	}
 
 	/**
@@ -839,8 +659,7 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		return getSimulation().pauseSimulation();
 	}
 
 	/**
@@ -849,13 +668,8 @@ public class CloudSim {
 	 * @param time the time at which the simulation has to be paused
 	 * @return true, if successful otherwise.
 	 */
-	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
-			return false;
-		} else {
-			pauseAt = time;
-		}
-		return true;
+	public static boolean pauseSimulation(double time) {
+		return getSimulation().pauseSimulation(time);
 	}
 
 	/**
@@ -864,13 +678,45 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
+		return getSimulation().resumeSimulation();
+	}
 
-		if (pauseAt <= clock) {
-			pauseAt = -1;
-		}
+	/**
+	 * Runs the simulation on the calling thread until all the events up to a given time have been
+	 * delivered and handled, without finishing it.
+	 * 
+	 * @param time the time to run the simulation until
+	 * @return true if the simulation can continue, false if there are no more events or it has been
+	 *         terminated
+	 * @see Simulation#runUntil(double)
+	 */
+	public static boolean runUntil(double time) {
+		return getSimulation().runUntil(time);
+	}
+
+	/**
+	 * Delivers the next events of the simulation on the calling thread, without finishing it.
+	 * 
+	 * @param events the number of events to deliver
+	 * @return true if the simulation can continue, false if there are no more events or it has been
+	 *         terminated
+	 * @see Simulation#step(int)
+	 */
+	public static boolean step(int events) {
+		return getSimulation().step(events);
+	}
 
-		return !paused;
+	/**
+	 * Runs the simulation on the calling thread until an event matching a predicate has been
+	 * delivered, without finishing it.
+	 * 
+	 * @param p the predicate the events are matched against
+	 * @return true if the simulation can continue, false if there are no more events or it has been
+	 *         terminated
+	 * @see Simulation#runUntil(Predicate)
+	 */
+	public static boolean runUntil(Predicate p) {
+		return getSimulation().runUntil(p);
 	}
 
 	/**
@@ -880,43 +726,7 @@ public class CloudSim {
 	 * @return the last clock value
 	 */
 	public static double run() {
-		if (!running) {
-			runStart();
-		}
-		while (true) {
-			if (runClockTick()) {
-				break;
-			}
-
-			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
-				terminateSimulation();
-				clock = terminateAt;
-				break;
-			}
-
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
-				pauseSimulation();
-				clock = pauseAt;
-			}
-
-			while (paused) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-
-		double clock = clock();
-
-		finishSimulation();
-		runStop();
-
-		return clock;
+		return getSimulation().run();
 	}
 
 	/**
@@ -924,48 +734,14 @@ public class CloudSim {
 	 * in user simulations.
 	 */
 	public static void finishSimulation() {
-		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
-				if (ent.getState() != SimEntity.FINISHED) {
-					ent.run();
-				}
-			}
-		}
-
-		for (SimEntity ent : entities) {
-			ent.shutdownEntity();
-		}
-
-		// reset all static variables
-		// Private data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		getSimulation().finishSimulation();
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
-	}
-
-	/**
-	 * Prints a message about the progress of the simulation.
-	 * 
-	 * @param message the message
-	 */
-	private static void printMessage(String message) {
-		Log.printLine(message);
+		getSimulation().abruptallyTerminate();
 	}
 
 	/**
@@ -974,7 +750,7 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		return getSimulation().isPaused();
 	}
 
 }
@@ -8,81 +8,525 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateFrom;
+import org.cloudbus.cloudsim.core.predicates.PredicateNone;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the deferred event queue used by {@link CloudSim}. 
- * The event queue uses a linked list to store the events.
- * 
+ * This class implements the deferred event queue of a single {@link SimEntity}.
+ * The event queue uses a ring buffer to store the events, so taking the first event is a
+ * constant time operation. Events extracted from the middle of the queue leave an empty slot
+ * which is skipped and reclaimed later.
+ * <p>
+ * The queue also indexes its events by tag and by source, keeping the events of each tag and of
+ * each source in queue order. {@link PredicateType} and {@link PredicateFrom} queries thus only
+ * look at the first event of each of their tags or sources, instead of walking the events.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see CloudSim
  * @see SimEvent
  */
-public class DeferredQueue {
+public class DeferredQueue implements Iterable<SimEvent>, Serializable {
+
+	/** The initial capacity of the ring buffer. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The keys (tags or source ids) at or above this value are not indexed. */
+	private static final int MAX_INDEXED_KEY = 1 << 16;
+
+	/** The ring buffer of events, <tt>null</tt> slots are removed events. */
+	private Node[] elements = new Node[INITIAL_CAPACITY];
 
-	/** The list of events. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The position of the first slot in the ring buffer. */
+	private int head = 0;
+
+	/** The number of slots in use, including the removed events. */
+	private int slots = 0;
+
+	/** The number of events in the queue. */
+	private int size = 0;
 
 	/** The max time that an added event is scheduled. */
 	private double maxTime = -1;
 
+	/** The events by tag. */
+	private final Index tags = new Index();
+
+	/** The events by source. */
+	private final Index sources = new Index();
+
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		if (slots == elements.length) {
+			grow();
+		}
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
+		Node node = new Node(newEvent);
 		double eventTime = newEvent.eventTime();
 		if (eventTime >= maxTime) {
-			list.add(newEvent);
+			place(node, slots);
 			maxTime = eventTime;
-			return;
+		} else {
+			int position = slots;
+			while (position > 0) {
+				Node previous = elements[slot(position - 1)];
+				if (previous != null && previous.event.eventTime() <= eventTime) {
+					break;
+				}
+				place(previous, position);
+				position--;
+			}
+			place(node, position);
 		}
+		slots++;
+		size++;
+		tags.add(newEvent.getTag(), node);
+		sources.add(newEvent.getSource(), node);
+	}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
+	/**
+	 * Counts the events matching a predicate.
+	 *
+	 * @param p the event selection predicate
+	 * @return the number of matching events
+	 */
+	public int count(Predicate p) {
+		if (size == 0 || p instanceof PredicateNone) {
+			return 0;
+		}
+		if (p instanceof PredicateAny) {
+			return size;
+		}
+		if (p instanceof PredicateType && tags.unindexed == 0) {
+			PredicateType type = (PredicateType) p;
+			int count = 0;
+			for (int i = 0; i < type.getNumberOfTags(); i++) {
+				if (!repeated(type, i)) {
+					count += tags.count(type.getTag(i));
+				}
+			}
+			return count;
+		}
+		if (p instanceof PredicateFrom && sources.unindexed == 0) {
+			PredicateFrom from = (PredicateFrom) p;
+			int count = 0;
+			for (int i = 0; i < from.getNumberOfSourceIds(); i++) {
+				if (!repeated(from, i)) {
+					count += sources.count(from.getSourceId(i));
+				}
 			}
+			return count;
 		}
 
-		list.add(newEvent);
+		int count = 0;
+		for (int i = 0; i < slots; i++) {
+			Node node = elements[slot(i)];
+			if (node != null && p.match(node.event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the first event matching a predicate.
+	 *
+	 * @param p the event selection predicate
+	 * @return the first matching event or <tt>null</tt> if there is none
+	 */
+	public SimEvent first(Predicate p) {
+		int position = find(p);
+		return position < 0 ? null : elements[slot(position)].event;
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
-	 * 
+	 * Removes the first event matching a predicate.
+	 *
+	 * @param p the event selection predicate
+	 * @return the removed event or <tt>null</tt> if there is none
+	 */
+	public SimEvent select(Predicate p) {
+		int position = find(p);
+		if (position < 0) {
+			return null;
+		}
+
+		int index = slot(position);
+		Node node = elements[index];
+		elements[index] = null;
+		size--;
+		node.removed = true;
+		tags.remove(node.event.getTag());
+		sources.remove(node.event.getSource());
+
+		if (size == 0) {
+			head = 0;
+			slots = 0;
+		} else {
+			// reclaim the removed slots at both ends of the buffer
+			while (elements[head] == null) {
+				head = slot(1);
+				slots--;
+			}
+			while (elements[slot(slots - 1)] == null) {
+				slots--;
+			}
+		}
+		return node.event;
+	}
+
+	/**
+	 * Returns an iterator to the events in the queue. The iterator does not support removal.
+	 *
 	 * @return the iterator
 	 */
+	@Override
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new Iterator<SimEvent>() {
+
+			private int position = skip(0);
+
+			@Override
+			public boolean hasNext() {
+				return position < slots;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				SimEvent event = elements[slot(position)].event;
+				position = skip(position + 1);
+				return event;
+			}
+
+			private int skip(int from) {
+				while (from < slots && elements[slot(from)] == null) {
+					from++;
+				}
+				return from;
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		Arrays.fill(elements, null);
+		head = 0;
+		slots = 0;
+		size = 0;
+		maxTime = -1;
+		tags.clear();
+		sources.clear();
+	}
+
+	/**
+	 * Finds the position of the first event matching a predicate.
+	 *
+	 * @param p the event selection predicate
+	 * @return the position relative to {@link #head}, or -1 if no event matches
+	 */
+	private int find(Predicate p) {
+		if (size == 0 || p instanceof PredicateNone) {
+			return -1;
+		}
+		if (p instanceof PredicateAny) {
+			// the first slot is never a removed event
+			return 0;
+		}
+		if (p instanceof PredicateType && tags.unindexed == 0) {
+			PredicateType type = (PredicateType) p;
+			int first = -1;
+			for (int i = 0; i < type.getNumberOfTags(); i++) {
+				first = earliest(first, tags.first(type.getTag(i)));
+			}
+			return first;
+		}
+		if (p instanceof PredicateFrom && sources.unindexed == 0) {
+			PredicateFrom from = (PredicateFrom) p;
+			int first = -1;
+			for (int i = 0; i < from.getNumberOfSourceIds(); i++) {
+				first = earliest(first, sources.first(from.getSourceId(i)));
+			}
+			return first;
+		}
+
+		for (int i = 0; i < slots; i++) {
+			Node node = elements[slot(i)];
+			if (node != null && p.match(node.event)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the earliest of a position and the position of an event in the queue.
+	 *
+	 * @param position the position relative to {@link #head}, or -1 if there is none
+	 * @param node the event, or <tt>null</tt> if there is none
+	 * @return the earliest position, or -1 if there is none
+	 */
+	private int earliest(int position, Node node) {
+		if (node == null) {
+			return position;
+		}
+		int nodePosition = (node.index - head) & (elements.length - 1);
+		return position < 0 || nodePosition < position ? nodePosition : position;
+	}
+
+	/**
+	 * Checks whether a tag of a predicate is also one of its previous tags.
+	 *
+	 * @param type the predicate
+	 * @param i the index of the tag
+	 * @return <tt>true</tt> if the tag is repeated
+	 */
+	private static boolean repeated(PredicateType type, int i) {
+		for (int j = 0; j < i; j++) {
+			if (type.getTag(j) == type.getTag(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a source of a predicate is also one of its previous sources.
+	 *
+	 * @param from the predicate
+	 * @param i the index of the source
+	 * @return <tt>true</tt> if the source is repeated
+	 */
+	private static boolean repeated(PredicateFrom from, int i) {
+		for (int j = 0; j < i; j++) {
+			if (from.getSourceId(j) == from.getSourceId(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Puts an event at a position of the ring buffer.
+	 *
+	 * @param node the event, or <tt>null</tt> for a removed event
+	 * @param position the position relative to {@link #head}
+	 */
+	private void place(Node node, int position) {
+		int index = slot(position);
+		elements[index] = node;
+		if (node != null) {
+			node.index = index;
+		}
+	}
+
+	/**
+	 * Translates a position relative to {@link #head} into an index of the ring buffer.
+	 *
+	 * @param position the position
+	 * @return the index
+	 */
+	private int slot(int position) {
+		return (head + position) & (elements.length - 1);
+	}
+
+	/**
+	 * Makes room for a new event, dropping the removed slots and doubling the buffer if needed.
+	 * The indexes are rebuilt, so that they drop their removed events too.
+	 */
+	private void grow() {
+		int capacity = size < elements.length / 2 ? elements.length : elements.length << 1;
+		Node[] grown = new Node[capacity];
+		int count = 0;
+		for (int i = 0; i < slots; i++) {
+			Node node = elements[slot(i)];
+			if (node != null) {
+				node.index = count;
+				grown[count++] = node;
+			}
+		}
+		elements = grown;
+		head = 0;
+		slots = count;
+
+		tags.clear();
+		sources.clear();
+		for (int i = 0; i < slots; i++) {
+			tags.add(elements[i].event.getTag(), elements[i]);
+			sources.add(elements[i].event.getSource(), elements[i]);
+		}
+	}
+
+	/**
+	 * An event in the queue.
+	 */
+	private static class Node implements Serializable {
+
+		/** The event. */
+		final SimEvent event;
+
+		/** The index of the event in the ring buffer, while it is in the queue. */
+		int index;
+
+		/** Whether the event has been removed from the queue. */
+		boolean removed;
+
+		Node(SimEvent event) {
+			this.event = event;
+		}
+	}
+
+	/**
+	 * The events of the queue by key (tag or source id), in queue order. A removed event is
+	 * dropped from the list of its key once it gets first, or when the lists are rebuilt.
+	 */
+	private class Index implements Serializable {
+
+		/** The events of each key, <tt>null</tt> for the keys without events. */
+		private ArrayDeque<Node>[] lists = newLists(0);
+
+		/** The number of events of each key. */
+		private int[] counts = new int[0];
+
+		/** The number of events whose key is not indexed. */
+		int unindexed = 0;
+
+		/**
+		 * Adds an event to the list of its key, keeping the list in queue order.
+		 *
+		 * @param key the key of the event
+		 * @param node the event
+		 */
+		void add(int key, Node node) {
+			if (key < 0 || key >= MAX_INDEXED_KEY) {
+				unindexed++;
+				return;
+			}
+			if (key >= lists.length) {
+				int length = Math.max(key + 1, lists.length << 1);
+				lists = Arrays.copyOf(lists, length);
+				counts = Arrays.copyOf(counts, length);
+			}
+			if (lists[key] == null) {
+				lists[key] = new ArrayDeque<>();
+			}
+			counts[key]++;
+
+			ArrayDeque<Node> list = lists[key];
+			int position = position(node);
+			if (list.isEmpty() || (!list.peekLast().removed && position(list.peekLast()) < position)) {
+				list.addLast(node);
+				return;
+			}
+
+			// An event inserted before the last ones of its key, which are moved back after it. The
+			// removed events met on the way are dropped
+			ArrayDeque<Node> later = new ArrayDeque<>();
+			while (!list.isEmpty() && (list.peekLast().removed || position(list.peekLast()) > position)) {
+				Node last = list.pollLast();
+				if (!last.removed) {
+					later.addFirst(last);
+				}
+			}
+			list.addLast(node);
+			list.addAll(later);
+		}
+
+		/**
+		 * Accounts for the removal of an event of a key, and drops the removed events at the
+		 * front of the list of the key.
+		 *
+		 * @param key the key of the event
+		 */
+		void remove(int key) {
+			if (key < 0 || key >= MAX_INDEXED_KEY) {
+				unindexed--;
+				return;
+			}
+			counts[key]--;
+			first(key);
+		}
+
+		/**
+		 * Gets the first event of a key.
+		 *
+		 * @param key the key
+		 * @return the first event, or <tt>null</tt> if there is none
+		 */
+		Node first(int key) {
+			if (key < 0 || key >= lists.length || lists[key] == null) {
+				return null;
+			}
+			ArrayDeque<Node> list = lists[key];
+			while (!list.isEmpty() && list.peekFirst().removed) {
+				list.pollFirst();
+			}
+			return list.peekFirst();
+		}
+
+		/**
+		 * Gets the number of events of a key.
+		 *
+		 * @param key the key
+		 * @return the number of events
+		 */
+		int count(int key) {
+			return key < 0 || key >= counts.length ? 0 : counts[key];
+		}
+
+		void clear() {
+			for (ArrayDeque<Node> list : lists) {
+				if (list != null) {
+					list.clear();
+				}
+			}
+			Arrays.fill(counts, 0);
+			unindexed = 0;
+		}
+
+		/**
+		 * Gets the position of an event in the queue.
+		 *
+		 * @param node the event, which is in the queue
+		 * @return the position relative to {@link #head}
+		 */
+		private int position(Node node) {
+			return (node.index - head) & (elements.length - 1);
+		}
+
+		@SuppressWarnings("unchecked")
+		private ArrayDeque<Node>[] newLists(int length) {
+			return new ArrayDeque[length];
+		}
 	}
 
-}
\ No newline at end of file
+}
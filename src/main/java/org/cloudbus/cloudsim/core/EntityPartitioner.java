@@ -0,0 +1,93 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Assigns the entities of a simulation to the logical processes of a parallel execution (see
+ * {@link Simulation#setParallelExecution(int, double, EntityPartitioner)}). The entities of a
+ * logical process are run by one thread at a time, while different logical processes run
+ * concurrently. Entities of different logical processes must therefore interact only through
+ * events. The data of an event sent to another logical process is passed to
+ * {@link #handOver(SimEvent)}, which must return data that the sender and the receiver can both
+ * use without synchronization, for instance a deep copy made with {@link #copy(Object)}.
+ *
+ * @see Simulation#setParallelExecution(int, double, EntityPartitioner)
+ */
+public interface EntityPartitioner {
+
+	/**
+	 * Gets the logical process of an entity. Logical processes are numbered from 0, and the
+	 * numbers used do not need to be contiguous.
+	 *
+	 * @param entity the entity
+	 * @return the index of the logical process running the entity
+	 */
+	int getLogicalProcess(SimEntity entity);
+
+	/**
+	 * Gets the data delivered to the destination of an event sent by an entity of another logical
+	 * process. The data is handed over at the end of a window, while no logical process runs, so
+	 * the sender may still change its own objects after sending them. By default, the data is
+	 * delivered as is, which is only safe for data that neither the sender nor the receiver
+	 * changes, and that refers to no such object.
+	 *
+	 * @param ev the event sent to another logical process
+	 * @return the data of the event received by its destination
+	 */
+	default Object handOver(SimEvent ev) {
+		return ev.getData();
+	}
+
+	/**
+	 * Makes a deep copy of some data by serializing it. The data must not refer to an entity,
+	 * since an entity can't be copied and belongs to a single logical process.
+	 *
+	 * @param data the data, which must be serializable
+	 * @return a deep copy of the data
+	 * @throws IllegalArgumentException if the data can't be serialized or refers to an entity
+	 */
+	static Object copy(Object data) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes) {
+
+			{
+				enableReplaceObject(true);
+			}
+
+			@Override
+			protected Object replaceObject(Object obj) throws IOException {
+				if (obj instanceof SimEntity) {
+					throw new IllegalArgumentException("The data " + data.getClass().getName()
+							+ " refers to the entity " + ((SimEntity) obj).getName()
+							+ ", and can't be handed over to another logical process.");
+				}
+				return obj;
+			}
+		}) {
+			out.writeObject(data);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The data " + data.getClass().getName()
+					+ " can't be handed over to another logical process.", e);
+		}
+
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("The copy of the data " + data.getClass().getName()
+					+ " can't be read.", e);
+		}
+	}
+
+}
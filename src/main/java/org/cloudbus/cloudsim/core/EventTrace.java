@@ -0,0 +1,227 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A binary trace of the events delivered by a simulation. Each event is recorded as a fixed size
+ * record (time, source, destination, tag, payload type and serial number) into a ring of records
+ * memory-mapped from a file, so recording an event only writes a few words to memory. When the
+ * ring is full, the oldest records are overwritten, and the file keeps the last events of the
+ * simulation. The names of the payload types and of the entities are written when the trace is
+ * closed. The trace can be read back with {@link EventTraceReader}.
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the format
+ * version, the capacity of the ring, the number of recorded events and the offset of the names.
+ * The numbers are little-endian, the byte order of most hosts.
+ *
+ * @see Simulation#setEventTrace(EventTrace)
+ * @see EventTraceReader
+ */
+public class EventTrace implements Closeable {
+
+	/** The magic number at the start of a trace file. */
+	static final int MAGIC = 0x57535452;
+
+	/** The version of the trace format. */
+	static final int VERSION = 1;
+
+	/** The size of the header of a trace file, in bytes. */
+	static final int HEADER_SIZE = 32;
+
+	/** The size of a record, in bytes. */
+	static final int RECORD_SIZE = 32;
+
+	/** The payload type of the events without data. */
+	static final int NO_PAYLOAD = -1;
+
+	/** The file the trace is written to. */
+	private final RandomAccessFile file;
+
+	/** The records, mapped from the file. */
+	private final MappedByteBuffer records;
+
+	/** The maximum number of records kept by the trace. */
+	private final int capacity;
+
+	/** The position of the next record in {@link #records}. */
+	private int position = HEADER_SIZE;
+
+	/** The number of recorded events, including the overwritten ones. */
+	private long count;
+
+	/** The ids of the payload types. */
+	private final Map<Class<?>, Integer> typeIds = new HashMap<Class<?>, Integer>();
+
+	/** The names of the payload types, by id. */
+	private final List<String> typeNames = new ArrayList<String>();
+
+	/** The payload type of the last recorded event, as consecutive events often carry the same type. */
+	private Class<?> lastType;
+
+	/** The id of {@link #lastType}. */
+	private int lastTypeId = NO_PAYLOAD;
+
+	/** The names of the entities, by id, once known. */
+	private List<String> entityNames = new ArrayList<String>();
+
+	/**
+	 * Creates a trace writing to a file. The file is created, or truncated if it exists.
+	 *
+	 * @param file the file of the trace
+	 * @param capacity the maximum number of records kept, the oldest ones being overwritten
+	 * @throws IOException if the file can't be created or mapped
+	 */
+	public EventTrace(File file, int capacity) throws IOException {
+		if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE) {
+			throw new IllegalArgumentException("The capacity of the trace is out of range: " + capacity);
+		}
+		this.capacity = capacity;
+		this.file = new RandomAccessFile(file, "rw");
+		this.file.setLength(0);
+		records = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+				HEADER_SIZE + (long) capacity * RECORD_SIZE);
+		records.order(ByteOrder.LITTLE_ENDIAN);
+		records.putInt(0, MAGIC);
+		records.putInt(4, VERSION);
+		records.putInt(8, capacity);
+	}
+
+	/**
+	 * Records an event that is being delivered.
+	 *
+	 * @param e the event
+	 */
+	void record(SimEvent e) {
+		int pos = position;
+		records.putDouble(pos, e.eventTime());
+		records.putInt(pos + 8, e.getSource());
+		records.putInt(pos + 12, e.getDestination());
+		records.putInt(pos + 16, e.getTag());
+		records.putInt(pos + 20, typeOf(e.getData()));
+		records.putLong(pos + 24, e.getSerial());
+
+		pos += RECORD_SIZE;
+		position = pos == records.capacity() ? HEADER_SIZE : pos;
+		count++;
+	}
+
+	/**
+	 * Gets the id of the type of a payload, registering the type the first time it is seen.
+	 *
+	 * @param data the payload
+	 * @return the id of its type, or {@link #NO_PAYLOAD} if there is no payload
+	 */
+	private int typeOf(Object data) {
+		if (data == null) {
+			return NO_PAYLOAD;
+		}
+		Class<?> type = data.getClass();
+		if (type != lastType) {
+			Integer id = typeIds.get(type);
+			if (id == null) {
+				id = typeNames.size();
+				typeIds.put(type, id);
+				typeNames.add(type.getName());
+			}
+			lastType = type;
+			lastTypeId = id;
+		}
+		return lastTypeId;
+	}
+
+	/**
+	 * Sets the names of the entities of the traced simulation, written with the trace.
+	 *
+	 * @param entities the entities, by id
+	 */
+	void setEntities(List<SimEntity> entities) {
+		entityNames = new ArrayList<String>(entities.size());
+		for (SimEntity entity : entities) {
+			entityNames.add(entity.getName());
+		}
+	}
+
+	/**
+	 * Gets the number of recorded events, including the ones that have been overwritten.
+	 *
+	 * @return the number of recorded events
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the maximum number of records kept by the trace.
+	 *
+	 * @return the capacity of the trace
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Writes the header and the names of the payload types and of the entities, and closes the
+	 * file. The space of the ring that has not been used is given back.
+	 *
+	 * @throws IOException if the trace can't be written
+	 */
+	@Override
+	public void close() throws IOException {
+		long namesOffset = count < capacity ? HEADER_SIZE + count * RECORD_SIZE : records.capacity();
+		records.putLong(12, count);
+		records.putLong(20, namesOffset);
+		records.force();
+
+		FileChannel channel = file.getChannel();
+		channel.position(namesOffset);
+		DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+		writeNames(out, typeNames);
+		writeNames(out, entityNames);
+		out.flush();
+		channel.truncate(channel.position());
+		file.close();
+	}
+
+	private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+		out.writeInt(names.size());
+		for (String name : names) {
+			out.writeUTF(name);
+		}
+	}
+
+	/**
+	 * Checks the header of a trace.
+	 *
+	 * @param header the header
+	 * @throws IOException if the header isn't the one of a trace written by this version
+	 */
+	static void checkHeader(ByteBuffer header) throws IOException {
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("Not an event trace.");
+		}
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("Unsupported event trace version: " + header.getInt(4));
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a trace written by {@link EventTrace}. The records are mapped from the file and read in
+ * place. They are indexed in the order the events were delivered, the record 0 being the oldest
+ * event kept by the trace.
+ *
+ * @see EventTrace
+ */
+public class EventTraceReader implements Closeable {
+
+	/** The trace file. */
+	private final RandomAccessFile file;
+
+	/** The records, mapped from the file. */
+	private final MappedByteBuffer records;
+
+	/** The number of recorded events, including the overwritten ones. */
+	private final long count;
+
+	/** The capacity of the ring of records. */
+	private final int capacity;
+
+	/** The number of records kept by the trace. */
+	private final int size;
+
+	/** The index in the ring of the oldest record. */
+	private final int first;
+
+	/** The names of the payload types, by id. */
+	private final List<String> typeNames;
+
+	/** The names of the entities, by id. */
+	private final List<String> entityNames;
+
+	/**
+	 * Opens a trace.
+	 *
+	 * @param file the trace file
+	 * @throws IOException if the file can't be read or isn't a closed trace
+	 */
+	public EventTraceReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = this.file.getChannel();
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, EventTrace.HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			EventTrace.checkHeader(header);
+			capacity = header.getInt(8);
+			count = header.getLong(12);
+			long namesOffset = header.getLong(20);
+			if (namesOffset == 0) {
+				throw new IOException("The event trace has not been closed.");
+			}
+
+			records = channel.map(FileChannel.MapMode.READ_ONLY, 0, namesOffset);
+			records.order(ByteOrder.LITTLE_ENDIAN);
+			size = (int) Math.min(count, capacity);
+			first = count > capacity ? (int) (count % capacity) : 0;
+
+			channel.position(namesOffset);
+			DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+			typeNames = readNames(in);
+			entityNames = readNames(in);
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	private static List<String> readNames(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		List<String> names = new ArrayList<String>(n);
+		for (int i = 0; i < n; i++) {
+			names.add(in.readUTF());
+		}
+		return names;
+	}
+
+	/**
+	 * Gets the number of records kept by the trace.
+	 *
+	 * @return the number of records
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of recorded events, including the ones that have been overwritten.
+	 *
+	 * @return the number of recorded events
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the position of a record in the file.
+	 *
+	 * @param record the index of the record
+	 * @return its position
+	 */
+	private int positionOf(int record) {
+		if (record < 0 || record >= size) {
+			throw new IndexOutOfBoundsException("Record: " + record + ", size: " + size);
+		}
+		int index = first + record;
+		if (index >= capacity) {
+			index -= capacity;
+		}
+		return EventTrace.HEADER_SIZE + index * EventTrace.RECORD_SIZE;
+	}
+
+	/**
+	 * Gets the time of a recorded event.
+	 *
+	 * @param record the index of the record
+	 * @return the time of the event
+	 */
+	public double getTime(int record) {
+		return records.getDouble(positionOf(record));
+	}
+
+	/**
+	 * Gets the source of a recorded event.
+	 *
+	 * @param record the index of the record
+	 * @return the id of the source entity
+	 */
+	public int getSource(int record) {
+		return records.getInt(positionOf(record) + 8);
+	}
+
+	/**
+	 * Gets the destination of a recorded event.
+	 *
+	 * @param record the index of the record
+	 * @return the id of the destination entity
+	 */
+	public int getDestination(int record) {
+		return records.getInt(positionOf(record) + 12);
+	}
+
+	/**
+	 * Gets the tag of a recorded event.
+	 *
+	 * @param record the index of the record
+	 * @return the tag of the event
+	 */
+	public int getTag(int record) {
+		return records.getInt(positionOf(record) + 16);
+	}
+
+	/**
+	 * Gets the type of the payload of a recorded event.
+	 *
+	 * @param record the index of the record
+	 * @return the class name of the payload, or <tt>null</tt> if the event had no payload
+	 */
+	public String getPayloadType(int record) {
+		int type = records.getInt(positionOf(record) + 20);
+		return type == EventTrace.NO_PAYLOAD ? null : typeNames.get(type);
+	}
+
+	/**
+	 * Gets the serial number of a recorded event, which orders the events sent for the same time.
+	 *
+	 * @param record the index of the record
+	 * @return the serial number of the event
+	 */
+	public long getSerial(int record) {
+		return records.getLong(positionOf(record) + 24);
+	}
+
+	/**
+	 * Gets the name of an entity of the traced simulation.
+	 *
+	 * @param id the id of the entity
+	 * @return its name, or <tt>null</tt> if it is unknown
+	 */
+	public String getEntityName(int id) {
+		return id >= 0 && id < entityNames.size() ? entityNames.get(id) : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
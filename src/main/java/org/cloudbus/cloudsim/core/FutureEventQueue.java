@@ -0,0 +1,111 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The contract of a future event queue used by {@link CloudSim}. Implementations must order
+ * events by their {@link SimEvent#eventTime() time} and then by their serial number, which is
+ * assigned by the queue itself on {@link #addEvent(SimEvent)}. Events sharing the same time and
+ * serial number (only possible through {@link #addEventFirst(SimEvent)}) are kept in insertion
+ * order. This guarantees that events scheduled for the same time are delivered in the order
+ * they were sent.
+ *
+ * @see FutureQueue
+ * @see HeapFutureQueue
+ */
+public interface FutureEventQueue extends Iterable<SimEvent> {
+
+	/**
+	 * Adds a new event to the queue, assigning it the next serial number.
+	 *
+	 * @param newEvent The event to be put in the queue.
+	 */
+	void addEvent(SimEvent newEvent);
+
+	/**
+	 * Adds a new event to the head of the events that share its time.
+	 *
+	 * @param newEvent The event to be put in the queue.
+	 */
+	void addEventFirst(SimEvent newEvent);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent first();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent poll();
+
+	/**
+	 * Removes the first event of the queue together with all the following events that have the
+	 * same time, appending them to a buffer in queue order. This lets a clock tick take its whole
+	 * batch of events in a single pass, without intermediate collections.
+	 *
+	 * @param buffer the list receiving the removed events
+	 * @return the number of events removed
+	 */
+	int drainFirstBatch(List<SimEvent> buffer);
+
+	/**
+	 * Returns an iterator to the queue. The iteration order is implementation dependent, so
+	 * callers needing the events in temporal order must use {@link #first()} and
+	 * {@link #poll()}.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	Iterator<SimEvent> iterator();
+
+	/**
+	 * Returns the size of this event queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Checks whether the queue has no events.
+	 *
+	 * @return true if the queue is empty
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Removes the event from the queue.
+	 *
+	 * @param event the event
+	 * @return true, if successful
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Removes all the events from the queue.
+	 *
+	 * @param events the events
+	 * @return true, if successful
+	 */
+	boolean removeAll(Collection<SimEvent> events);
+
+	/**
+	 * Clears the queue.
+	 */
+	void clear();
+
+}
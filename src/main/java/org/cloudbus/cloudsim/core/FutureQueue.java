@@ -8,9 +8,11 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
+import java.util.List;
+import java.util.NavigableSet;
 import java.util.TreeSet;
 
 /**
@@ -20,15 +22,16 @@ import java.util.TreeSet;
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
+ * @see FutureEventQueue
  * @see java.util.TreeSet
  * 
  * @todo It would be used a common interface for queues
  * such as this one and {@link DeferredQueue}
  */
-public class FutureQueue {
+public class FutureQueue implements FutureEventQueue, Serializable {
 
 	/** The sorted set of events. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	private final NavigableSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
 
 	/** A incremental number used for {@link SimEvent#serial} event attribute.
          */
@@ -40,6 +43,7 @@ public class FutureQueue {
 	 * 
 	 * @param newEvent The event to be put in the queue.
 	 */
+	@Override
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
 		sortedSet.add(newEvent);
@@ -50,16 +54,44 @@ public class FutureQueue {
 	 * 
 	 * @param newEvent The event to be put in the queue.
 	 */
+	@Override
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
 		sortedSet.add(newEvent);
 	}
 
+	@Override
+	public SimEvent first() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public int drainFirstBatch(List<SimEvent> buffer) {
+		SimEvent first = sortedSet.pollFirst();
+		if (first == null) {
+			return 0;
+		}
+
+		buffer.add(first);
+		int count = 1;
+		while (!sortedSet.isEmpty() && sortedSet.first().eventTime() == first.eventTime()) {
+			buffer.add(sortedSet.pollFirst());
+			count++;
+		}
+		return count;
+	}
+
 	/**
-	 * Returns an iterator to the queue.
+	 * Returns an iterator to the queue. The events are iterated in temporal order.
 	 * 
 	 * @return the iterator
 	 */
+	@Override
 	public Iterator<SimEvent> iterator() {
 		return sortedSet.iterator();
 	}
@@ -69,16 +101,23 @@ public class FutureQueue {
 	 * 
 	 * @return the size
 	 */
+	@Override
 	public int size() {
 		return sortedSet.size();
 	}
 
+	@Override
+	public boolean isEmpty() {
+		return sortedSet.isEmpty();
+	}
+
 	/**
 	 * Removes the event from the queue.
 	 * 
 	 * @param event the event
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean remove(SimEvent event) {
 		return sortedSet.remove(event);
 	}
@@ -89,6 +128,7 @@ public class FutureQueue {
 	 * @param events the events
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean removeAll(Collection<SimEvent> events) {
 		return sortedSet.removeAll(events);
 	}
@@ -96,6 +136,7 @@ public class FutureQueue {
 	/**
 	 * Clears the queue.
 	 */
+	@Override
 	public void clear() {
 		sortedSet.clear();
 	}
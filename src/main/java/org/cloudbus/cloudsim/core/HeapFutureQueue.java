@@ -0,0 +1,282 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A future event queue backed by an array-based 4-ary heap. The ordering keys of the events (time,
+ * serial and insertion sequence) are kept in primitive arrays parallel to the event array, so
+ * sifting only touches contiguous memory instead of chasing the nodes of a balanced tree. Each
+ * event remembers its position in the heap, which makes {@link #remove(SimEvent)} logarithmic.
+ * <p>
+ * Events are ordered by time, then by serial number. Several events may share both, since the
+ * events added through {@link #addEventFirst(SimEvent)} and the first event added all get a serial
+ * of 0: such ties are all kept, in insertion order. {@link FutureQueue} polls them in the same
+ * order, but its tree set may not find one of them on removal, while this queue always does.
+ *
+ * @see FutureEventQueue
+ * @see FutureQueue
+ */
+public class HeapFutureQueue implements FutureEventQueue, Serializable {
+
+	/** The number of children of each node of the heap. */
+	private static final int ARITY = 4;
+
+	/** The initial capacity used by the default constructor. */
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/** The events of the heap. */
+	private SimEvent[] events;
+
+	/** The time of each event, parallel to {@link #events}. */
+	private double[] times;
+
+	/** The serial of each event, parallel to {@link #events}. */
+	private long[] serials;
+
+	/** The insertion sequence of each event, parallel to {@link #events}. */
+	private long[] sequences;
+
+	/** The number of events in the heap. */
+	private int size;
+
+	/** A incremental number used for {@link SimEvent#serial} event attribute. */
+	private long serial = 0;
+
+	/** A incremental number used to keep events with equal time and serial in insertion order. */
+	private long sequence = 0;
+
+	/**
+	 * Creates an empty queue with a default initial capacity.
+	 */
+	public HeapFutureQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty queue.
+	 *
+	 * @param initialCapacity the number of events the queue can hold before growing
+	 */
+	public HeapFutureQueue(int initialCapacity) {
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException("The initial capacity should be positive, but is:" + initialCapacity);
+		}
+		events = new SimEvent[initialCapacity];
+		times = new double[initialCapacity];
+		serials = new long[initialCapacity];
+		sequences = new long[initialCapacity];
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(newEvent);
+	}
+
+	@Override
+	public SimEvent first() {
+		return size == 0 ? null : events[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent head = events[0];
+		removeAt(0);
+		return head;
+	}
+
+	@Override
+	public int drainFirstBatch(List<SimEvent> buffer) {
+		if (size == 0) {
+			return 0;
+		}
+
+		double time = times[0];
+		int count = 0;
+		do {
+			buffer.add(events[0]);
+			removeAt(0);
+			count++;
+		} while (size > 0 && times[0] == time);
+		return count;
+	}
+
+	/**
+	 * Returns an iterator to the queue. The events are iterated in heap order, not in temporal
+	 * order, and the iterator does not support removal.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return Collections.unmodifiableList(Arrays.asList(events).subList(0, size)).iterator();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int index = event.getQueueIndex();
+		if (index < 0 || index >= size || events[index] != event) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			events[i].setQueueIndex(-1);
+			events[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Inserts an event whose serial has already been set.
+	 *
+	 * @param event the event
+	 */
+	private void insert(SimEvent event) {
+		if (size == events.length) {
+			grow();
+		}
+		siftUp(size++, event, event.eventTime(), event.getSerial(), sequence++);
+	}
+
+	/**
+	 * Removes the event at a given position, filling the hole with the last event of the heap.
+	 *
+	 * @param index the position of the event
+	 */
+	private void removeAt(int index) {
+		events[index].setQueueIndex(-1);
+		int last = --size;
+		if (index == last) {
+			events[last] = null;
+			return;
+		}
+
+		SimEvent moved = events[last];
+		double time = times[last];
+		long movedSerial = serials[last];
+		long movedSequence = sequences[last];
+		events[last] = null;
+
+		siftDown(index, moved, time, movedSerial, movedSequence);
+		if (events[index] == moved) {
+			siftUp(index, moved, time, movedSerial, movedSequence);
+		}
+	}
+
+	private void siftUp(int index, SimEvent event, double time, long eventSerial, long eventSequence) {
+		while (index > 0) {
+			int parent = (index - 1) / ARITY;
+			if (!precedes(time, eventSerial, eventSequence, parent)) {
+				break;
+			}
+			move(parent, index);
+			index = parent;
+		}
+		set(index, event, time, eventSerial, eventSequence);
+	}
+
+	private void siftDown(int index, SimEvent event, double time, long eventSerial, long eventSequence) {
+		while (true) {
+			int firstChild = index * ARITY + 1;
+			if (firstChild >= size) {
+				break;
+			}
+
+			int best = firstChild;
+			int end = Math.min(firstChild + ARITY, size);
+			for (int child = firstChild + 1; child < end; child++) {
+				if (precedes(times[child], serials[child], sequences[child], best)) {
+					best = child;
+				}
+			}
+
+			if (!precedes(times[best], serials[best], sequences[best], time, eventSerial, eventSequence)) {
+				break;
+			}
+			move(best, index);
+			index = best;
+		}
+		set(index, event, time, eventSerial, eventSequence);
+	}
+
+	private boolean precedes(double time, long eventSerial, long eventSequence, int index) {
+		return precedes(time, eventSerial, eventSequence, times[index], serials[index], sequences[index]);
+	}
+
+	private static boolean precedes(double time1, long serial1, long sequence1, double time2, long serial2, long sequence2) {
+		if (time1 != time2) {
+			return time1 < time2;
+		}
+		if (serial1 != serial2) {
+			return serial1 < serial2;
+		}
+		return sequence1 < sequence2;
+	}
+
+	private void move(int from, int to) {
+		set(to, events[from], times[from], serials[from], sequences[from]);
+	}
+
+	private void set(int index, SimEvent event, double time, long eventSerial, long eventSequence) {
+		events[index] = event;
+		times[index] = time;
+		serials[index] = eventSerial;
+		sequences[index] = eventSequence;
+		event.setQueueIndex(index);
+	}
+
+	private void grow() {
+		int capacity = events.length << 1;
+		events = Arrays.copyOf(events, capacity);
+		times = Arrays.copyOf(times, capacity);
+		serials = Arrays.copyOf(serials, capacity);
+		sequences = Arrays.copyOf(sequences, capacity);
+	}
+
+}
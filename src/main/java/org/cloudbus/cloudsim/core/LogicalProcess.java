@@ -0,0 +1,187 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.cloudbus.cloudsim.Log;
+
+/**
+ * A logical process of a parallel execution: a group of entities with its own clock and its own
+ * queue of future events. A logical process is run by a single thread at a time.
+ *
+ * @see ParallelExecutor
+ */
+class LogicalProcess {
+
+	/** The simulation. */
+	private final Simulation simulation;
+
+	/** The entities of this logical process, in id order. */
+	final List<SimEntity> entities = new ArrayList<SimEntity>();
+
+	/** The future events of the entities of this logical process. */
+	final PriorityQueue<SimEvent> queue = new PriorityQueue<SimEvent>(64, ParallelExecutor.EVENT_ORDER);
+
+	/** The events sent to other logical processes during the current window. */
+	final List<SimEvent> outbox = new ArrayList<SimEvent>();
+
+	/** The output written by the entities during the current window. */
+	final List<Output> output = new ArrayList<Output>();
+
+	/** The reusable buffer holding the events of the current step. */
+	private final List<SimEvent> batch = new ArrayList<SimEvent>();
+
+	/** The local clock. */
+	double clock = 0;
+
+	/** The number of steps already run at the current clock, see {@link SimEvent#getCreationRound()}. */
+	int round = 0;
+
+	/** The id of the entity being run, or -1 between entities. */
+	int creator = -1;
+
+	/** A incremental number ordering the events created by this logical process. */
+	long nextIndex = 0;
+
+	/**
+	 * Creates an empty logical process.
+	 *
+	 * @param simulation the simulation
+	 */
+	LogicalProcess(Simulation simulation) {
+		this.simulation = simulation;
+	}
+
+	/**
+	 * Gets the time of the next event of this logical process.
+	 *
+	 * @return the time, or {@link Double#POSITIVE_INFINITY} if there are no events
+	 */
+	double nextEventTime() {
+		SimEvent first = queue.peek();
+		return first == null ? Double.POSITIVE_INFINITY : first.eventTime();
+	}
+
+	/**
+	 * Runs the steps of all the events scheduled before a given time.
+	 *
+	 * @param end the end of the window, exclusive
+	 */
+	void runUntil(double end) {
+		while (nextEventTime() < end) {
+			double time = nextEventTime();
+			if (time == clock) {
+				round++;
+			} else {
+				round = 0;
+				clock = time;
+			}
+			step();
+		}
+	}
+
+	/**
+	 * Runs the step of the events scheduled at a given time, numbered by the coordinator. This is
+	 * used when the lookahead is zero, so that all the logical processes share the same rounds.
+	 *
+	 * @param time the time of the events
+	 * @param globalRound the round of the step
+	 */
+	void runRound(double time, int globalRound) {
+		clock = time;
+		round = globalRound;
+		step();
+	}
+
+	/**
+	 * Delivers the events at the current clock and then runs the runnable entities, the same way a
+	 * clock tick of a sequential simulation does.
+	 */
+	private void step() {
+		deliver(clock);
+
+		for (int i = 0; i < entities.size(); i++) {
+			SimEntity ent = entities.get(i);
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				creator = ent.getId();
+				boolean capture = !Log.isDisabled();
+				if (capture) {
+					Log.startCapture();
+				}
+				try {
+					ent.run();
+				} finally {
+					creator = -1;
+					if (capture) {
+						String text = Log.stopCapture();
+						if (text.length() > 0) {
+							output.add(new Output(clock, round, ent.getId(), text));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Delivers the events scheduled at a given time to their destination entities.
+	 *
+	 * @param time the time
+	 */
+	void deliver(double time) {
+		while (!queue.isEmpty() && queue.peek().eventTime() == time) {
+			batch.add(queue.poll());
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			simulation.deliver(batch.get(i));
+		}
+		batch.clear();
+	}
+
+	/**
+	 * The text written to the log by an entity during one step.
+	 */
+	static class Output implements Comparable<Output> {
+
+		/** The clock of the step. */
+		final double clock;
+
+		/** The round of the step. */
+		final int round;
+
+		/** The id of the entity. */
+		final int entity;
+
+		/** The text. */
+		final String text;
+
+		Output(double clock, int round, int entity, String text) {
+			this.clock = clock;
+			this.round = round;
+			this.entity = entity;
+			this.text = text;
+		}
+
+		@Override
+		public int compareTo(Output other) {
+			if (clock != other.clock) {
+				return clock < other.clock ? -1 : 1;
+			}
+			if (round != other.round) {
+				return round < other.round ? -1 : 1;
+			}
+			return entity < other.entity ? -1 : (entity == other.entity ? 0 : 1);
+		}
+
+	}
+
+}
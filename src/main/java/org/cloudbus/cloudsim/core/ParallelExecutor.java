@@ -0,0 +1,458 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * Runs a simulation with conservative, window based, parallel discrete event execution. The
+ * entities are partitioned into {@link LogicalProcess logical processes}, each one with its own
+ * clock and event queue. Every window starts at the time <tt>T</tt> of the earliest pending event
+ * and covers the events scheduled before <tt>T + lookahead</tt>; the logical processes run their
+ * windows concurrently and exchange the events sent to each other at the end of the window.
+ * Events sent to another logical process must therefore be delayed by at least the lookahead.
+ * With a lookahead of zero every window is a single round of events at the same time, and the
+ * logical processes run in lockstep.
+ * <p>
+ * Instead of the serial number given by the future queue, events are ordered by a creation key:
+ * the clock and round at which they were created, the id of the entity that created them and the
+ * order in which that entity created them. A sequential simulation creates events in exactly this
+ * order, so the parallel execution delivers every event at the same point as
+ * {@link Simulation#run()} would. The text written to the {@link Log} by the entities is
+ * captured and printed in the same order too.
+ *
+ * @see Simulation#setParallelExecution(int, double, EntityPartitioner)
+ * @see EntityPartitioner
+ */
+class ParallelExecutor {
+
+	/** The order of the events of a parallel execution. */
+	static final Comparator<SimEvent> EVENT_ORDER = new Comparator<SimEvent>() {
+
+		@Override
+		public int compare(SimEvent a, SimEvent b) {
+			if (a.eventTime() != b.eventTime()) {
+				return a.eventTime() < b.eventTime() ? -1 : 1;
+			}
+			if (a.isFirst() != b.isFirst()) {
+				return a.isFirst() ? -1 : 1;
+			}
+			if (a.getCreationTime() != b.getCreationTime()) {
+				return a.getCreationTime() < b.getCreationTime() ? -1 : 1;
+			}
+			if (a.getCreationRound() != b.getCreationRound()) {
+				return a.getCreationRound() < b.getCreationRound() ? -1 : 1;
+			}
+			if (a.getCreator() != b.getCreator()) {
+				return a.getCreator() < b.getCreator() ? -1 : 1;
+			}
+			return a.getCreationIndex() < b.getCreationIndex() ? -1
+					: (a.getCreationIndex() == b.getCreationIndex() ? 0 : 1);
+		}
+
+	};
+
+	/** The logical process run by the current thread. */
+	private static final ThreadLocal<LogicalProcess> current = new ThreadLocal<LogicalProcess>();
+
+	/** The simulation. */
+	private final Simulation simulation;
+
+	/** The number of threads. */
+	private final int threads;
+
+	/** The minimum delay of the events sent between logical processes. */
+	private final double lookahead;
+
+	/** The partitioner of the entities. */
+	private final EntityPartitioner partitioner;
+
+	/** The logical processes. */
+	private final List<LogicalProcess> processes = new ArrayList<LogicalProcess>();
+
+	/** The logical process of each entity, indexed by entity id. */
+	private LogicalProcess[] processOf;
+
+	/** Whether the executor is running the simulation. */
+	private boolean active = false;
+
+	/** The end of the current window, exclusive. */
+	private double windowEnd;
+
+	/** The round of the coordinator, see {@link SimEvent#getCreationRound()}. */
+	private int round = 0;
+
+	/** A incremental number ordering the events created by the coordinator. */
+	private long nextIndex = 0;
+
+	/** Whether the next event created gets the serial number 0 in a sequential simulation. */
+	private boolean firstSerial;
+
+	/**
+	 * Creates a parallel executor.
+	 *
+	 * @param simulation the simulation
+	 * @param threads the number of threads
+	 * @param lookahead the minimum delay of the events sent between logical processes
+	 * @param partitioner the partitioner of the entities
+	 */
+	ParallelExecutor(Simulation simulation, int threads, double lookahead, EntityPartitioner partitioner) {
+		this.simulation = simulation;
+		this.threads = threads;
+		this.lookahead = lookahead;
+		this.partitioner = partitioner;
+	}
+
+	/**
+	 * Checks if the executor is running the simulation.
+	 *
+	 * @return true, if the events are handled by the executor
+	 */
+	boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * Gets the logical process run by the current thread.
+	 *
+	 * @return the logical process, or <tt>null</tt> if the current thread is not running one
+	 */
+	LogicalProcess currentProcess() {
+		return current.get();
+	}
+
+	/**
+	 * Adds a new event, giving it its creation key and storing it in the logical process of its
+	 * destination.
+	 *
+	 * @param e the event
+	 * @param first whether the event was sent with {@link Simulation#sendFirst}
+	 */
+	void addEvent(SimEvent e, boolean first) {
+		LogicalProcess lp = current.get();
+		if (lp == null) {
+			e.setCreationKey(simulation.clock(), round, -1, nextIndex++, first || firstSerial);
+			firstSerial = false;
+			handOver(e);
+			destinationOf(e).queue.add(e);
+			return;
+		}
+
+		e.setCreationKey(lp.clock, lp.round, lp.creator, lp.nextIndex++, first);
+		LogicalProcess destination = destinationOf(e);
+		if (destination == lp) {
+			lp.queue.add(e);
+		} else if (lookahead > 0 && e.eventTime() < windowEnd) {
+			throw new IllegalStateException("An event from entity #" + e.getSource() + " to entity #"
+					+ e.getDestination() + " is delayed by " + (e.eventTime() - lp.clock)
+					+ ", which is less than the lookahead of the parallel execution: " + lookahead);
+		} else {
+			lp.outbox.add(e);
+		}
+	}
+
+	/**
+	 * Removes the earliest event sent by an entity to its own logical process that matches a
+	 * predicate.
+	 *
+	 * @param src the id of the entity
+	 * @param p the predicate
+	 * @return the removed event, or <tt>null</tt> if none matches
+	 */
+	SimEvent cancel(int src, Predicate p) {
+		LogicalProcess lp = processOf[src];
+		SimEvent ev = null;
+		for (SimEvent candidate : lp.queue) {
+			if (candidate.getSource() == src && p.match(candidate)
+					&& (ev == null || EVENT_ORDER.compare(candidate, ev) < 0)) {
+				ev = candidate;
+			}
+		}
+		for (SimEvent candidate : lp.outbox) {
+			if (candidate.getSource() == src && p.match(candidate)
+					&& (ev == null || EVENT_ORDER.compare(candidate, ev) < 0)) {
+				ev = candidate;
+			}
+		}
+
+		if (ev != null && !lp.queue.remove(ev)) {
+			lp.outbox.remove(ev);
+		}
+		return ev;
+	}
+
+	/**
+	 * Removes all the events sent by an entity to its own logical process that match a predicate.
+	 *
+	 * @param src the id of the entity
+	 * @param p the predicate
+	 * @return true, if at least one event was removed
+	 */
+	boolean cancelAll(int src, Predicate p) {
+		LogicalProcess lp = processOf[src];
+		boolean removed = false;
+		for (Iterator<SimEvent> iterator = lp.queue.iterator(); iterator.hasNext();) {
+			SimEvent ev = iterator.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				iterator.remove();
+				removed = true;
+			}
+		}
+		for (Iterator<SimEvent> iterator = lp.outbox.iterator(); iterator.hasNext();) {
+			SimEvent ev = iterator.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				iterator.remove();
+				removed = true;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Runs the simulation until there are no more events or its termination time is reached.
+	 *
+	 * @param entities the entities of the simulation
+	 * @param future the events sent before the simulation started
+	 */
+	void run(List<SimEntity> entities, FutureEventQueue future) {
+		partition(entities);
+
+		// the events sent before the start were created before anything else
+		firstSerial = future.isEmpty();
+		while (!future.isEmpty()) {
+			SimEvent e = future.poll();
+			e.setCreationKey(-1, 0, -1, nextIndex++, e.getSerial() == 0);
+			handOver(e);
+			destinationOf(e).queue.add(e);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		active = true;
+		try {
+			if (!simulation.running()) {
+				simulation.runStart();
+			}
+
+			// the first clock tick runs the entities before any event is delivered
+			round = 1;
+			for (LogicalProcess lp : processes) {
+				lp.round = round;
+			}
+
+			while (true) {
+				double time = nextEventTime();
+				if (time == Double.POSITIVE_INFINITY) {
+					simulation.stopRunning();
+					Log.printLine("Simulation: No more future events");
+					break;
+				}
+
+				double terminateAt = simulation.getTerminationTime();
+				if (terminateAt > 0.0 && time >= terminateAt) {
+					// deliver the events of the last tick, as a sequential simulation does
+					simulation.setClock(time);
+					for (LogicalProcess lp : processes) {
+						lp.deliver(time);
+					}
+					simulation.terminateSimulation();
+					simulation.setClock(terminateAt);
+					break;
+				}
+
+				runWindow(pool, time, terminateAt);
+				simulation.waitWhilePaused(nextEventTime());
+			}
+		} finally {
+			active = false;
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs the window starting at a given time on all the logical processes having events in it,
+	 * then exchanges the events sent between logical processes and prints the captured output.
+	 *
+	 * @param pool the thread pool
+	 * @param time the start of the window
+	 * @param terminateAt the termination time, or a non positive value if there is none
+	 */
+	private void runWindow(ExecutorService pool, final double time, double terminateAt) {
+		final boolean lockstep = lookahead == 0;
+		if (lockstep) {
+			if (time == simulation.clock()) {
+				round++;
+			} else {
+				round = 0;
+			}
+			windowEnd = time;
+		} else {
+			windowEnd = time + lookahead;
+			if (terminateAt > 0.0 && terminateAt < windowEnd) {
+				windowEnd = terminateAt;
+			}
+		}
+		simulation.setClock(time);
+
+		final int windowRound = round;
+		final double end = windowEnd;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final LogicalProcess lp : processes) {
+			double next = lp.nextEventTime();
+			if (lockstep ? next != time : next >= end) {
+				continue;
+			}
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					CloudSim.bindThread(simulation);
+					current.set(lp);
+					try {
+						if (lockstep) {
+							lp.runRound(time, windowRound);
+						} else {
+							lp.runUntil(end);
+						}
+					} finally {
+						current.remove();
+					}
+					return null;
+				}
+			});
+		}
+
+		if (tasks.size() == 1) {
+			// no need to hand a single logical process over to another thread
+			try {
+				tasks.get(0).call();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		} else {
+			try {
+				for (Future<Void> result : pool.invokeAll(tasks)) {
+					result.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("The parallel execution was interrupted.", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+
+		List<LogicalProcess.Output> output = new ArrayList<LogicalProcess.Output>();
+		for (LogicalProcess lp : processes) {
+			for (int i = 0; i < lp.outbox.size(); i++) {
+				SimEvent e = lp.outbox.get(i);
+				handOver(e);
+				destinationOf(e).queue.add(e);
+			}
+			lp.outbox.clear();
+			output.addAll(lp.output);
+			lp.output.clear();
+			simulation.setClock(Math.max(simulation.clock(), lp.clock));
+		}
+		Collections.sort(output);
+		for (LogicalProcess.Output chunk : output) {
+			Log.print(chunk.text);
+		}
+	}
+
+	/**
+	 * Gets the time of the earliest pending event.
+	 *
+	 * @return the time, or {@link Double#POSITIVE_INFINITY} if there are no events
+	 */
+	private double nextEventTime() {
+		double time = Double.POSITIVE_INFINITY;
+		for (LogicalProcess lp : processes) {
+			time = Math.min(time, lp.nextEventTime());
+		}
+		return time;
+	}
+
+	/**
+	 * Assigns the entities to their logical processes.
+	 *
+	 * @param entities the entities, in id order
+	 */
+	private void partition(List<SimEntity> entities) {
+		processOf = new LogicalProcess[entities.size()];
+		List<LogicalProcess> byIndex = new ArrayList<LogicalProcess>();
+		for (SimEntity ent : entities) {
+			int index = partitioner.getLogicalProcess(ent);
+			if (index < 0) {
+				throw new IllegalArgumentException("Entity " + ent.getName()
+						+ " was assigned to a negative logical process: " + index);
+			}
+			while (byIndex.size() <= index) {
+				byIndex.add(null);
+			}
+			LogicalProcess lp = byIndex.get(index);
+			if (lp == null) {
+				lp = new LogicalProcess(simulation);
+				byIndex.set(index, lp);
+				processes.add(lp);
+			}
+			lp.entities.add(ent);
+			processOf[ent.getId()] = lp;
+		}
+	}
+
+	/**
+	 * Hands the data of an event over to the logical process of its destination, when the event
+	 * is sent by an entity of another logical process. This is only done while no logical
+	 * process runs.
+	 *
+	 * @param e the event
+	 */
+	private void handOver(SimEvent e) {
+		int src = e.getSource();
+		if (src < 0 || src >= processOf.length || processOf[src] == destinationOf(e) || e.getData() == null) {
+			return;
+		}
+		e.setData(partitioner.handOver(e));
+	}
+
+	/**
+	 * Gets the logical process an event must be delivered to.
+	 *
+	 * @param e the event
+	 * @return the logical process of the destination, or of the source for hold events
+	 */
+	private LogicalProcess destinationOf(SimEvent e) {
+		int entity = e.getType() == SimEvent.HOLD_DONE ? e.getSource() : e.getDestination();
+		if (entity < 0 || entity >= processOf.length) {
+			throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+		}
+		return processOf[entity];
+	}
+
+}
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -32,7 +34,7 @@ import org.cloudbus.cloudsim.core.predicates.Predicate;
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Cloneable, Serializable {
 
 	/** The entity name. */
 	private String name;
@@ -46,6 +48,15 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The events sent to this entity that are waiting to be processed. */
+	private DeferredQueue deferred = new DeferredQueue();
+
+	/** The predicate this entity is waiting for, or <tt>null</tt> if any event will do. */
+	private Predicate waitPredicate;
+
+	/** The simulation this entity belongs to. */
+	private Simulation simulation;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -91,10 +102,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.send(id, dest, delay, tag, data);
+		simulation.send(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -119,7 +130,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(String dest, double delay, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), delay, tag, data);
+		schedule(simulation.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -166,7 +177,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleNow(String dest, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), 0, tag, data);
+		schedule(simulation.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -191,10 +202,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.sendFirst(id, dest, delay, tag, data);
+		simulation.sendFirst(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -219,7 +230,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(String dest, double delay, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), delay, tag, data);
+		scheduleFirst(simulation.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -269,7 +280,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirstNow(String dest, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), 0, tag, data);
+		scheduleFirst(simulation.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -292,10 +303,10 @@ public abstract class SimEntity implements Cloneable {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Negative delay supplied.");
 		}
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.pause(id, delay);
+		simulation.pause(id, delay);
 	}
 
 	/**
@@ -305,7 +316,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of matching events
 	 */
 	public int numEventsWaiting(Predicate p) {
-		return CloudSim.waiting(id, p);
+		return simulation.waiting(id, p);
 	}
 
 	/**
@@ -314,7 +325,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of events
 	 */
 	public int numEventsWaiting() {
-		return CloudSim.waiting(id, CloudSim.SIM_ANY);
+		return simulation.waiting(id, CloudSim.SIM_ANY);
 	}
 
 	/**
@@ -324,11 +335,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent selectEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 
-		return CloudSim.select(id, p);
+		return simulation.select(id, p);
 	}
 
 	/**
@@ -338,11 +349,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The number of events cancelled (0 or 1)
 	 */
 	public SimEvent cancelEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 
-		return CloudSim.cancel(id, p);
+		return simulation.cancel(id, p);
 	}
 
 	/**
@@ -353,13 +364,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
-		if (numEventsWaiting(p) > 0) {
-			return selectEvent(p);
-		}
-		return null;
+		return simulation.select(id, p);
 	}
 
 	/**
@@ -369,11 +377,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @param p The predicate to match
 	 */
 	public void waitForEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
 
-		CloudSim.wait(id, p);
+		simulation.wait(id, p);
 		state = WAITING;
 	}
 
@@ -398,7 +406,9 @@ public abstract class SimEntity implements Cloneable {
 	 * This method is invoked by the {@link CloudSim} class whenever there is an event in the
 	 * deferred queue, which needs to be processed by the entity.
 	 * 
-	 * @param ev information about the event just happened
+	 * @param ev information about the event just happened. When event pooling is enabled the
+	 *            event is recycled once this method returns, so implementations that keep it must
+	 *            call {@link SimEvent#retain()}
          * 
 	 * @pre ev != null
 	 * @post $none
@@ -424,6 +434,7 @@ public abstract class SimEntity implements Cloneable {
 
 		while (ev != null) {
 			processEvent(ev);
+			simulation.releaseEvent(ev);
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -448,6 +459,8 @@ public abstract class SimEntity implements Cloneable {
 		SimEntity copy = (SimEntity) super.clone();
 		copy.setName(name);
 		copy.setEventBuffer(null);
+		copy.deferred = new DeferredQueue();
+		copy.waitPredicate = null;
 		return copy;
 	}
 
@@ -481,6 +494,51 @@ public abstract class SimEntity implements Cloneable {
 		return evbuf;
 	}
 
+	/**
+	 * Gets the simulation this entity belongs to.
+	 * 
+	 * @return the simulation
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
+	/**
+	 * Sets the simulation this entity belongs to.
+	 * 
+	 * @param simulation the simulation
+	 */
+	void setSimulation(Simulation simulation) {
+		this.simulation = simulation;
+	}
+
+	/**
+	 * Gets the deferred queue of this entity.
+	 * 
+	 * @return the deferred queue
+	 */
+	protected DeferredQueue getDeferredQueue() {
+		return deferred;
+	}
+
+	/**
+	 * Gets the predicate this entity is waiting for.
+	 * 
+	 * @return the predicate, or <tt>null</tt> if any event will do
+	 */
+	Predicate getWaitPredicate() {
+		return waitPredicate;
+	}
+
+	/**
+	 * Sets the predicate this entity is waiting for.
+	 * 
+	 * @param waitPredicate the predicate, or <tt>null</tt> if any event will do
+	 */
+	void setWaitPredicate(Predicate waitPredicate) {
+		this.waitPredicate = waitPredicate;
+	}
+
 	// The entity states
         //@todo The states should be an enum.
 	/** The Constant RUNNABLE. */
@@ -596,7 +654,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void send(String entityName, double delay, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), delay, cloudSimTag, data);
+		send(simulation.getEntityId(entityName), delay, cloudSimTag, data);
 	}
 
 	/**
@@ -655,7 +713,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void sendNow(String entityName, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), 0, cloudSimTag, data);
+		send(simulation.getEntityId(entityName), 0, cloudSimTag, data);
 	}
 
 	/**
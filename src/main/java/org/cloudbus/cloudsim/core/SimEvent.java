@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
  * 
@@ -15,13 +17,13 @@ package org.cloudbus.cloudsim.core;
  * @see Simulation
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Cloneable, Comparable<SimEvent>, Serializable {
 
 	/** Internal event type. **/
-	private final int etype;
+	private int etype;
 
 	/** The time that this event was scheduled, at which it should occur. **/
-	private final double time;
+	private double time;
 
 	/** Time that the event was removed from the queue to start service. **/
 	private double endWaitingTime;
@@ -33,7 +35,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** The user defined type of the event. **/
-	private final int tag;
+	private int tag;
 
 	/** 
          * Any data the event is carrying. 
@@ -41,7 +43,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
          * But this modification would incur several changes in the simulator core
          * that has to be assessed first.
          **/
-	private final Object data;
+	private Object data;
 
         /**
          * An attribute to help CloudSim to identify the order of received events
@@ -53,6 +55,36 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
          */
 	private long serial = -1;
 
+	/**
+	 * The position of this event inside the {@link HeapFutureQueue} holding it, or -1 if the event
+	 * is not stored in such a queue.
+	 */
+	private int queueIndex = -1;
+
+	/**
+	 * Whether an entity kept a reference to this event, which then must not be recycled by the
+	 * {@link SimEventPool}.
+	 */
+	private boolean retained = false;
+
+	/**
+	 * The creation key of this event in a parallel execution, which replaces the {@link #serial}
+	 * (see {@link ParallelExecutor#EVENT_ORDER}): the clock at which the event was created.
+	 */
+	private double creationTime;
+
+	/** The number of event batches already delivered at {@link #creationTime}. */
+	private int creationRound;
+
+	/** The id of the entity that created the event, or -1 if created outside the entities. */
+	private int creator;
+
+	/** The order in which the event was created among the events of the same creator. */
+	private long creationIndex;
+
+	/** Whether the event goes before the other events at the same time, like a serial of 0. */
+	private boolean first;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -99,6 +131,74 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		this.serial = serial;
 	}
 
+	long getSerial() {
+		return serial;
+	}
+
+	/**
+	 * Sets the creation key of this event in a parallel execution.
+	 */
+	void setCreationKey(double creationTime, int creationRound, int creator, long creationIndex, boolean first) {
+		this.creationTime = creationTime;
+		this.creationRound = creationRound;
+		this.creator = creator;
+		this.creationIndex = creationIndex;
+		this.first = first;
+	}
+
+	double getCreationTime() {
+		return creationTime;
+	}
+
+	int getCreationRound() {
+		return creationRound;
+	}
+
+	int getCreator() {
+		return creator;
+	}
+
+	long getCreationIndex() {
+		return creationIndex;
+	}
+
+	boolean isFirst() {
+		return first;
+	}
+
+	void setQueueIndex(int queueIndex) {
+		this.queueIndex = queueIndex;
+	}
+
+	int getQueueIndex() {
+		return queueIndex;
+	}
+
+	/**
+	 * Reinitialises a recycled event, as if it was created by
+	 * {@link #SimEvent(int, double, int, int, int, Object)}.
+	 */
+	void reset(int evtype, double time, int src, int dest, int tag, Object edata) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = 0;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		serial = -1;
+		queueIndex = -1;
+		retained = false;
+	}
+
+	/**
+	 * Clears the references held by an event that is going back to the pool.
+	 */
+	void recycle() {
+		etype = ENULL;
+		data = null;
+	}
+
 	/**
 	 * Sets the time that the event was removed from the queue to start service. 
 	 * 
@@ -110,6 +210,26 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
         
 	// ------------------- PUBLIC METHODS --------------------------        
 
+	/**
+	 * Marks this event as retained. When event pooling is enabled (see
+	 * {@link CloudSim#setEventPooling(boolean)}), an event is recycled as soon as
+	 * {@link SimEntity#processEvent(SimEvent)} returns, so an entity that stores the event (not
+	 * only its data) for later use must call this method while processing it. A retained event is
+	 * never recycled and is left to the garbage collector.
+	 */
+	public void retain() {
+		retained = true;
+	}
+
+	/**
+	 * Checks whether this event was retained by an entity.
+	 * 
+	 * @return true if {@link #retain()} was called
+	 */
+	public boolean isRetained() {
+		return retained;
+	}
+
 	@Override
 	public String toString() {
 		return "Event tag = " + tag + " source = " + CloudSim.getEntity(entSrc).getName() + " destination = "
@@ -220,6 +340,28 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		return new SimEvent(etype, time, entSrc, entDst, tag, data);
 	}
 
+	/**
+	 * Creates an event with the same time, source and destination as this event, but carrying
+	 * another tag and data. An entity receiving several messages packed in a single event can
+	 * thus process each of them as if it had been sent alone.
+	 * 
+	 * @param tag the tag of the message
+	 * @param data the data of the message
+	 * @return the new event, which is not scheduled
+	 */
+	public SimEvent derive(int tag, Object data) {
+		return new SimEvent(etype, time, entSrc, entDst, tag, data);
+	}
+
+	/**
+	 * Replaces the data of this event, when it is handed over to another logical process.
+	 * 
+	 * @param data the data
+	 */
+	void setData(Object data) {
+		this.data = data;
+	}
+
 	/**
 	 * Set the source entity of this event.
 	 * 
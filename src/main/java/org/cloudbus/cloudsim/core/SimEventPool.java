@@ -0,0 +1,78 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * A bounded pool of {@link SimEvent} objects, used by {@link CloudSim} when event pooling is
+ * enabled. Events are taken from the pool when sent and given back once they have been processed,
+ * so long simulations do not allocate a new event for every message. Events that do not fit in
+ * the pool, or that were {@link SimEvent#retain() retained}, are left to the garbage collector.
+ *
+ * @see CloudSim#setEventPooling(boolean)
+ * @see SimEvent
+ */
+class SimEventPool implements Serializable {
+
+	/** The default maximum number of free events kept by the pool. */
+	static final int DEFAULT_CAPACITY = 1 << 14;
+
+	/** The free events. */
+	private final SimEvent[] free;
+
+	/** The number of free events. */
+	private int size = 0;
+
+	/**
+	 * Creates an empty pool.
+	 *
+	 * @param capacity the maximum number of free events kept by the pool
+	 */
+	SimEventPool(int capacity) {
+		free = new SimEvent[capacity];
+	}
+
+	/**
+	 * Gets an event from the pool, or creates one if the pool is empty.
+	 *
+	 * @param evtype the internal event type
+	 * @param time the time of the event
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the user defined type of the event
+	 * @param edata the data carried by the event
+	 * @return the event
+	 */
+	SimEvent obtain(int evtype, double time, int src, int dest, int tag, Object edata) {
+		if (size == 0) {
+			return new SimEvent(evtype, time, src, dest, tag, edata);
+		}
+
+		SimEvent event = free[--size];
+		free[size] = null;
+		event.reset(evtype, time, src, dest, tag, edata);
+		return event;
+	}
+
+	/**
+	 * Gives an event back to the pool, unless it was retained or the pool is full.
+	 *
+	 * @param event the processed event
+	 */
+	void release(SimEvent event) {
+		if (event.isRetained() || event.getType() == SimEvent.ENULL || size == free.length) {
+			return;
+		}
+
+		event.recycle();
+		free[size++] = event;
+	}
+
+}
@@ -0,0 +1,1844 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A simulation run. Each instance owns its own clock, event queues and entity registry, so
+ * several simulations can run concurrently in the same JVM, one per thread.
+ * <p>
+ * The static methods of {@link CloudSim} delegate to the simulation bound to the calling thread
+ * (see {@link CloudSim#getSimulation()}). {@link #init(int, Calendar, boolean)} binds the
+ * simulation to the calling thread, so the entities created afterwards by that thread join it.
+ * Each {@link SimEntity} keeps a reference to the simulation it was added to.
+ * <p>
+ * A simulation can be saved to a snapshot with its entities, events and everything they
+ * reference (see {@link #writeSnapshot(OutputStream)} and {@link #setCheckpoint(double, File)}),
+ * and restored later with {@link #readSnapshot(InputStream)} to continue from that point. All the
+ * objects reachable from the entities and the events must therefore be {@link Serializable}.
+ * 
+ * @author Rodrigo N. Calheiros
+ * @author Anton Beloglazov
+ * @since CloudSim Toolkit 1.0
+ * @see CloudSim
+ */
+public class Simulation implements Serializable {
+
+	/** The Constant CLOUDSIM_VERSION_STRING. */
+	private static final String CLOUDSIM_VERSION_STRING = "3.0";
+
+	/** The id of CIS entity. */
+	private int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	@SuppressWarnings("unused")
+	private int shutdownId = -1;
+
+	/** The CIS object. */
+	private CloudInformationService cis = null;
+
+	/** The Constant NOT_FOUND. */
+	private static final int NOT_FOUND = -1;
+
+	/** The trace flag. */
+	@SuppressWarnings("unused")
+	private boolean traceFlag = false;
+
+	/** The calendar. */
+	private Calendar calendar = null;
+
+	/** The termination time. */
+	private double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	private double minTimeBetweenEvents = 0.0;
+
+	/**
+	 * Creates a simulation. It must be initialised with one of the <tt>init</tt> methods before
+	 * creating its entities.
+	 */
+	public Simulation() {
+	}
+	
+	/**
+	 * Initialises all the common attributes.
+	 * 
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 * @pre $none
+	 * @post $none
+	 */
+	private void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
+			throws Exception {
+		// the entities created from now on by this thread join this simulation
+		CloudSim.setSimulation(this);
+		initialize();
+		// NOTE: the order for the below 3 lines are important
+		traceFlag = _traceFlag;
+
+		// Set the current Wall clock time as the starting time of
+		// simulation
+		if (_calendar == null) {
+			calendar = Calendar.getInstance();
+		} else {
+			calendar = _calendar;
+		}
+
+		// creates a CloudSimShutdown object
+		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
+		shutdownId = shutdown.getId();
+	}
+
+	/**
+	 * Initialises this simulation and binds it to the calling thread (see
+	 * {@link CloudSim#setSimulation(Simulation)}). This method should be called before creating
+	 * any entities.
+	 * <p>
+	 * Inside this method, it will create the following CloudSim entities:
+	 * <ul>
+	 * <li>CloudInformationService.
+	 * <li>CloudSimShutdown
+	 * </ul>
+	 * <p>
+	 * 
+	 * @param numUser the number of User Entities created. This parameters indicates that
+	 *            {@link gridsim.CloudSimShutdown} first waits for all user entities's
+	 *            END_OF_SIMULATION signal before issuing terminate signal to other entities
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @see gridsim.CloudSimShutdown
+	 * @see CloudInformationService.CloudInformationService
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag) {
+		try {
+			initCommonVariable(cal, traceFlag, numUser);
+
+			// create a GIS object
+			cis = new CloudInformationService("CloudInformationService");
+
+			// set all the above entity IDs
+			cisId = cis.getId();
+		} catch (IllegalArgumentException s) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(s.getMessage());
+		} catch (Exception e) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(e.getMessage());
+		}
+	}
+
+	/**
+	 * Initialises CloudSim parameters. This method should be called before creating any entities.
+	 * <p>
+	 * Inside this method, it will create the following CloudSim entities:
+	 * <ul>
+	 * <li>CloudInformationService.
+	 * <li>CloudSimShutdown
+	 * </ul>
+	 * <p>
+	 * 
+	 * @param numUser the number of User Entities created. This parameters indicates that
+	 *            {@link gridsim.CloudSimShutdown} first waits for all user entities's
+	 *            END_OF_SIMULATION signal before issuing terminate signal to other entities
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events. Events within shorter periods
+	 * after the last event are discarded.
+	 * @see gridsim.CloudSimShutdown
+	 * @see CloudInformationService.CloudInformationService
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+	    if (periodBetweenEvents <= 0) {
+		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
+	    }
+	    
+	    init(numUser, cal, traceFlag);
+	    minTimeBetweenEvents = periodBetweenEvents;
+	}
+
+	/**
+	 * Initialises CloudSim parameters using a given future event queue implementation. This
+	 * method should be called before creating any entities.
+	 * <p>
+	 * The other overloads use a {@link FutureQueue}. A {@link HeapFutureQueue} delivers the
+	 * events in exactly the same order and is faster on simulations with many pending events.
+	 * 
+	 * @param numUser the number of User Entities created.
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param futureQueue an empty queue that will hold the future events of the simulation
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, FutureEventQueue futureQueue) {
+	    if (futureQueue == null || !futureQueue.isEmpty()) {
+		throw new IllegalArgumentException("The future event queue should be empty and not null.");
+	    }
+
+	    init(numUser, cal, traceFlag);
+	    future = futureQueue;
+	}
+	
+	
+	
+	/**
+	 * Starts the execution of CloudSim simulation. It waits for complete execution of all entities,
+	 * i.e. until all entities threads reach non-RUNNABLE state or there are no more events in the
+	 * future event queue.
+	 * <p>
+	 * <b>Note</b>: This method should be called after all the entities have been setup and added.
+	 * 
+	 * @return the last clock time
+	 * @throws NullPointerException This happens when creating this entity before initialising
+	 *             CloudSim package or this entity name is <tt>null</tt> or empty.
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @pre $none
+	 * @post $none
+	 */
+	public double startSimulation() throws NullPointerException {
+		Log.printConcatLine("Starting CloudSim version ", CLOUDSIM_VERSION_STRING);
+		try {
+			double clock = run();
+
+			// reset all the variables
+			cisId = -1;
+			shutdownId = -1;
+			cis = null;
+			calendar = null;
+			traceFlag = false;
+
+			return clock;
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new NullPointerException("CloudSim.startCloudSimulation() :"
+					+ " Error - you haven't initialized CloudSim.");
+		}
+	}
+
+	/**
+	 * Stops Cloud Simulation (based on {@link Simulation#runStop()}). This should be only called if
+	 * any of the user defined entities <b>explicitly</b> want to terminate simulation during
+	 * execution.
+	 * 
+	 * @throws NullPointerException This happens when creating this entity before initialising
+	 *             CloudSim package or this entity name is <tt>null</tt> or empty
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @see Simulation#runStop()
+	 * @pre $none
+	 * @post $none
+	 */
+	public void stopSimulation() throws NullPointerException {
+		try {
+			runStop();
+		} catch (IllegalArgumentException e) {
+			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
+					+ "Error - can't stop Cloud Simulation.");
+		}
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation.
+	 * 
+	 * @return true, if successful; false otherwise.
+	 */
+	public boolean terminateSimulation() {
+		if (parallel != null && parallel.currentProcess() != null) {
+			throw new IllegalStateException("The simulation can't be terminated immediately during a parallel execution,"
+					+ " use terminateSimulation(double) instead.");
+		}
+		running = false;
+		printMessage("Simulation: Reached termination time.");
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation at a given time.
+	 * 
+	 * @param time the time at which the simulation has to be terminated
+	 * @return true, if successful otherwise.
+	 */
+	public boolean terminateSimulation(double time) {
+		if (time <= clock()) {
+			return false;
+		} else {
+			terminateAt = time;
+		}
+		return true;
+	}
+
+	
+	/**
+	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded. 
+	 * @return the minimum time between events.
+	 */
+	public double getMinTimeBetweenEvents() {
+	    return minTimeBetweenEvents;
+	}
+
+	/**
+	 * Gets a new copy of initial simulation Calendar.
+	 * 
+	 * @return a new copy of Calendar object or if CloudSim hasn't been initialized
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean, String[], String[], String)
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @pre $none
+	 * @post $none
+	 */
+	public Calendar getSimulationCalendar() {
+		// make a new copy
+		Calendar clone = calendar;
+		if (calendar != null) {
+			clone = (Calendar) calendar.clone();
+		}
+
+		return clone;
+	}
+
+	/**
+	 * Gets the entity ID of <tt>CloudInformationService</tt>.
+	 * 
+	 * @return the Entity ID or if it is not found
+	 * @pre $none
+	 * @post $result >= -1
+	 */
+	public int getCloudInfoServiceEntityId() {
+		return cisId;
+	}
+
+	/**
+	 * Sends a request to Cloud Information Service (CIS) entity to get the list of all Cloud
+	 * hostList.
+	 * 
+	 * @return A List containing CloudResource ID (as an Integer object) or if a CIS entity hasn't
+	 *         been created before
+	 * @pre $none
+	 * @post $none
+	 */
+	public List<Integer> getCloudResourceList() {
+		if (cis == null) {
+			return null;
+		}
+
+		return cis.getList();
+	}
+
+	// ======== SIMULATION METHODS ===============//
+
+	/** The entities. */
+	private List<SimEntity> entities;
+
+	/** The future event queue. */
+	protected FutureEventQueue future;
+
+	/** The reusable buffer holding the events of the current clock tick. */
+	private final List<SimEvent> batch = new ArrayList<SimEvent>();
+
+	/** The position of the next event of the {@link #batch} to deliver, when {@link #step(int)} stopped in it. */
+	private int batchPosition;
+
+	/** The pool recycling processed events, or <tt>null</tt> if event pooling is disabled. */
+	private SimEventPool eventPool;
+
+	/** The executor of the parallel execution, or <tt>null</tt> if the simulation runs sequentially. */
+	private transient ParallelExecutor parallel;
+
+	/** The number of threads running the entities of a clock tick, 1 if they run one after the other. */
+	private int tickParallelism = 1;
+
+	/**
+	 * The partitioner handing over the data of the events sent between the logical processes of
+	 * the entities running concurrently, or <tt>null</tt> if the entities share no mutable data.
+	 */
+	private transient EntityPartitioner tickPartitioner;
+
+	/** The logical process of each entity, by id, while the entities run concurrently with a {@link #tickPartitioner}. */
+	private transient int[] tickProcessOf;
+
+	/** The pool running the entities of a clock tick while the simulation runs, if they run concurrently. */
+	private transient ForkJoinPool tickPool;
+
+	/** The runnable entities of the current clock tick, when they run concurrently. */
+	private final List<EntityTick> ticks = new ArrayList<EntityTick>();
+
+	/** The entity tick run by the current thread, when the entities of a clock tick run concurrently. */
+	private transient ThreadLocal<EntityTick> currentTick = new ThreadLocal<EntityTick>();
+
+	/** The time of the checkpoint, see {@link #setCheckpoint(double, File)}. */
+	private double checkpointAt = -1;
+
+	/** The file the checkpoint is written to, or <tt>null</tt> if there is no checkpoint. */
+	private File checkpointFile;
+
+	/** The trace recording the delivered events, or <tt>null</tt> if they are not traced. */
+	private transient EventTrace trace;
+
+	/** 
+         * The current simulation clock.
+         */
+	private double clock;
+
+	/** Flag for checking if the simulation is running. */
+	private boolean running;
+
+	/** Flag for checking if the entities have been started. */
+	private boolean started;
+
+	/** The entities by name. */
+	private Map<String, SimEntity> entitiesByName;
+
+	/** The paused. */
+	private volatile boolean paused = false;
+
+	/** The pause at. */
+	private volatile double pauseAt = -1;
+
+	/** The abrupt terminate. */
+	private boolean abruptTerminate = false;
+
+	/**
+	 * Initialise the simulation for stand alone simulations. This function should be called at the
+	 * start of the simulation.
+	 */
+	protected void initialize() {
+		Log.printLine("Initialising...");
+		entities = new ArrayList<SimEntity>();
+		entitiesByName = new LinkedHashMap<String, SimEntity>();
+		future = new FutureQueue();
+		clock = 0;
+		running = false;
+	}
+
+	// Public access methods
+
+	/**
+	 * Get the current simulation time. During a parallel execution, the entities get the clock of
+	 * their own logical process.
+	 * 
+	 * @return the simulation time
+	 */
+	public double clock() {
+		if (parallel != null) {
+			LogicalProcess lp = parallel.currentProcess();
+			if (lp != null) {
+				return lp.clock;
+			}
+		}
+		return clock;
+	}
+
+	/**
+	 * Sets the clock outside the logical processes of a parallel execution.
+	 * 
+	 * @param time the new simulation time
+	 */
+	void setClock(double time) {
+		clock = time;
+	}
+
+	/**
+	 * Get the current number of entities in the simulation.
+	 * 
+	 * @return The number of entities
+	 */
+	public int getNumEntities() {
+		return entities.size();
+	}
+
+	/**
+	 * Get the entity with a given id.
+	 * 
+	 * @param id the entity's unique id number
+	 * @return The entity, or if it could not be found
+	 */
+	public SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Get the entity with a given name.
+	 * 
+	 * @param name The entity's name
+	 * @return The entity
+	 */
+	public SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	/**
+	 * Get the id of an entity with a given name.
+	 * 
+	 * @param name The entity's name
+	 * @return The entity's unique id number
+	 */
+	public int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 * 
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(int entityID) {
+		try {
+			return getEntity(entityID).getName();
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 * 
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(Integer entityID) {
+		if (entityID != null) {
+			return getEntityName(entityID.intValue());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a list of entities created for the simulation.
+	 * 
+	 * @return the entity iterator
+	 */
+	public List<SimEntity> getEntityList() {
+		// create a new list to prevent the user from changing
+		// the list of entities used by Simulation
+		List<SimEntity> list = new LinkedList<SimEntity>();
+		list.addAll(entities);
+		return list;
+	}
+
+	// Public update methods
+
+	/**
+	 * Add a new entity to the simulation. This is present for compatibility with existing
+	 * simulations since entities are automatically added to the simulation upon instantiation.
+	 * 
+	 * @param e The new entity
+	 */
+	public void addEntity(SimEntity e) {
+		if ((parallel != null && parallel.isActive()) || currentTick.get() != null) {
+			throw new IllegalStateException("Entities can't be added during a parallel execution.");
+		}
+		SimEvent evt;
+		if (running) {
+			// Post an event to make this entity
+			evt = newEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
+			future.addEvent(evt);
+		}
+		if (e.getId() == -1) { // Only add once!
+			int id = entities.size();
+			e.setId(id);
+			e.setSimulation(this);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+		}
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running. It
+	 * should <b>not</b> be called from user simulations.
+	 * 
+	 * @param e The new entity
+	 */
+	protected void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			printMessage("Adding: " + e.getName());
+		}
+		e.startEntity();
+	}
+
+	/**
+	 * Internal method used to run one tick of the simulation. This method should <b>not</b> be
+	 * called in simulations.
+	 * 
+	 * @return true, if successful otherwise
+         * @todo If the method shouldn't be called by the user,
+         * it should be protected in any way, such as changing
+         * its visibility to package.
+	 */
+	public boolean runClockTick() {
+		boolean queue_empty;
+
+		// the rest of a batch left by step(int) is delivered before the entities run again
+		if (batchPosition < batch.size()) {
+			deliverBatch();
+			return false;
+		}
+
+		runEntities();
+				
+		// If there are more future events then deal with them
+		if (future.size() > 0) {
+			queue_empty = false;
+
+			// Take the first event and all the next events at the same time
+			future.drainFirstBatch(batch);
+			deliverBatch();
+
+		} else {
+			queue_empty = true;
+			running = false;
+			printMessage("Simulation: No more future events");
+		}
+
+		return queue_empty;
+	}
+
+	/**
+	 * Runs the runnable entities of the current clock tick, and writes the checkpoint if all the
+	 * events up to its time have been handled.
+	 */
+	private void runEntities() {
+		SimEntity ent;
+		int entities_size = entities.size();
+
+		if (tickPool != null) {
+			runEntitiesConcurrently();
+		} else {
+			for (int i = 0; i < entities_size; i++) {
+				ent = entities.get(i);
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					ent.run();
+				}
+			}
+		}
+
+		// the entities have handled their events, so all the events up to the checkpoint are done
+		if (checkpointFile != null && (future.size() == 0 || future.first().eventTime() > checkpointAt)) {
+			writeCheckpoint();
+		}
+	}
+
+	/**
+	 * Delivers the events of the {@link #batch} that have not been delivered yet.
+	 */
+	private void deliverBatch() {
+		while (batchPosition < batch.size()) {
+			processEvent(batch.get(batchPosition++));
+		}
+		batch.clear();
+		batchPosition = 0;
+	}
+
+	/**
+	 * Runs the runnable entities of the current clock tick on the {@link #tickPool}. The events
+	 * they send are buffered and added to the future event queue afterwards in entity id order, so
+	 * they get the same serial numbers as if the entities ran one after the other. The output they
+	 * write to the {@link Log} is printed in the same order too.
+	 */
+	private void runEntitiesConcurrently() {
+		for (int i = 0; i < entities.size(); i++) {
+			SimEntity ent = entities.get(i);
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				ticks.add(new EntityTick(ent));
+			}
+		}
+
+		if (ticks.size() == 1) {
+			// the events are still buffered, to be handed over like the ones of concurrent entities
+			currentTick.set(ticks.get(0));
+			try {
+				ticks.get(0).entity.run();
+			} finally {
+				currentTick.remove();
+			}
+		} else if (ticks.size() > 1) {
+			final boolean capture = !Log.isDisabled();
+			final List<RecursiveAction> actions = new ArrayList<RecursiveAction>(ticks.size());
+			for (final EntityTick tick : ticks) {
+				actions.add(new RecursiveAction() {
+
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						CloudSim.bindThread(Simulation.this);
+						currentTick.set(tick);
+						if (capture) {
+							Log.startCapture();
+						}
+						try {
+							tick.entity.run();
+						} finally {
+							if (capture) {
+								tick.output = Log.stopCapture();
+							}
+							currentTick.remove();
+						}
+					}
+				});
+			}
+			tickPool.invoke(new RecursiveAction() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					ForkJoinTask.invokeAll(actions);
+				}
+			});
+		}
+
+		for (EntityTick tick : ticks) {
+			for (int i = 0; i < tick.events.size(); i++) {
+				SimEvent e = tick.events.get(i);
+				handOver(e);
+				if (tick.first.get(i)) {
+					future.addEventFirst(e);
+				} else {
+					future.addEvent(e);
+				}
+			}
+			if (tick.output != null) {
+				Log.print(tick.output);
+			}
+		}
+		ticks.clear();
+	}
+
+	/**
+	 * Hands the data of an event over to the logical process of its destination with the
+	 * {@link #tickPartitioner}, when the event is sent between entities of different logical
+	 * processes. This is only done while no entity runs.
+	 * 
+	 * @param e the event
+	 */
+	private void handOver(SimEvent e) {
+		if (tickProcessOf == null || e.getData() == null) {
+			return;
+		}
+		int src = e.getSource();
+		int dest = e.getDestination();
+		if (src < 0 || src >= tickProcessOf.length || dest < 0 || dest >= tickProcessOf.length
+				|| tickProcessOf[src] == tickProcessOf[dest]) {
+			return;
+		}
+		e.setData(tickPartitioner.handOver(e));
+	}
+
+	/**
+	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
+	 */
+	public void runStop() {
+		printMessage("Simulation completed.");
+	}
+
+	/**
+	 * Used to hold an entity for some time.
+	 * 
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void hold(int src, long delay) {
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, clock() + delay, src, -1, -1, null);
+		addEvent(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to pause an entity for some time.
+	 * 
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void pause(int src, double delay) {
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, clock() + delay, src, -1, -1, null);
+		addEvent(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to send an event from one entity to another.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void send(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = newEvent(SimEvent.SEND, clock() + delay, src, dest, tag, data);
+		addEvent(e, false);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, with priority in the queue.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = newEvent(SimEvent.SEND, clock() + delay, src, dest, tag, data);
+		addEvent(e, true);
+	}
+
+	/**
+	 * Sets an entity's state to be waiting. The predicate used to wait for an event is now passed
+	 * to Sim_system. Only events that satisfy the predicate will be passed to the entity. This is
+	 * done to avoid unnecessary context switches.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 */
+	public void wait(int src, Predicate p) {
+		SimEntity ent = entities.get(src);
+		ent.setState(SimEntity.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			ent.setWaitPredicate(p);
+		}
+	}
+
+	/**
+	 * Checks if events for a specific entity are present in the deferred event queue.
+	 * 
+	 * @param d the d
+	 * @param p the p
+	 * @return the int
+	 */
+	public int waiting(int d, Predicate p) {
+		return entities.get(d).getDeferredQueue().count(p);
+	}
+
+	/**
+	 * Selects an event matching a predicate.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent select(int src, Predicate p) {
+		return entities.get(src).getDeferredQueue().select(p);
+	}
+
+	/**
+	 * Find first deferred event matching a predicate.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent findFirstDeferred(int src, Predicate p) {
+		return entities.get(src).getDeferredQueue().first(p);
+	}
+
+	/**
+	 * Removes an event from the event queue. During a parallel execution, only the events sent by
+	 * the entity to its own logical process, or sent to other logical processes during the current
+	 * window, can be removed.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		if (parallel != null && parallel.isActive()) {
+			return parallel.cancel(src, p);
+		}
+
+		EntityTick tick = currentTick.get();
+		if (tick != null) {
+			// other entities of the clock tick may be cancelling their own events concurrently
+			synchronized (future) {
+				SimEvent ev = earliest(src, p);
+				int buffered = tick.earliest(src, p);
+				if (buffered >= 0 && (ev == null || tick.precedes(buffered, ev))) {
+					return tick.remove(buffered);
+				}
+				if (ev != null) {
+					future.remove(ev);
+				}
+				return ev;
+			}
+		}
+
+		SimEvent ev = earliest(src, p);
+		if (ev != null) {
+			future.remove(ev);
+		}
+
+		return ev;
+	}
+
+	/**
+	 * Finds the earliest event of the future event queue sent by an entity and matching a predicate.
+	 * 
+	 * @param src the id of the entity
+	 * @param p the predicate
+	 * @return the event, or <tt>null</tt> if none matches
+	 */
+	private SimEvent earliest(int src, Predicate p) {
+		// the queue may not iterate in temporal order, so look for the earliest match
+		SimEvent ev = null;
+		for (SimEvent candidate : future) {
+			if (candidate.getSource() == src && p.match(candidate)
+					&& (ev == null || candidate.compareTo(ev) < 0)) {
+				ev = candidate;
+			}
+		}
+		return ev;
+	}
+
+	/**
+	 * Removes all events that match a given predicate from the future event queue returns true if
+	 * at least one event has been cancelled; false otherwise. During a parallel execution, it has
+	 * the same restrictions as {@link #cancel(int, Predicate)}.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return true, if successful
+	 */
+	public boolean cancelAll(int src, Predicate p) {
+		if (parallel != null && parallel.isActive()) {
+			return parallel.cancelAll(src, p);
+		}
+
+		EntityTick tick = currentTick.get();
+		if (tick != null) {
+			synchronized (future) {
+				tick.removeAll(src, p);
+				return removeAll(src, p);
+			}
+		}
+		return removeAll(src, p);
+	}
+
+	/**
+	 * Removes all the events of the future event queue sent by an entity and matching a predicate.
+	 * 
+	 * @param src the id of the entity
+	 * @param p the predicate
+	 * @return true, if successful
+	 */
+	private boolean removeAll(int src, Predicate p) {
+		int previousSize = future.size();
+		List<SimEvent> toRemove = new ArrayList<SimEvent>();
+		for (SimEvent ev : future) {
+			if (ev.getSource() == src && p.match(ev)) {
+				toRemove.add(ev);
+			}
+		}
+		future.removeAll(toRemove);
+		return previousSize < future.size();
+	}
+
+	//
+	// Private internal methods
+	//
+
+	/**
+	 * Processes an event.
+	 * 
+	 * @param e the e
+	 */
+	private void processEvent(SimEvent e) {
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		clock = e.eventTime();
+
+		if (trace != null) {
+			trace.record(e);
+		}
+		deliver(e);
+	}
+
+	/**
+	 * Delivers an event to its destination without updating the clock.
+	 * 
+	 * @param e the event
+	 */
+	void deliver(SimEvent e) {
+		int dest, src;
+		SimEntity dest_ent;
+		switch (e.getType()) {
+			case SimEvent.ENULL:
+				throw new IllegalArgumentException("Event has a null type.");
+
+			case SimEvent.CREATE:
+				SimEntity newe = (SimEntity) e.getData();
+				addEntityDynamically(newe);
+				releaseEvent(e);
+				break;
+
+			case SimEvent.SEND:
+				// Check for matching wait
+				dest = e.getDestination();
+				if (dest < 0) {
+					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+				} else {
+					int tag = e.getTag();
+					dest_ent = entities.get(dest);
+					if (dest_ent.getState() == SimEntity.WAITING) {
+						Predicate p = dest_ent.getWaitPredicate();
+						if ((p == null) || (tag == 9999) || (p.match(e))) {
+							// a pooled event is owned by the entity until it is processed
+							dest_ent.setEventBuffer(eventPool == null ? (SimEvent) e.clone() : e);
+							dest_ent.setState(SimEntity.RUNNABLE);
+							dest_ent.setWaitPredicate(null);
+						} else {
+							dest_ent.getDeferredQueue().addEvent(e);
+						}
+					} else {
+						dest_ent.getDeferredQueue().addEvent(e);
+					}
+				}
+				break;
+
+			case SimEvent.HOLD_DONE:
+				src = e.getSource();
+				if (src < 0) {
+					throw new IllegalArgumentException("Null entity holding.");
+				} else {
+					entities.get(src).setState(SimEntity.RUNNABLE);
+				}
+				releaseEvent(e);
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Adds a new event to the future event queue, or hands it to the parallel executor while it
+	 * runs the simulation.
+	 * 
+	 * @param e the event
+	 * @param first whether the event goes before the other events at the same time
+	 */
+	private void addEvent(SimEvent e, boolean first) {
+		EntityTick tick;
+		if (parallel != null && parallel.isActive()) {
+			parallel.addEvent(e, first);
+		} else if (tickPool != null && (tick = currentTick.get()) != null) {
+			tick.add(e, first);
+		} else {
+			// for instance the events sent by the entities when they start
+			handOver(e);
+			if (first) {
+				future.addEventFirst(e);
+			} else {
+				future.addEvent(e);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new event, taking it from the event pool when pooling is enabled.
+	 * 
+	 * @param evtype the internal event type
+	 * @param time the time of the event
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the user defined type of the event
+	 * @param data the data carried by the event
+	 * @return the event
+	 */
+	private SimEvent newEvent(int evtype, double time, int src, int dest, int tag, Object data) {
+		if (eventPool == null) {
+			return new SimEvent(evtype, time, src, dest, tag, data);
+		}
+		return eventPool.obtain(evtype, time, src, dest, tag, data);
+	}
+
+	/**
+	 * Gives a processed event back to the event pool. It does nothing when pooling is disabled.
+	 * 
+	 * @param e the processed event
+	 */
+	void releaseEvent(SimEvent e) {
+		if (eventPool != null) {
+			eventPool.release(e);
+		}
+	}
+
+	/**
+	 * Enables or disables event pooling. When enabled, processed events are recycled for new
+	 * messages instead of being left to the garbage collector, and events delivered to waiting
+	 * entities are no longer cloned. Entities that keep a reference to an event after
+	 * {@link SimEntity#processEvent(SimEvent)} returns must call {@link SimEvent#retain()}.
+	 * Pooling is disabled by default and when the simulation finishes.
+	 * 
+	 * @param enabled true to enable event pooling
+	 */
+	public void setEventPooling(boolean enabled) {
+		if (!enabled) {
+			eventPool = null;
+		} else if (eventPool == null) {
+			eventPool = new SimEventPool(SimEventPool.DEFAULT_CAPACITY);
+		}
+	}
+
+	/**
+	 * Checks if event pooling is enabled.
+	 * 
+	 * @return true, if processed events are recycled
+	 */
+	public boolean isEventPooling() {
+		return eventPool != null;
+	}
+
+	/**
+	 * Runs the simulation on several threads, using conservative parallel discrete event
+	 * execution. The entities are partitioned into logical processes that run concurrently, and
+	 * exchange events at the end of windows as long as the lookahead. Events sent to an entity of
+	 * another logical process must be delayed by at least the lookahead, otherwise the simulation
+	 * may fail with an {@link IllegalStateException}. With a lookahead of zero the logical processes
+	 * run in lockstep, one batch of same time events at a time.
+	 * <p>
+	 * The events are delivered in exactly the same order as in a sequential run, and the output
+	 * written to the {@link Log} by the entities is printed in the same order too. Entities of
+	 * different logical processes must not share mutable state except through events. Event
+	 * pooling is not used during a parallel execution, entities can't be added while it runs, and
+	 * {@link #terminateSimulation(double)} called by an entity takes effect from the next window.
+	 * The parallel execution is disabled when the simulation finishes.
+	 * 
+	 * @param threads the number of threads running the logical processes
+	 * @param lookahead the minimum delay of the events sent between logical processes
+	 * @param partitioner the partitioner of the entities into logical processes, or <tt>null</tt>
+	 *            to run the simulation sequentially
+	 * @see EntityPartitioner
+	 */
+	public void setParallelExecution(int threads, double lookahead, EntityPartitioner partitioner) {
+		if (parallel != null && parallel.isActive()) {
+			throw new IllegalStateException("The parallel execution can't be changed while it runs.");
+		}
+		if (partitioner == null) {
+			parallel = null;
+			return;
+		}
+		if (trace != null) {
+			throw new IllegalStateException("The events of a parallel execution can't be traced.");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads should be positive, but is:" + threads);
+		}
+		if (lookahead < 0 || Double.isNaN(lookahead) || Double.isInfinite(lookahead)) {
+			throw new IllegalArgumentException("The lookahead should be a non negative number, but is:" + lookahead);
+		}
+		parallel = new ParallelExecutor(this, threads, lookahead, partitioner);
+	}
+
+	/**
+	 * Runs the runnable entities of each clock tick concurrently, on a fork-join pool. Each entity
+	 * still processes its own events one after the other. The events sent by the entities are
+	 * buffered and added to the future event queue at the end of the run phase of the tick, in
+	 * entity id order, so the simulation delivers exactly the same events at the same times as
+	 * when the entities run one after the other. The output written to the {@link Log} by the
+	 * entities is printed in the same order too.
+	 * <p>
+	 * Unlike {@link #setParallelExecution(int, double, EntityPartitioner)}, this needs no
+	 * lookahead, but the entities of a tick must not share mutable state except through events.
+	 * Entities that send each other objects they keep changing, such as the tasks and messages of
+	 * WIDESim, must use {@link #setTickParallelism(int, EntityPartitioner)} instead. Event pooling
+	 * is not used while the entities run concurrently, and entities can't be added while the
+	 * simulation runs. This mode is ignored during a parallel execution.
+	 * 
+	 * @param parallelism the number of threads running the entities, 1 to run them one after the
+	 *            other
+	 */
+	public void setTickParallelism(int parallelism) {
+		setTickParallelism(parallelism, null);
+	}
+
+	/**
+	 * Runs the runnable entities of each clock tick concurrently, like
+	 * {@link #setTickParallelism(int)}, the data of the events sent between entities of different
+	 * logical processes being handed over by a partitioner as in a parallel execution (see
+	 * {@link EntityPartitioner#handOver(SimEvent)}). The data is handed over at the end of the run
+	 * phase of the tick, while no entity runs. The entities of a logical process may still run
+	 * concurrently, so they must not share mutable state either.
+	 * 
+	 * @param parallelism the number of threads running the entities, 1 to run them one after the
+	 *            other
+	 * @param partitioner the partitioner of the entities into logical processes, or <tt>null</tt>
+	 *            if the entities share no mutable data
+	 */
+	public void setTickParallelism(int parallelism, EntityPartitioner partitioner) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism should be positive, but is:" + parallelism);
+		}
+		if (tickPool != null) {
+			throw new IllegalStateException("The tick parallelism can't be changed while the simulation runs.");
+		}
+		tickParallelism = parallelism;
+		tickPartitioner = partitioner;
+	}
+
+	/**
+	 * Gets the number of threads running the entities of each clock tick.
+	 * 
+	 * @return the tick parallelism, 1 if the entities run one after the other
+	 */
+	public int getTickParallelism() {
+		return tickParallelism;
+	}
+
+	/**
+	 * Records the events delivered by the simulation into a trace, from now until the simulation
+	 * finishes. The trace is not closed when the simulation finishes, but it is given the names
+	 * of the entities. Recording an event only writes a record into the memory-mapped trace, and
+	 * costs nothing but a null check when the events are not traced. The events of a parallel
+	 * execution can't be traced.
+	 * 
+	 * @param trace the trace, or <tt>null</tt> to stop tracing
+	 * @see EventTraceReader
+	 */
+	public void setEventTrace(EventTrace trace) {
+		if (trace != null && parallel != null) {
+			throw new IllegalStateException("The events of a parallel execution can't be traced.");
+		}
+		this.trace = trace;
+	}
+
+	/**
+	 * Gets the trace recording the delivered events.
+	 * 
+	 * @return the trace, or <tt>null</tt> if the events are not traced
+	 */
+	public EventTrace getEventTrace() {
+		return trace;
+	}
+
+	/**
+	 * Checks if the simulation runs in parallel.
+	 * 
+	 * @return true, if a partitioner was set with
+	 *         {@link #setParallelExecution(int, double, EntityPartitioner)}
+	 */
+	public boolean isParallelExecution() {
+		return parallel != null;
+	}
+
+	/**
+	 * Internal method used to start the simulation. This method should <b>not</b> be used by user
+	 * simulations.
+	 */
+	public void runStart() {
+		running = true;
+		started = true;
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			ent.startEntity();
+		}
+
+		printMessage("Entities started.");
+	}
+
+	/**
+	 * Check if the simulation is still running. This method should be used by entities to check if
+	 * they should continue executing.
+	 * 
+	 * @return if the simulation is still running, otherwise
+	 */
+	public boolean running() {
+		return running;
+	}
+
+	/**
+	 * Marks the simulation as no longer running, once there are no more future events.
+	 */
+	void stopRunning() {
+		running = false;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation.
+	 * 
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation() {
+		paused = true;
+		return paused;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation at a given time.
+	 * 
+	 * @param time the time at which the simulation has to be paused
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation(double time) {
+		if (time <= clock()) {
+			return false;
+		} else {
+			pauseAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to resume the simulation that has previously been paused.
+	 * 
+	 * @return if the simulation has been restarted or or otherwise.
+	 */
+	public boolean resumeSimulation() {
+		synchronized (this) {
+			paused = false;
+			notifyAll();
+		}
+
+		if (pauseAt <= clock()) {
+			pauseAt = -1;
+		}
+
+		return !paused;
+	}
+
+	/**
+	 * Start the simulation running. This should be called after all the entities have been setup
+	 * and added, and their ports linked.
+	 * 
+	 * @return the last clock value
+	 */
+	public double run() {
+		if (parallel != null) {
+			// recycled events could still be referenced by another logical process
+			eventPool = null;
+			parallel.run(entities, future);
+		} else {
+			if (tickParallelism > 1) {
+				// recycled events could still be referenced by an entity running concurrently
+				eventPool = null;
+				tickPool = new ForkJoinPool(tickParallelism);
+				if (tickPartitioner != null) {
+					tickProcessOf = new int[entities.size()];
+					for (SimEntity ent : entities) {
+						tickProcessOf[ent.getId()] = tickPartitioner.getLogicalProcess(ent);
+					}
+				}
+			}
+			if (!started) {
+				runStart();
+			}
+			try {
+				// the simulation may already have run out of events in runUntil or step
+				if (running) {
+					runClockTicks();
+				}
+			} finally {
+				if (tickPool != null) {
+					tickPool.shutdown();
+					tickPool = null;
+					tickProcessOf = null;
+				}
+			}
+		}
+
+		double clock = clock();
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Runs the clock ticks of a sequential simulation until there are no more events or the
+	 * termination time is reached.
+	 */
+	private void runClockTicks() {
+		while (true) {
+			if (runClockTick()) {
+				break;
+			}
+
+			// this block allows termination of simulation at a specific time
+			if (terminateAt > 0.0 && clock >= terminateAt) {
+				terminateSimulation();
+				clock = terminateAt;
+				break;
+			}
+
+			waitWhilePaused(future.size() > 0 ? future.first().eventTime() : Double.POSITIVE_INFINITY);
+		}
+	}
+
+	/**
+	 * Runs the simulation until all the events up to a given time have been delivered and handled,
+	 * and sets the clock to that time. Unlike {@link #run()}, the simulation is not finished
+	 * afterwards: its entities can be inspected, and the simulation continued by calling this
+	 * method again, {@link #step(int)} or {@link #runUntil(Predicate)}. {@link #run()} runs it to
+	 * the end and finishes it. Everything runs on the calling thread, with the entities of each
+	 * clock tick running one after the other, so the simulation can be driven at full speed by an
+	 * external controller. The simulation also stops at the time set by
+	 * {@link #pauseSimulation(double)}, and resumes on the next call.
+	 * 
+	 * @param time the time to run the simulation until
+	 * @return true if the simulation can continue, false if there are no more events or it has been
+	 *         terminated
+	 */
+	public boolean runUntil(double time) {
+		if (time < clock) {
+			throw new IllegalArgumentException("The time can't be in the past, but is:" + time);
+		}
+		return advance(time, Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * Delivers the next events of the simulation to their destinations, which handle them when the
+	 * simulation continues. Same time events may thus be split between two calls, without changing
+	 * the order in which they are handled. See {@link #runUntil(double)}.
+	 * 
+	 * @param events the number of events to deliver
+	 * @return true if the simulation can continue, false if there are no more events or it has been
+	 *         terminated
+	 */
+	public boolean step(int events) {
+		if (events < 1) {
+			throw new IllegalArgumentException("The number of events must be positive, but is:" + events);
+		}
+		return advance(Double.POSITIVE_INFINITY, events, null);
+	}
+
+	/**
+	 * Runs the simulation until an event matching a predicate has been delivered to its
+	 * destination, which handles it when the simulation continues. The predicate is checked before
+	 * each event is delivered, so it can also stop the simulation on a condition on the state of
+	 * the entities. See {@link #runUntil(double)}.
+	 * 
+	 * @param p the predicate the events are matched against
+	 * @return true if the simulation can continue, false if there are no more events or it has been
+	 *         terminated
+	 */
+	public boolean runUntil(Predicate p) {
+		if (p == null) {
+			throw new IllegalArgumentException("The predicate can't be null.");
+		}
+		return advance(Double.POSITIVE_INFINITY, Long.MAX_VALUE, p);
+	}
+
+	/**
+	 * Runs the simulation on the calling thread until one of the stop conditions is met.
+	 * 
+	 * @param until the time after which no events are delivered
+	 * @param events the maximum number of events to deliver
+	 * @param p the predicate of the event to stop after, or <tt>null</tt> if there is none
+	 * @return true if the simulation can continue, false if there are no more events or it has been
+	 *         terminated
+	 */
+	private boolean advance(double until, long events, Predicate p) {
+		if (parallel != null) {
+			throw new IllegalStateException("A parallel execution can only be run to its end with run().");
+		}
+		if (!started) {
+			runStart();
+		} else if (!running) {
+			return false;
+		}
+		if (paused) {
+			resumeSimulation();
+		}
+
+		long delivered = 0;
+		while (true) {
+			if (batchPosition == batch.size()) {
+				runEntities();
+
+				if (future.size() == 0) {
+					running = false;
+					printMessage("Simulation: No more future events");
+					return false;
+				}
+				if (future.first().eventTime() > until) {
+					clock = until;
+					return true;
+				}
+				future.drainFirstBatch(batch);
+			}
+
+			SimEvent e = batch.get(batchPosition++);
+			// the event may be recycled once delivered
+			boolean matched = p != null && p.match(e);
+			processEvent(e);
+			delivered++;
+
+			if (batchPosition == batch.size()) {
+				batch.clear();
+				batchPosition = 0;
+
+				// this block allows termination of simulation at a specific time
+				if (terminateAt > 0.0 && clock >= terminateAt) {
+					terminateSimulation();
+					clock = terminateAt;
+					return false;
+				}
+
+				if (reachPauseTime(future.size() > 0 ? future.first().eventTime() : Double.POSITIVE_INFINITY)) {
+					return true;
+				}
+			}
+
+			if (matched || delivered == events) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Makes the simulation write a snapshot of itself to a file once all the events up to a given
+	 * time have been processed, and then carry on. The snapshot can be restored with
+	 * {@link #readSnapshot(InputStream)} any number of times, to run several scenarios from the
+	 * same point without replaying the simulation up to it. Checkpoints are not taken by a
+	 * parallel execution (see {@link #setParallelExecution(int, double, EntityPartitioner)}).
+	 * 
+	 * @param time the time of the checkpoint
+	 * @param file the file the snapshot is written to
+	 */
+	public void setCheckpoint(double time, File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("The checkpoint file can't be null.");
+		}
+		if (time < clock) {
+			throw new IllegalArgumentException("The checkpoint time can't be in the past, but is:" + time);
+		}
+		checkpointAt = time;
+		checkpointFile = file;
+	}
+
+	/**
+	 * Writes the checkpoint set by {@link #setCheckpoint(double, File)}.
+	 */
+	private void writeCheckpoint() {
+		File file = checkpointFile;
+		// the restored simulations must not write the checkpoint again
+		checkpointFile = null;
+		checkpointAt = -1;
+
+		printMessage("Simulation: Writing checkpoint to " + file);
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				writeSnapshot(out);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("The checkpoint could not be written to " + file, e);
+		}
+	}
+
+	/**
+	 * Writes a compressed snapshot of the simulation: its clock, its future events, its entities
+	 * with their deferred events and all the objects they reference. The snapshot must be taken
+	 * while no clock tick is running, that is before the simulation starts, or while it is paused.
+	 * Use {@link #setCheckpoint(double, File)} to take it while the simulation runs. The stream is
+	 * not closed.
+	 * 
+	 * @param out the stream the snapshot is written to
+	 * @throws IOException if the snapshot can't be written, in particular if an object reachable
+	 *             from the simulation is not {@link Serializable}
+	 */
+	public void writeSnapshot(OutputStream out) throws IOException {
+		if ((parallel != null && parallel.isActive()) || currentTick.get() != null) {
+			throw new IllegalStateException("A snapshot can't be written during a parallel execution.");
+		}
+
+		GZIPOutputStream zip = new GZIPOutputStream(out);
+		ObjectOutputStream stream = new ObjectOutputStream(new BufferedOutputStream(zip));
+		stream.writeObject(this);
+		stream.flush();
+		zip.finish();
+	}
+
+	/**
+	 * Reads a snapshot written by {@link #writeSnapshot(OutputStream)}, and binds the restored
+	 * simulation to the calling thread (see {@link CloudSim#setSimulation(Simulation)}). Calling
+	 * {@link #startSimulation()} on it continues the simulation from the point where the snapshot
+	 * was taken. The parallel execution and tick parallelism settings are not part of the snapshot.
+	 * 
+	 * @param in the stream the snapshot is read from
+	 * @return the restored simulation
+	 * @throws IOException if the snapshot can't be read
+	 * @throws ClassNotFoundException if a class of the snapshot can't be found
+	 */
+	public static Simulation readSnapshot(InputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream stream = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+		Simulation simulation = (Simulation) stream.readObject();
+		CloudSim.setSimulation(simulation);
+		return simulation;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		currentTick = new ThreadLocal<EntityTick>();
+		// the partitioner is not part of the snapshot, nor the tick parallelism relying on it
+		tickParallelism = 1;
+	}
+
+	/**
+	 * Pauses the simulation if it reached the time set by {@link #pauseSimulation(double)}, then
+	 * waits while the simulation is paused.
+	 * 
+	 * @param nextEventTime the time of the next event, or {@link Double#POSITIVE_INFINITY} if there
+	 *            are no more events
+	 */
+	void waitWhilePaused(double nextEventTime) {
+		reachPauseTime(nextEventTime);
+
+		synchronized (this) {
+			while (paused) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pauses the simulation if it reached the time set by {@link #pauseSimulation(double)}.
+	 * 
+	 * @param nextEventTime the time of the next event, or {@link Double#POSITIVE_INFINITY} if there
+	 *            are no more events
+	 * @return true if the simulation has been paused
+	 */
+	private boolean reachPauseTime(double nextEventTime) {
+		if (pauseAt != -1
+				&& ((nextEventTime != Double.POSITIVE_INFINITY && clock <= pauseAt && pauseAt <= nextEventTime)
+						|| nextEventTime == Double.POSITIVE_INFINITY && pauseAt <= clock)) {
+			pauseSimulation();
+			clock = pauseAt;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the time at which the simulation has to be terminated.
+	 * 
+	 * @return the termination time, or a non positive value if there is none
+	 */
+	double getTerminationTime() {
+		return terminateAt;
+	}
+
+	/**
+	 * Internal method that allows the entities to terminate. This method should <b>not</b> be used
+	 * in user simulations.
+	 */
+	public void finishSimulation() {
+		// Allow all entities to exit their body method
+		if (!abruptTerminate) {
+			for (SimEntity ent : entities) {
+				if (ent.getState() != SimEntity.FINISHED) {
+					ent.run();
+				}
+			}
+		}
+
+		for (SimEntity ent : entities) {
+			ent.shutdownEntity();
+			ent.getDeferredQueue().clear();
+		}
+
+		if (trace != null) {
+			trace.setEntities(entities);
+			trace = null;
+		}
+
+		// reset all the variables
+		// Private data members
+		entities = null;
+		entitiesByName = null;
+		future = null;
+		eventPool = null;
+		parallel = null;
+		tickParallelism = 1;
+		tickPartitioner = null;
+		checkpointAt = -1;
+		checkpointFile = null;
+		clock = 0L;
+		running = false;
+		started = false;
+		batch.clear();
+		batchPosition = 0;
+
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+	}
+
+	/**
+	 * Abruptally terminate.
+	 */
+	public void abruptallyTerminate() {
+		abruptTerminate = true;
+	}
+
+	/**
+	 * Prints a message about the progress of the simulation.
+	 * 
+	 * @param message the message
+	 */
+	private void printMessage(String message) {
+		Log.printLine(message);
+	}
+
+	/**
+	 * Checks if is paused.
+	 * 
+	 * @return true, if is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * The events sent and the output written by an entity while it runs in a clock tick whose
+	 * entities run concurrently.
+	 */
+	private static class EntityTick {
+
+		/** The entity. */
+		final SimEntity entity;
+
+		/** The events sent by the entity, in the order they were sent. */
+		final List<SimEvent> events = new ArrayList<SimEvent>();
+
+		/** Whether each event was sent with {@link Simulation#sendFirst}. */
+		final List<Boolean> first = new ArrayList<Boolean>();
+
+		/** The output written to the log by the entity, or <tt>null</tt> if it was not captured. */
+		String output;
+
+		EntityTick(SimEntity entity) {
+			this.entity = entity;
+		}
+
+		void add(SimEvent e, boolean sentFirst) {
+			events.add(e);
+			first.add(sentFirst);
+		}
+
+		/**
+		 * Finds the buffered event that the future event queue would deliver first among the ones
+		 * sent by an entity and matching a predicate.
+		 * 
+		 * @param src the id of the entity
+		 * @param p the predicate
+		 * @return the index of the event, or -1 if none matches
+		 */
+		int earliest(int src, Predicate p) {
+			int best = -1;
+			for (int i = 0; i < events.size(); i++) {
+				SimEvent e = events.get(i);
+				if (e.getSource() != src || !p.match(e)) {
+					continue;
+				}
+				if (best < 0 || e.eventTime() < events.get(best).eventTime()
+						|| (e.eventTime() == events.get(best).eventTime() && first.get(i) && !first.get(best))) {
+					best = i;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Checks if a buffered event would be delivered before an event of the future event queue.
+		 * The buffered events are added after all the events already in the queue.
+		 * 
+		 * @param index the index of the buffered event
+		 * @param queued the event of the queue
+		 * @return true, if the buffered event goes first
+		 */
+		boolean precedes(int index, SimEvent queued) {
+			SimEvent e = events.get(index);
+			if (e.eventTime() != queued.eventTime()) {
+				return e.eventTime() < queued.eventTime();
+			}
+			return first.get(index) && queued.getSerial() != 0;
+		}
+
+		SimEvent remove(int index) {
+			first.remove(index);
+			return events.remove(index);
+		}
+
+		void removeAll(int src, Predicate p) {
+			for (int i = events.size() - 1; i >= 0; i--) {
+				SimEvent e = events.get(i);
+				if (e.getSource() == src && p.match(e)) {
+					remove(i);
+				}
+			}
+		}
+
+	}
+
+}
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core.predicates;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.core.SimEvent;
 
 /**
@@ -36,7 +38,7 @@ import org.cloudbus.cloudsim.core.SimEvent;
  * Maybe it was introduced with Java 8 (due to Stream and Lambda functions).
  * 
  */
-public abstract class Predicate {
+public abstract class Predicate implements Serializable {
 
 	/**
          * Verifies if a given event matches the required criteria.
@@ -42,6 +42,35 @@ public class PredicateFrom extends Predicate {
 		ids = sourceIds.clone();
 	}
 
+	/**
+	 * Gets the ids of the source entities matched by this predicate.
+	 * 
+	 * @return a copy of the {@link #ids}
+	 */
+	public int[] getSourceIds() {
+		return ids.clone();
+	}
+
+	/**
+	 * Gets the number of source entities matched by this predicate.
+	 * 
+	 * @return the length of {@link #ids}
+	 */
+	public int getNumberOfSourceIds() {
+		return ids.length;
+	}
+
+	/**
+	 * Gets the id of one of the source entities matched by this predicate, without copying the
+	 * {@link #ids}.
+	 * 
+	 * @param index the index of the source entity, from 0 to {@link #getNumberOfSourceIds()} - 1
+	 * @return the id of the source entity
+	 */
+	public int getSourceId(int index) {
+		return ids[index];
+	}
+
 	/**
 	 * Matches any event received from the registered sources.
 	 * 
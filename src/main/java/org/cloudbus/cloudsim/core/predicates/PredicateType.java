@@ -41,6 +41,34 @@ public class PredicateType extends Predicate {
 		this.tags = tags.clone();
 	}
 
+	/**
+	 * Gets the tags matched by this predicate.
+	 * 
+	 * @return a copy of the {@link #tags}
+	 */
+	public int[] getTags() {
+		return tags.clone();
+	}
+
+	/**
+	 * Gets the number of tags matched by this predicate.
+	 * 
+	 * @return the length of {@link #tags}
+	 */
+	public int getNumberOfTags() {
+		return tags.length;
+	}
+
+	/**
+	 * Gets one of the tags matched by this predicate, without copying the {@link #tags}.
+	 * 
+	 * @param index the index of the tag, from 0 to {@link #getNumberOfTags()} - 1
+	 * @return the tag
+	 */
+	public int getTag(int index) {
+		return tags[index];
+	}
+
 	/**
 	 * Matches any event that has one of the specified {@link #tags}.
 	 * 
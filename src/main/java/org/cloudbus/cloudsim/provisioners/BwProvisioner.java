@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.provisioners;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.Vm;
 
 /**
@@ -22,7 +24,7 @@ import org.cloudbus.cloudsim.Vm;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public abstract class BwProvisioner {
+public abstract class BwProvisioner implements Serializable {
 
 	/** The total bandwidth capacity from the host that the provisioner can allocate to VMs. */
 	private long bw;
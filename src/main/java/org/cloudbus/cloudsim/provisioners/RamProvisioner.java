@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.provisioners;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.Vm;
 
 /**
@@ -21,7 +23,7 @@ import org.cloudbus.cloudsim.Vm;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public abstract class RamProvisioner {
+public abstract class RamProvisioner implements Serializable {
 
 	/** The total ram capacity from the host that the provisioner can allocate to VMs. */
 	private int ram;
@@ -1,5 +1,7 @@
 package widesim.analyze;
 
+import widesim.core.Enums.RoutingModeEnum;
+import widesim.network.TreeRouter;
 import org.jgrapht.Graph;
 import org.jgrapht.alg.cycle.CycleDetector;
 import org.jgrapht.alg.shortestpath.FloydWarshallShortestPaths;
@@ -7,14 +9,27 @@ import org.jgrapht.alg.util.Pair;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 public class TopologyAnalyzer {
 
     private final Graph<String, DefaultEdge> topology;
 
+    private final Map<DefaultEdge, Long> bandwidths;
+    private final Map<DefaultEdge, Double> latencies;
+
     public TopologyAnalyzer() {
         topology = new DefaultDirectedGraph<>(DefaultEdge.class);
+
+        bandwidths = new HashMap<>();
+        latencies = new HashMap<>();
     }
 
     public void addVertex(String vertexId) {
@@ -25,6 +40,15 @@ public class TopologyAnalyzer {
         topology.addEdge(src, dst);
     }
 
+    public void addEdge(String src, String dst, long bandwidth, double latency) {
+        DefaultEdge edge = topology.addEdge(src, dst);
+        if (edge == null)
+            edge = topology.getEdge(src, dst);
+
+        bandwidths.put(edge, bandwidth);
+        latencies.put(edge, latency);
+    }
+
     public boolean hasCycle() {
         return new CycleDetector<>(topology).detectCycles();
     }
@@ -41,4 +65,188 @@ public class TopologyAnalyzer {
         return routingTable;
     }
 
+    /**
+     * Builds a router over the vertices that are fog devices, computing the routes lazily.
+     *
+     * @param ids entity id of each fog device, by name
+     */
+    public TreeRouter buildRouter(Map<String, Integer> ids, RoutingModeEnum routingMode, int cacheSize) {
+        List<String> vertices = topology.vertexSet().stream().filter(ids::containsKey).collect(Collectors.toList());
+        Map<String, Integer> indices = indicesOf(vertices);
+
+        List<DefaultEdge> edges = topology.edgeSet().stream()
+                .filter(edge -> indices.containsKey(topology.getEdgeSource(edge)) && indices.containsKey(topology.getEdgeTarget(edge)))
+                .collect(Collectors.toList());
+
+        int[] linkSrcs = new int[edges.size()];
+        int[] linkDsts = new int[edges.size()];
+        long[] linkBandwidths = new long[edges.size()];
+        double[] linkLatencies = new double[edges.size()];
+        for (int link = 0; link < edges.size(); link++) {
+            DefaultEdge edge = edges.get(link);
+            linkSrcs[link] = indices.get(topology.getEdgeSource(edge));
+            linkDsts[link] = indices.get(topology.getEdgeTarget(edge));
+            linkBandwidths[link] = bandwidths.getOrDefault(edge, Long.MAX_VALUE);
+            linkLatencies[link] = latencies.getOrDefault(edge, 0.0);
+        }
+
+        int[] deviceIds = vertices.stream().mapToInt(ids::get).toArray();
+        return new TreeRouter(deviceIds, linkSrcs, linkDsts, linkBandwidths, linkLatencies, routingMode, cacheSize);
+    }
+
+    // index of each vertex in the list, by name
+    private static Map<String, Integer> indicesOf(List<String> vertices) {
+        Map<String, Integer> indices = new HashMap<>();
+        for (int index = 0; index < vertices.size(); index++)
+            indices.put(vertices.get(index), index);
+
+        return indices;
+    }
+
+    public HashMap<Pair<String, String>, String> buildRoutingTable(RoutingModeEnum routingMode) {
+        return switch (routingMode) {
+            case MIN_LATENCY -> toRoutingTable(minLatencyHops());
+            case MAX_BOTTLENECK -> toRoutingTable(maxBottleneckHops());
+            case HOP_COUNT -> buildRoutingTable();
+        };
+    }
+
+    private HashMap<Pair<String, String>, String> toRoutingTable(int[][] firstHops) {
+        List<String> vertices = new ArrayList<>(topology.vertexSet());
+
+        HashMap<Pair<String, String>, String> routingTable = new HashMap<>();
+        for (int src = 0; src < vertices.size(); src++)
+            for (int dst = 0; dst < vertices.size(); dst++)
+                routingTable.put(Pair.of(vertices.get(src), vertices.get(dst)), firstHops[src][dst] == -1 ? null : vertices.get(firstHops[src][dst]));
+
+        return routingTable;
+    }
+
+    // Floyd-Warshall on (latency, hop count): the path with the least latency, the one with the
+    // fewest hops among equal latencies
+    private int[][] minLatencyHops() {
+        List<String> vertices = new ArrayList<>(topology.vertexSet());
+        Map<String, Integer> indices = indicesOf(vertices);
+        int n = vertices.size();
+
+        double[][] latency = new double[n][n];
+        int[][] hops = new int[n][n];
+        int[][] firstHop = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(latency[i], Double.POSITIVE_INFINITY);
+            Arrays.fill(firstHop[i], -1);
+        }
+
+        for (DefaultEdge edge : topology.edgeSet()) {
+            int src = indices.get(topology.getEdgeSource(edge));
+            int dst = indices.get(topology.getEdgeTarget(edge));
+            if (src != dst) {
+                latency[src][dst] = latencies.getOrDefault(edge, 0.0);
+                hops[src][dst] = 1;
+                firstHop[src][dst] = dst;
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                if (firstHop[i][k] == -1)
+                    continue;
+
+                for (int j = 0; j < n; j++) {
+                    if (i == j || firstHop[k][j] == -1)
+                        continue;
+
+                    double viaLatency = latency[i][k] + latency[k][j];
+                    int viaHops = hops[i][k] + hops[k][j];
+                    if (viaLatency < latency[i][j] || (viaLatency == latency[i][j] && viaHops < hops[i][j])) {
+                        latency[i][j] = viaLatency;
+                        hops[i][j] = viaHops;
+                        firstHop[i][j] = firstHop[i][k];
+                    }
+                }
+            }
+        }
+
+        return firstHop;
+    }
+
+    // The path with the largest bottleneck bandwidth, the one with the fewest hops among the
+    // widest ones. The widths are found with Floyd-Warshall on (max, min), then the hops to each
+    // destination with a breadth-first search over the links at least as wide as the route, so
+    // that following the first hops never leads to a narrower route, nor loops
+    private int[][] maxBottleneckHops() {
+        List<String> vertices = new ArrayList<>(topology.vertexSet());
+        Map<String, Integer> indices = indicesOf(vertices);
+        int n = vertices.size();
+
+        // -1 where there is no link
+        long[][] bandwidth = new long[n][n];
+        for (int i = 0; i < n; i++)
+            Arrays.fill(bandwidth[i], -1);
+
+        for (DefaultEdge edge : topology.edgeSet()) {
+            int src = indices.get(topology.getEdgeSource(edge));
+            int dst = indices.get(topology.getEdgeTarget(edge));
+            if (src != dst)
+                bandwidth[src][dst] = bandwidths.getOrDefault(edge, Long.MAX_VALUE);
+        }
+
+        long[][] width = new long[n][];
+        for (int i = 0; i < n; i++)
+            width[i] = bandwidth[i].clone();
+
+        for (int k = 0; k < n; k++) {
+            for (int i = 0; i < n; i++) {
+                if (width[i][k] == -1)
+                    continue;
+
+                for (int j = 0; j < n; j++) {
+                    if (i != j && width[k][j] != -1)
+                        width[i][j] = Math.max(width[i][j], Math.min(width[i][k], width[k][j]));
+                }
+            }
+        }
+
+        int[][] firstHop = new int[n][n];
+        for (int i = 0; i < n; i++)
+            Arrays.fill(firstHop[i], -1);
+
+        int[] distance = new int[n];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int dst = 0; dst < n; dst++) {
+            TreeSet<Long> thresholds = new TreeSet<>();
+            for (int src = 0; src < n; src++)
+                if (src != dst && width[src][dst] != -1)
+                    thresholds.add(width[src][dst]);
+
+            for (long threshold : thresholds) {
+                // Hops to the destination over the links at least as wide as the threshold
+                Arrays.fill(distance, -1);
+                distance[dst] = 0;
+                queue.add(dst);
+                while (!queue.isEmpty()) {
+                    int hop = queue.poll();
+                    for (int prev = 0; prev < n; prev++) {
+                        if (distance[prev] == -1 && bandwidth[prev][hop] >= threshold) {
+                            distance[prev] = distance[hop] + 1;
+                            queue.add(prev);
+                        }
+                    }
+                }
+
+                for (int src = 0; src < n; src++) {
+                    if (src == dst || width[src][dst] != threshold)
+                        continue;
+
+                    for (int next = 0; next < n; next++) {
+                        if (bandwidth[src][next] >= threshold && distance[next] != -1
+                                && (firstHop[src][dst] == -1 || distance[next] < distance[firstHop[src][dst]]))
+                            firstHop[src][dst] = next;
+                    }
+                }
+            }
+        }
+
+        return firstHop;
+    }
 }
@@ -0,0 +1,204 @@
+package widesim.analyze;
+
+import com.jakewharton.fliptables.FlipTable;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.EventTraceReader;
+import widesim.core.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Filters and aggregates an event trace recorded with {@link org.cloudbus.cloudsim.core.EventTrace}.
+ * <p>
+ * Usage: {@code TraceAnalyzer <trace file> [options]}, with the options:
+ * <ul>
+ *     <li>{@code --by tag|src|dst|type|window}: counts the events per tag (the default), source,
+ *     destination, payload type or time window</li>
+ *     <li>{@code --window <width>}: the width of the time windows, 100 by default</li>
+ *     <li>{@code --print}: prints the events instead of counting them</li>
+ *     <li>{@code --tag <tag>}, {@code --src <id>}, {@code --dst <id>}, {@code --entity <id>},
+ *     {@code --from <time>}, {@code --to <time>}: only keeps the events with this tag (a number
+ *     or a name like {@code STAGE_OUT_DATA}), source, destination, source or destination, and
+ *     time range</li>
+ * </ul>
+ */
+public class TraceAnalyzer {
+
+    private static final Map<Integer, String> TAG_NAMES = new HashMap<>();
+    private static final Map<String, Integer> TAGS = new HashMap<>();
+
+    static {
+        addTags(Constants.MsgTag.class);
+        addTags(CloudSimTags.class);
+    }
+
+    private final EventTraceReader trace;
+
+    private String by = "tag";
+    private double window = 100;
+    private boolean print = false;
+    private Integer tag;
+    private Integer src;
+    private Integer dst;
+    private Integer entity;
+    private double from = Double.NEGATIVE_INFINITY;
+    private double to = Double.POSITIVE_INFINITY;
+
+    public TraceAnalyzer(EventTraceReader trace) {
+        this.trace = trace;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: TraceAnalyzer <trace file> [--by tag|src|dst|type|window] [--window <width>] [--print]"
+                    + " [--tag <tag>] [--src <id>] [--dst <id>] [--entity <id>] [--from <time>] [--to <time>]");
+            System.exit(1);
+        }
+
+        try (EventTraceReader trace = new EventTraceReader(new File(args[0]))) {
+            TraceAnalyzer analyzer = new TraceAnalyzer(trace);
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--print")) {
+                    analyzer.print = true;
+                    continue;
+                }
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException("Missing value of option: " + option);
+
+                String value = args[++i];
+                switch (option) {
+                    case "--by" -> analyzer.by = value;
+                    case "--window" -> analyzer.window = Double.parseDouble(value);
+                    case "--tag" -> analyzer.tag = parseTag(value);
+                    case "--src" -> analyzer.src = Integer.parseInt(value);
+                    case "--dst" -> analyzer.dst = Integer.parseInt(value);
+                    case "--entity" -> analyzer.entity = Integer.parseInt(value);
+                    case "--from" -> analyzer.from = Double.parseDouble(value);
+                    case "--to" -> analyzer.to = Double.parseDouble(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+
+            System.out.printf("%d events recorded, %d kept in the trace%n", trace.getCount(), trace.size());
+            System.out.println(analyzer.print ? analyzer.events() : analyzer.aggregate());
+        }
+    }
+
+    private boolean matches(int record) {
+        double time = trace.getTime(record);
+        int source = trace.getSource(record);
+        int destination = trace.getDestination(record);
+
+        return time >= from && time <= to
+                && (tag == null || trace.getTag(record) == tag)
+                && (src == null || source == src)
+                && (dst == null || destination == dst)
+                && (entity == null || source == entity || destination == entity);
+    }
+
+    public String events() {
+        List<String[]> rows = new ArrayList<>();
+        for (int record = 0; record < trace.size(); record++) {
+            if (!matches(record))
+                continue;
+
+            rows.add(new String[]{
+                    String.format("%.2f", trace.getTime(record)),
+                    entityName(trace.getSource(record)),
+                    entityName(trace.getDestination(record)),
+                    tagName(trace.getTag(record)),
+                    String.valueOf(trace.getPayloadType(record)),
+                    trace.getSerial(record) + ""
+            });
+        }
+
+        String[] headers = {"Time", "Source", "Destination", "Tag", "Payload", "Serial"};
+        return FlipTable.of(headers, rows.toArray(new String[0][]));
+    }
+
+    public String aggregate() {
+        // count, first time and last time of the events of each key
+        Map<Comparable<?>, double[]> stats = new TreeMap<>();
+        for (int record = 0; record < trace.size(); record++) {
+            if (!matches(record))
+                continue;
+
+            double time = trace.getTime(record);
+            Comparable<?> key = switch (by) {
+                case "tag" -> trace.getTag(record);
+                case "src" -> trace.getSource(record);
+                case "dst" -> trace.getDestination(record);
+                case "type" -> String.valueOf(trace.getPayloadType(record));
+                case "window" -> (long) Math.floor(time / window);
+                default -> throw new IllegalArgumentException("Unknown aggregation: " + by);
+            };
+
+            double[] stat = stats.computeIfAbsent(key, k -> new double[]{0, time, time});
+            stat[0]++;
+            stat[2] = time;
+        }
+
+        String[][] data = new String[stats.size()][];
+        int row = 0;
+        for (var entry : stats.entrySet()) {
+            double[] stat = entry.getValue();
+            data[row++] = new String[]{
+                    keyName(entry.getKey()),
+                    (long) stat[0] + "",
+                    String.format("%.2f", stat[1]),
+                    String.format("%.2f", stat[2])
+            };
+        }
+
+        String[] headers = {by.substring(0, 1).toUpperCase() + by.substring(1), "Events", "First", "Last"};
+        return FlipTable.of(headers, data);
+    }
+
+    private String keyName(Comparable<?> key) {
+        return switch (by) {
+            case "tag" -> tagName((Integer) key);
+            case "src", "dst" -> entityName((Integer) key);
+            case "window" -> String.format("[%.2f, %.2f)", (Long) key * window, ((Long) key + 1) * window);
+            default -> key.toString();
+        };
+    }
+
+    private String entityName(int id) {
+        String name = trace.getEntityName(id);
+        return name == null ? id + "" : name + "(" + id + ")";
+    }
+
+    private static String tagName(int tag) {
+        String name = TAG_NAMES.get(tag);
+        return name == null ? tag + "" : name + "(" + tag + ")";
+    }
+
+    private static int parseTag(String tag) {
+        Integer value = TAGS.get(tag);
+        return value != null ? value : Integer.parseInt(tag);
+    }
+
+    private static void addTags(Class<?> tags) {
+        for (Field field : tags.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isPublic(modifiers) && Modifier.isStatic(modifiers) && field.getType() == int.class) {
+                try {
+                    int value = field.getInt(null);
+                    TAG_NAMES.putIfAbsent(value, field.getName());
+                    TAGS.putIfAbsent(field.getName(), value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package widesim.computation;
 
-public class Data {
+import java.io.Serializable;
+
+public class Data implements Serializable {
 
     private final int srcTaskId;
     private final int dstTaskId;
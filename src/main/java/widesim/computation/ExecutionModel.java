@@ -1,5 +1,7 @@
 package widesim.computation;
 
-public interface ExecutionModel {
+import java.io.Serializable;
+
+public interface ExecutionModel extends Serializable {
     double nextExecutionTime(double clock);
 }
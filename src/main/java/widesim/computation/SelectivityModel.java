@@ -1,6 +1,8 @@
 package widesim.computation;
 
-public interface SelectivityModel {
+import java.io.Serializable;
+
+public interface SelectivityModel extends Serializable {
 
     boolean generateData(double clock);
 }
@@ -3,6 +3,9 @@ package widesim.computation;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.UtilizationModel;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.*;
 
 public class Task extends Cloudlet {
@@ -12,7 +15,8 @@ public class Task extends Cloudlet {
     private final Integer assignedVmId;
     private final List<Data> inputFiles;
     private List<Integer> children;
-    private Set<Integer> parents;
+    // written by writeObject, in its iteration order
+    private transient Set<Integer> parents;
     private final double deadLine;
     private final double entryTime;
     private final String workflowId;
@@ -133,6 +137,19 @@ public class Task extends Cloudlet {
         return new ArrayList<>(this.parents);
     }
 
+    // A deserialized hash set does not keep the iteration order of the original one, so the parents
+    // are restored in a linked set, in the order they were iterated in
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new ArrayList<>(this.parents));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.parents = new LinkedHashSet<>((List<Integer>) in.readObject());
+    }
+
     public long getTotalInputDataSize() {
         return this.inputFiles.stream().map(Data::getSize).reduce(0L, Long::sum);
     }
@@ -1,8 +1,9 @@
 package widesim.computation;
 
+import java.io.Serializable;
 import java.util.HashMap;
 
-public class TaskState {
+public class TaskState implements Serializable {
     private final HashMap<Integer, State> states;
 
     public TaskState() {
@@ -49,7 +50,7 @@ public class TaskState {
         return this.states.get(cycle);
     }
 
-    public class State {
+    public class State implements Serializable {
         public double enterBrokerWaitingQueue;
         public double exitBrokerWaitingQueue;
         public double enterFogDeviceWaitingQueue;
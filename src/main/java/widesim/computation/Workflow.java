@@ -1,10 +1,11 @@
 package widesim.computation;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-public class Workflow {
+public class Workflow implements Serializable {
     private final List<Task> tasks;
     private final Map<Integer, Task> taskMap;
     private final String workflowId;
@@ -57,5 +57,14 @@ public class Constants {
         public static final int EXECUTE_TASK_WITH_DATA = BASE + 15;
         public static final int DOWN_LINK_IS_FREE = BASE + 16;
         public static final int UP_LINK_IS_FREE = BASE + 17;
+        public static final int CHECK_FILE_CACHE = BASE + 18;
+        public static final int STAGE_IN_DATA = BASE + 19;
+        public static final int STORAGE_IS_FREE = BASE + 20;
+        public static final int BATCH = BASE + 21;
+        public static final int REFILL_TASKS = BASE + 22;
+        public static final int CYCLE_IS_FINISHED = BASE + 23;
+        public static final int PIPELINE_HEAD = BASE + 24;
+        public static final int PIPELINE_TAIL = BASE + 25;
+        public static final int DISPATCH_TASKS = BASE + 26;
     }
 }
@@ -1,6 +1,12 @@
 package widesim.core;
 
 import widesim.entity.FogHost;
+import widesim.network.FifoLink;
+import widesim.network.Link;
+import widesim.network.MaxMinFairLink;
+import widesim.storage.FileCache;
+import widesim.storage.LfuFileCache;
+import widesim.storage.LruFileCache;
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.power.models.PowerModelCubic;
@@ -371,4 +377,109 @@ public class Enums {
         }
     }
 
+    public enum LinkModelEnum {
+        FIFO("Fifo"),
+        MAX_MIN_FAIR("MaxMinFair");
+
+        private final String linkModel;
+
+        LinkModelEnum(String linkModel) {
+            this.linkModel = linkModel;
+        }
+
+        public Link newLink(int deviceId, long bandwidth, double latency, int eventTag) {
+            switch (this) {
+                case MAX_MIN_FAIR:
+                    return new MaxMinFairLink(deviceId, bandwidth, latency, eventTag);
+                case FIFO:
+                default:
+                    return new FifoLink(deviceId, bandwidth, latency, eventTag);
+            }
+        }
+
+        String getLinkModel() {
+            return linkModel;
+        }
+
+        @Override
+        public String toString() {
+            return getLinkModel();
+        }
+    }
+
+    public enum TransferModeEnum {
+        STORE_AND_FORWARD("StoreAndForward"),
+        PIPELINED("Pipelined");
+
+        private final String transferMode;
+
+        TransferModeEnum(String transferMode) {
+            this.transferMode = transferMode;
+        }
+
+        String getTransferMode() {
+            return transferMode;
+        }
+
+        @Override
+        public String toString() {
+            return getTransferMode();
+        }
+    }
+
+    public enum RoutingModeEnum {
+        HOP_COUNT("HopCount"),
+        MIN_LATENCY("MinLatency"),
+        MAX_BOTTLENECK("MaxBottleneck");
+
+        private final String routingMode;
+
+        RoutingModeEnum(String routingMode) {
+            this.routingMode = routingMode;
+        }
+
+        String getRoutingMode() {
+            return routingMode;
+        }
+
+        @Override
+        public String toString() {
+            return getRoutingMode();
+        }
+    }
+
+    public enum FileCachePolicyEnum {
+        NONE("None"),
+        LRU("Lru"),
+        LFU("Lfu");
+
+        private final String policy;
+
+        FileCachePolicyEnum(String policy) {
+            this.policy = policy;
+        }
+
+        // null when files are not cached
+        public FileCache newFileCache(long capacity) {
+            switch (this) {
+                case LRU:
+                    return new LruFileCache(capacity);
+                case LFU:
+                    return new LfuFileCache(capacity);
+                case NONE:
+                default:
+                    return null;
+            }
+        }
+
+        String getPolicy() {
+            return policy;
+        }
+
+        @Override
+        public String toString() {
+            return getPolicy();
+        }
+    }
+
 }
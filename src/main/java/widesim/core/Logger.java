@@ -4,6 +4,7 @@ import com.jakewharton.fliptables.FlipTable;
 import widesim.computation.Task;
 import widesim.computation.TaskState.State;
 import widesim.entity.FogDevice;
+import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 
 import java.util.List;
@@ -12,11 +13,8 @@ import java.util.stream.IntStream;
 
 public class Logger {
     public static void log(String tag, String formatted, Object... args) {
-        System.out.printf("[%.2f]|[%s]: ", CloudSim.clock(), tag);
-
-        System.out.printf(formatted, args);
-
-        System.out.println();
+        // a single line keeps the output of concurrent simulations apart
+        Log.printLine(String.format("[%.2f]|[%s]: ", CloudSim.clock(), tag) + String.format(formatted, args));
     }
 
     public static void printResult(int cycle, List<Task> tasks, Map<Integer, Integer> vmToFogDevice, List<FogDevice> fogDevices) {
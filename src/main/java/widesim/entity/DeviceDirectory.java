@@ -0,0 +1,71 @@
+package widesim.entity;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The names and ids of all the fog devices of a simulation, and the ones caching the files they
+ * receive. The directory is built once, after the topology is parsed, and shared by all the
+ * devices, which then do not need to exchange their ids when the simulation starts.
+ */
+public class DeviceDirectory implements Serializable {
+
+    // ids in increasing order
+    private final List<Integer> ids;
+
+    private final Map<String, Integer> idsByName;
+
+    // name of each device, by entity id
+    private final String[] namesById;
+
+    private final Set<Integer> fileCacheIds;
+
+    public DeviceDirectory(List<FogDevice> fogDevices) {
+        this.ids = fogDevices.stream().map(FogDevice::getId).sorted().toList();
+
+        this.idsByName = new HashMap<>();
+        this.namesById = new String[ids.isEmpty() ? 0 : ids.get(ids.size() - 1) + 1];
+        for (FogDevice fogDevice : fogDevices) {
+            if (idsByName.put(fogDevice.getName(), fogDevice.getId()) != null)
+                throw new IllegalArgumentException(String.format("Duplicate fog device name: %s", fogDevice.getName()));
+
+            namesById[fogDevice.getId()] = fogDevice.getName();
+        }
+
+        this.fileCacheIds = fogDevices.stream().filter(fogDevice -> fogDevice.getFileCache() != null).map(FogDevice::getId).collect(Collectors.toSet());
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    /**
+     * @return the id of the device, or -1 if there is no device with this name
+     */
+    public int idOf(String name) {
+        return idsByName.getOrDefault(name, -1);
+    }
+
+    /**
+     * @return the name of the device, or null if there is no device with this id
+     */
+    public String nameOf(int id) {
+        return id >= 0 && id < namesById.length ? namesById[id] : null;
+    }
+
+    public boolean hasFileCache(int id) {
+        return fileCacheIds.contains(id);
+    }
+
+    public boolean contains(int id) {
+        return nameOf(id) != null;
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -3,9 +3,13 @@ package widesim.entity;
 import widesim.computation.Task;
 import widesim.core.Constants;
 import widesim.core.Logger;
+import widesim.mapper.IncrementalTaskToVmMapper;
+import widesim.mapper.MappingDelta;
 import widesim.mapper.TaskToVmMapper;
 import widesim.mapper.VmToFogDeviceMapper;
 import widesim.message.*;
+import widesim.network.MatrixRouter;
+import widesim.network.Router;
 import widesim.provision.VmProvisioner;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterBroker;
@@ -14,7 +18,6 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
-import org.cloudbus.cloudsim.lists.VmList;
 import org.jgrapht.alg.util.Pair;
 
 import java.util.*;
@@ -31,7 +34,9 @@ public class FogBroker extends DatacenterBroker {
     private final long downLinkBw;
     private final long upLinkBw;
 
-    private final HashMap<Pair<Integer, Integer>, Integer> routingTable;
+    // routes between the fog devices, and a view of them as a routing table for the task mappers
+    private final Router router;
+    private final Map<Pair<Integer, Integer>, Integer> routingTable;
 
     // variables for vm management
     private final VmProvisioner vmProvisioner;
@@ -45,19 +50,59 @@ public class FogBroker extends DatacenterBroker {
     private final Map<Integer, Task> tasks;
     private final List<Task> waitingTaskQueue;
     private final TaskToVmMapper taskToVmMapper;
+    // changes since the previous mapping, only recorded for an incremental mapper
+    private final List<Task> newlyQueuedTasks;
+    private final List<Task> newlyDispatchedTasks;
+    private boolean vmsChanged;
     private final Set<Task> dispatchedTasks;
+    // parent taskId -> dispatched children of the task, in the order they were dispatched
+    private final Map<Integer, Set<Task>> dispatchedChildren;
     private final Set<Task> completedTasks;
 
     private Map<Integer, Integer> vmToFogDevice;
     private List<Vm> createdVms;
+    private final VmRegistry vmRegistry;
     private List<Integer> toBeCreated;
     private final Map<Integer, Integer> taskToVm;
 
     private final int maximumCycle = 0;
 
+    // fog devices the input data of the root tasks is staged in from, none for a fixed delay
+    private final List<Integer> stageInSourceIds;
+
+    // whether the output of a task is sent once to each fog device hosting its children
+    private boolean multicastStageOut;
+
+    // whether the tasks received at the current time are dispatched together once they are all in
+    private boolean dispatchScheduled;
+
+    // (taskId, cycle) -> fog device -> files of the output already sent to the fog device, until all
+    // the children of the task are dispatched or the cycle is finished
+    private final Map<Pair<Integer, Integer>, Map<Integer, Set<String>>> stagedOutFiles;
+
+    // cycles up to this one are finished: the fog devices drop their data once no task waits for
+    // it, so the output of the tasks on these cycles is always sent again
+    private int finishedCycle;
+
+    // fog device -> messages sent to the fog device while processing the current event
+    private final Map<Integer, BatchMsg> batches;
+
     public FogBroker(String name, VmProvisioner vmProvisioner, VmToFogDeviceMapper vmToFogDeviceMapper,
                      TaskToVmMapper taskToVmMapper, long downLinkBw, long upLinkBw,
-                     HashMap<Pair<Integer, Integer>, Integer> routingTable, List<FogDevice> fogDevices) throws Exception {
+                     Router router, List<FogDevice> fogDevices) throws Exception {
+        this(name, vmProvisioner, vmToFogDeviceMapper, taskToVmMapper, downLinkBw, upLinkBw, router, router.asRoutingTable(), fogDevices);
+    }
+
+    public FogBroker(String name, VmProvisioner vmProvisioner, VmToFogDeviceMapper vmToFogDeviceMapper,
+                     TaskToVmMapper taskToVmMapper, long downLinkBw, long upLinkBw,
+                     Map<Pair<Integer, Integer>, Integer> routingTable, List<FogDevice> fogDevices) throws Exception {
+        this(name, vmProvisioner, vmToFogDeviceMapper, taskToVmMapper, downLinkBw, upLinkBw,
+                MatrixRouter.of(fogDevices.stream().mapToInt(FogDevice::getId).toArray(), routingTable), routingTable, fogDevices);
+    }
+
+    private FogBroker(String name, VmProvisioner vmProvisioner, VmToFogDeviceMapper vmToFogDeviceMapper,
+                      TaskToVmMapper taskToVmMapper, long downLinkBw, long upLinkBw,
+                      Router router, Map<Pair<Integer, Integer>, Integer> routingTable, List<FogDevice> fogDevices) throws Exception {
         super(name);
 
         this.waitingTaskQueue = new ArrayList<>();
@@ -73,19 +118,31 @@ public class FogBroker extends DatacenterBroker {
         this.vmDestroyAcks = new HashSet<>();
         this.createdVms = new ArrayList<>();
         this.failedVms = new ArrayList<>();
+        this.vmRegistry = new VmRegistry();
         this.toBeCreated = new ArrayList<>();
 
         this.tasks = new HashMap<>();
         this.taskToVmMapper = taskToVmMapper;
+        this.newlyQueuedTasks = new ArrayList<>();
+        this.newlyDispatchedTasks = new ArrayList<>();
+        this.vmsChanged = true;
         this.taskToVm = new HashMap<>();
         this.vmToFogDevice = new HashMap<>();
-        this.dispatchedTasks = new HashSet<>();
-        this.completedTasks = new HashSet<>();
+        this.dispatchedTasks = new LinkedHashSet<>();
+        this.dispatchedChildren = new HashMap<>();
+        this.completedTasks = new LinkedHashSet<>();
 
         this.upLinkBw = upLinkBw;
         this.downLinkBw = downLinkBw;
 
+        this.router = router;
         this.routingTable = routingTable;
+
+        this.stagedOutFiles = new HashMap<>();
+        this.finishedCycle = -1;
+        this.batches = new LinkedHashMap<>();
+
+        this.stageInSourceIds = fogDevices.stream().filter(FogDevice::isDataSource).map(FogDevice::getId).toList();
     }
 
     @Override
@@ -102,6 +159,7 @@ public class FogBroker extends DatacenterBroker {
         switch (event.getTag()) {
             case Constants.MsgTag.INIT -> init();
             case Constants.MsgTag.INCOMING_TASK -> processIncomingTask(event);
+            case Constants.MsgTag.DISPATCH_TASKS -> processDispatchTasks();
             case Constants.MsgTag.RESOURCE_REQUEST_RESPONSE -> processResourceRequestResponse(event);
             case Constants.MsgTag.VM_CREATE_ACK -> processVmCreateAck(event);
             case Constants.MsgTag.VM_DESTROY_ACK -> processVmDestroyAck(event);
@@ -109,6 +167,8 @@ public class FogBroker extends DatacenterBroker {
             case CloudSimTags.CLOUDLET_RETURN -> processTaskIsDone(event);
             default -> super.processEvent(event);
         }
+
+        sendBatches();
     }
 
     @Override
@@ -119,10 +179,10 @@ public class FogBroker extends DatacenterBroker {
     protected void init() {
         log("Requesting for fog devices characteristics...");
 
-        this.fogDeviceIds.addAll(CloudSim.getCloudResourceList());
+        this.fogDeviceIds.addAll(FogDevice.fogDeviceIds());
 
         for (Integer fogDeviceId : this.fogDeviceIds) {
-            sendNow(fogDeviceId, Constants.MsgTag.RESOURCE_REQUEST);
+            post(fogDeviceId, Constants.MsgTag.RESOURCE_REQUEST, null);
         }
     }
 
@@ -133,14 +193,30 @@ public class FogBroker extends DatacenterBroker {
         task.setUserId(getId());
         task.getTaskState().setEnterBrokerWaitingQueue(task.getCycle(), CloudSim.clock());
         this.waitingTaskQueue.add(task);
+        if (this.taskToVmMapper instanceof IncrementalTaskToVmMapper)
+            this.newlyQueuedTasks.add(task);
         this.tasks.put(task.getTaskId(), task);
 
         log("Task(%s) of Workflow(%s) received", task.getTaskId(), task.getWorkflowId());
 
         // Wait for vms to get created, Then dispatch each incoming task
         // Otherwise tasks will be dispatched after every vm is created(or failed to be created)
-        if (this.vmCreateAcks.containsAll(this.sentVmCreateRequests))
+        if (!this.vmCreateAcks.containsAll(this.sentVmCreateRequests))
+            return;
+
+        // The workflow engine releases the children of a task one by one. They are dispatched
+        // together, so that the output of the task is multicast to all of them
+        if (!multicastStageOut) {
             dispatchTasks();
+        } else if (!dispatchScheduled) {
+            dispatchScheduled = true;
+            schedule(getId(), 0, Constants.MsgTag.DISPATCH_TASKS);
+        }
+    }
+
+    protected void processDispatchTasks() {
+        dispatchScheduled = false;
+        dispatchTasks();
     }
 
     protected void processResourceRequestResponse(SimEvent event) {
@@ -157,10 +233,10 @@ public class FogBroker extends DatacenterBroker {
             for (Integer vmId : this.vmToFogDevice.keySet()) {
                 var fogDeviceId = this.vmToFogDevice.get(vmId);
 
-                sendNow(
+                post(
                         fogDeviceId, // send message to fog device
                         Constants.MsgTag.VM_CREATE, // tell fog device to create a vm
-                        new VmCreateMsg(VmList.getById(this.getVmList(), vmId)) // vm
+                        new VmCreateMsg(this.vmRegistry.get(vmId)) // vm
                 );
 
                 this.sentVmCreateRequests.add(vmId);
@@ -174,11 +250,15 @@ public class FogBroker extends DatacenterBroker {
         boolean isCreated = ackMsg.isCreated;
 
         this.vmCreateAcks.add(vmId);
-
-        if (isCreated)
-            this.createdVms.add(VmList.getById(this.getVmList(), vmId));
-        else
-            this.failedVms.add(VmList.getById(this.getVmList(), vmId));
+        this.vmsChanged = true;
+
+        if (isCreated) {
+            this.createdVms.add(this.vmRegistry.get(vmId));
+            this.vmRegistry.setCreated(vmId);
+        } else {
+            this.failedVms.add(this.vmRegistry.get(vmId));
+            this.vmRegistry.setFailed(vmId);
+        }
 
         // if all fog devices responded to vm creation requests, dispatch cloudlets
         if (this.vmCreateAcks.containsAll(this.sentVmCreateRequests)) {
@@ -207,10 +287,10 @@ public class FogBroker extends DatacenterBroker {
             for (int vmId : this.toBeCreated) {
                 var fogDeviceId = this.vmToFogDevice.get(vmId);
 
-                sendNow(
+                post(
                         this.vmToFogDevice.get(vmId), // fog device containing the vm
                         Constants.MsgTag.VM_CREATE, // tell the fog device to create the vm
-                        new VmCreateMsg(VmList.getById(getVmList(), vmId))
+                        new VmCreateMsg(this.vmRegistry.get(vmId))
                 );
                 this.sentVmCreateRequests.add(fogDeviceId);
             }
@@ -239,13 +319,15 @@ public class FogBroker extends DatacenterBroker {
         log("Task(%s) on Cycle(%s) decided to generate data: %s", task.getTaskId(), task.getCycle() - 1, isData);
 
         // Ask fog device hosting the task to send output of the task to its child tasks.
-        for (Task child : dispatchedTasks.stream().filter(t -> t.getParents().contains(taskId)).collect(Collectors.toList())) {
+        if (multicastStageOut) {
+            multicastStageOut(taskId, task.getCycle() - 1, isData, neededFilesOfChildren(task));
+        } else for (Task child : dispatchedChildrenOf(taskId)) {
             int vmId = taskToVm.get(child.getTaskId());
             int fogDeviceId = vmToFogDevice.get(vmId);
 
             List<String> fileNames = child.neededFrom(task.getTaskId());
             log("Sending STAGE_OUT_MSG to FogDevice(%s) for Task(%s) on Cycle(%s): (%s)", event.getSource(), task.getTaskId(), task.getCycle() - 1, isData);
-            sendNow(
+            post(
                     event.getSource(),
                     Constants.MsgTag.STAGE_OUT_DATA,
                     new StageOutDataMsg(task.getTaskId(), task.getCycle() - 1, fogDeviceId, isData, fileNames)
@@ -253,6 +335,9 @@ public class FogBroker extends DatacenterBroker {
         }
 
         if (task.getCycle() <= maximumCycle) {
+            // A task has started a new cycle, so the previous ones are finished
+            finishCycle(task.getCycle() - 1);
+
             // Ask fog devices hosting parent tasks to send their output to fog device hosting this task
             for (int parentId : task.getParents()) {
                 int fogDeviceId = this.vmToFogDevice.get(this.taskToVm.get(parentId));
@@ -260,7 +345,7 @@ public class FogBroker extends DatacenterBroker {
                 List<String> neededFiles = task.neededFrom(parentId);
                 if (parentTask.didYouGenerateData(task.getCycle()) != null) {
                     log("Sending STAGE_OUT_MSG to FogDevice(%s) for Task(%s) on Cycle(%s): (%s)", fogDeviceId, parentId, task.getCycle(), parentTask.didYouGenerateData(task.getCycle()));
-                    sendNow(
+                    post(
                             fogDeviceId,
                             Constants.MsgTag.STAGE_OUT_DATA,
                             new StageOutDataMsg(parentId, task.getCycle(), event.getSource(), parentTask.didYouGenerateData(task.getCycle()), neededFiles)
@@ -275,7 +360,7 @@ public class FogBroker extends DatacenterBroker {
             if (!task.getParents().isEmpty()) {
                 log("Asking FogDevice(%s) to execute Task(%s) on Cycle(%s)", event.getSource(), task.getTaskId(), task.getCycle());
                 task.getTaskState().setExitBrokerWaitingQueue(task.getCycle(), CloudSim.clock());
-                sendNow(
+                post(
                         event.getSource(),
                         Constants.MsgTag.EXECUTE_TASK,
                         new ExecuteTaskMsg(task, task.getVmId())
@@ -317,7 +402,7 @@ public class FogBroker extends DatacenterBroker {
             for (int vmId : toBeDestroyed) {
                 var fogDeviceId = this.vmToFogDevice.get(vmId);
 
-                sendNow(
+                post(
                         fogDeviceId, // fog device containing the vm
                         Constants.MsgTag.VM_DESTROY, // tell the fog device to destroy the vm
                         new VmDestroyMsg(vmId)
@@ -334,10 +419,10 @@ public class FogBroker extends DatacenterBroker {
                 for (int vmId : this.toBeCreated) {
                     var fogDeviceId = this.vmToFogDevice.get(vmId);
 
-                    sendNow(
+                    post(
                             this.vmToFogDevice.get(vmId), // fog device containing the vm
                             Constants.MsgTag.VM_CREATE, // tell the fog device to create the vm
-                            new VmCreateMsg(VmList.getById(getVmList(), vmId))
+                            new VmCreateMsg(this.vmRegistry.get(vmId))
                     );
                     this.sentVmCreateRequests.add(fogDeviceId);
                 }
@@ -345,9 +430,12 @@ public class FogBroker extends DatacenterBroker {
 
             this.createdVms.clear();
             this.failedVms.clear();
+            this.vmRegistry.clearStates();
 
             // Add stayAlive vms to createdVms because they are already created
-            this.createdVms = stayAlive.stream().map(vmId -> (Vm) VmList.getById(this.getVmList(), vmId)).collect(Collectors.toList());
+            this.createdVms = stayAlive.stream().map(vmId -> (Vm) this.vmRegistry.get(vmId)).collect(Collectors.toList());
+            stayAlive.forEach(this.vmRegistry::setCreated);
+            this.vmsChanged = true;
 
             // If there is no vm to create either just execute the tasks
             if (this.sentVmCreateRequests.isEmpty()) {
@@ -361,24 +449,44 @@ public class FogBroker extends DatacenterBroker {
     private void dispatchTasks() {
         log("Dispatching tasks...");
         // map each task in task queue to a vm(either a created or failed one)
-        var newTaskToVm = this.taskToVmMapper.map(
-                this.createdVms,
-                this.failedVms,
-                this.waitingTaskQueue,
-                this.completedTasks,
-                this.dispatchedTasks,
-                this.taskToVm,
-                routingTable,
-                vmToFogDevice
-        );
+        Map<Integer, Integer> newTaskToVm;
+        if (this.taskToVmMapper instanceof IncrementalTaskToVmMapper incrementalMapper) {
+            newTaskToVm = incrementalMapper.map(new MappingDelta(
+                    new ArrayList<>(this.newlyQueuedTasks),
+                    new ArrayList<>(this.newlyDispatchedTasks),
+                    this.vmsChanged,
+                    this.createdVms,
+                    this.failedVms,
+                    routingTable,
+                    vmToFogDevice
+            ));
+
+            this.newlyQueuedTasks.clear();
+            this.newlyDispatchedTasks.clear();
+            this.vmsChanged = false;
+        } else {
+            newTaskToVm = this.taskToVmMapper.map(
+                    this.createdVms,
+                    this.failedVms,
+                    this.waitingTaskQueue,
+                    this.completedTasks,
+                    this.dispatchedTasks,
+                    this.taskToVm,
+                    routingTable,
+                    vmToFogDevice
+            );
+        }
 
         // merge new mapping with the old one
         this.taskToVm.putAll(newTaskToVm);
 
-        for (int taskId : this.taskToVm.keySet()) {
-            this.tasks.get(taskId).setVmId(this.taskToVm.get(taskId));
+        for (var entry : newTaskToVm.entrySet()) {
+            this.tasks.get(entry.getKey()).setVmId(entry.getValue());
         }
 
+        // (parentId, cycle) -> files needed by each fog device, when the stage outs are multicast
+        Map<Pair<Integer, Integer>, Map<Integer, Set<String>>> stageOuts = new LinkedHashMap<>();
+
         for (Iterator<Task> it = this.waitingTaskQueue.iterator(); it.hasNext(); ) {
             Task task = it.next();
 
@@ -387,16 +495,21 @@ public class FogBroker extends DatacenterBroker {
 
             // if vm is successfully created, and all parent tasks are complete,
             // dispatch the task the to fog device which contains the vm
-            if (this.createdVms.stream().anyMatch(vm -> vm.getId() == mappedVmId)) {
+            if (mappedVmId != null && this.vmRegistry.isCreated(mappedVmId)) {
                 int dstFogDeviceId = this.vmToFogDevice.get(mappedVmId);
 
                 // inform fog devices containing parent tasks to send output of parent tasks to the fog device containing the child task
                 for (int parentId : task.getParents()) {
+                    if (multicastStageOut) {
+                        addNeededFiles(stageOuts.computeIfAbsent(Pair.of(parentId, task.getCycle()), k -> new LinkedHashMap<>()), task, parentId);
+                        continue;
+                    }
+
                     int fogDeviceId = this.vmToFogDevice.get(this.taskToVm.get(parentId));
                     Task parentTask = tasks.get(parentId);
                     log("Sending STAGE_OUT_MSG to FogDevice(%s) for Task(%s) on Cycle(%s)", fogDeviceId, parentId, task.getCycle());
                     List<String> neededFiles = task.neededFrom(parentId);
-                    sendNow(
+                    post(
                             fogDeviceId,
                             Constants.MsgTag.STAGE_OUT_DATA,
                             new StageOutDataMsg(parentId, task.getCycle(), dstFogDeviceId, parentTask.didYouGenerateData(task.getCycle()), neededFiles)
@@ -404,7 +517,15 @@ public class FogBroker extends DatacenterBroker {
                 }
 
                 // if task does not have any parent, its data must be stage in
-                if (task.isRoot()) {
+                if (task.isRoot() && !stageInSourceIds.isEmpty()) {
+                    int stageInSourceId = nearestStageInSource(dstFogDeviceId);
+                    log("Sending STAGE_IN_MSG to FogDevice(%s) for Task(%s) to FogDevice(%s)", stageInSourceId, task.getTaskId(), dstFogDeviceId);
+                    post(
+                            stageInSourceId,
+                            Constants.MsgTag.STAGE_IN_DATA,
+                            new StageInDataMsg(new ExecuteTaskMsg(task, mappedVmId), dstFogDeviceId, task.getTotalInputDataSize())
+                    );
+                } else if (task.isRoot()) {
 //                    double delay = (double) task.getTotalInputDataSize() / this.upLinkBw;
                     double delay = 0.11;
                     log("Sending STAGE_IN data for Task(%s) to FogDevice(%s) with delay: %.2f", task.getTaskId(), dstFogDeviceId, delay);
@@ -416,7 +537,7 @@ public class FogBroker extends DatacenterBroker {
                     );
                 } else {
                     log("Asking FogDevice(%s) to execute Task(%s) on Cycle(%s)", dstFogDeviceId, task.getTaskId(), task.getCycle());
-                    sendNow(
+                    post(
                             dstFogDeviceId, // fog device containing the vm
                             Constants.MsgTag.EXECUTE_TASK, // tell fog device to execute the task
                             new ExecuteTaskMsg(task, mappedVmId) // send task with its corresponding vm
@@ -424,12 +545,50 @@ public class FogBroker extends DatacenterBroker {
                 }
 
                 this.dispatchedTasks.add(task);
+                if (this.taskToVmMapper instanceof IncrementalTaskToVmMapper)
+                    this.newlyDispatchedTasks.add(task);
+                for (int parentId : task.getParents())
+                    this.dispatchedChildren.computeIfAbsent(parentId, k -> new LinkedHashSet<>()).add(task);
 
                 // remove dispatched task from waiting queue
                 task.getTaskState().setExitBrokerWaitingQueue(task.getCycle(), CloudSim.clock());
                 it.remove();
             }
         }
+
+        // Each parent sends its output once to all the fog devices hosting the dispatched children
+        for (var entry : stageOuts.entrySet()) {
+            int parentId = entry.getKey().getFirst();
+            int cycle = entry.getKey().getSecond();
+            multicastStageOut(parentId, cycle, tasks.get(parentId).didYouGenerateData(cycle), entry.getValue());
+        }
+    }
+
+    // Messages to a fog device are held until the event is processed, and then sent together
+    private void post(int fogDeviceId, int tag, Object data) {
+        batches.computeIfAbsent(fogDeviceId, k -> new BatchMsg()).add(tag, data);
+    }
+
+    private void sendBatches() {
+        for (var entry : batches.entrySet()) {
+            BatchMsg batchMsg = entry.getValue();
+            if (batchMsg.size() == 1)
+                sendNow(entry.getKey(), batchMsg.getTag(0), batchMsg.getMessage(0));
+            else
+                sendNow(entry.getKey(), Constants.MsgTag.BATCH, batchMsg);
+        }
+
+        batches.clear();
+    }
+
+    @Override
+    public void submitVmList(List<? extends Vm> list) {
+        super.submitVmList(list);
+        list.forEach(this.vmRegistry::add);
+    }
+
+    public VmRegistry getVmRegistry() {
+        return vmRegistry;
     }
 
     @Override
@@ -437,6 +596,117 @@ public class FogBroker extends DatacenterBroker {
         return (List<T>) new ArrayList<>(this.completedTasks);
     }
 
+    // Files needed by each fog device hosting a dispatched child of a task
+    private Map<Integer, Set<String>> neededFilesOfChildren(Task task) {
+        Map<Integer, Set<String>> neededFilesByDst = new LinkedHashMap<>();
+        for (Task child : dispatchedChildrenOf(task.getTaskId()))
+            addNeededFiles(neededFilesByDst, child, task.getTaskId());
+
+        return neededFilesByDst;
+    }
+
+    // The data source with the fewest hops to the fog device, the first one on a tie or if none has a route
+    private int nearestStageInSource(int dstFogDeviceId) {
+        int nearestId = stageInSourceIds.get(0);
+        int nearestHops = Integer.MAX_VALUE;
+
+        for (int sourceId : stageInSourceIds) {
+            int hops = hopCount(sourceId, dstFogDeviceId);
+            if (hops < nearestHops) {
+                nearestId = sourceId;
+                nearestHops = hops;
+            }
+        }
+
+        return nearestId;
+    }
+
+    // Number of hops of the route between two fog devices, Integer.MAX_VALUE if there is no route
+    private int hopCount(int srcFogDeviceId, int dstFogDeviceId) {
+        int hops = 0;
+        for (int fogDeviceId = srcFogDeviceId; fogDeviceId != dstFogDeviceId; hops++) {
+            int nextHopId = router.nextHop(fogDeviceId, dstFogDeviceId);
+            if (nextHopId == -1 || hops >= fogDevices.size())
+                return Integer.MAX_VALUE;
+
+            fogDeviceId = nextHopId;
+        }
+
+        return hops;
+    }
+
+    private Set<Task> dispatchedChildrenOf(int taskId) {
+        return dispatchedChildren.getOrDefault(taskId, Set.of());
+    }
+
+    private void addNeededFiles(Map<Integer, Set<String>> neededFilesByDst, Task child, int parentId) {
+        int fogDeviceId = vmToFogDevice.get(taskToVm.get(child.getTaskId()));
+        Set<String> neededFiles = neededFilesByDst.computeIfAbsent(fogDeviceId, k -> new LinkedHashSet<>());
+        if (child.neededFrom(parentId) != null)
+            neededFiles.addAll(child.neededFrom(parentId));
+    }
+
+    // Asks the fog device hosting a task to send its output of a cycle once to all the given fog
+    // devices, leaving out the files they have already been sent
+    private void multicastStageOut(int taskId, int cycle, boolean isData, Map<Integer, Set<String>> neededFilesByDst) {
+        // The fog devices may have dropped the data of a finished cycle
+        Map<Integer, Set<String>> stagedFiles = cycle <= finishedCycle ? new HashMap<>() : stagedOutFiles.computeIfAbsent(Pair.of(taskId, cycle), k -> new HashMap<>());
+
+        // Once all the children are dispatched, no other child needs the output
+        if (dispatchedChildrenOf(taskId).size() >= tasks.get(taskId).getChildren().size())
+            stagedOutFiles.remove(Pair.of(taskId, cycle));
+
+        Map<Integer, Set<String>> missingFilesByDst = new LinkedHashMap<>();
+        for (var entry : neededFilesByDst.entrySet()) {
+            Set<String> missingFiles = new LinkedHashSet<>(entry.getValue());
+
+            // a fog device is sent the data once, then only the files it does not have yet
+            Set<String> sentFiles = stagedFiles.get(entry.getKey());
+            if (sentFiles == null) {
+                stagedFiles.put(entry.getKey(), new HashSet<>(missingFiles));
+                missingFilesByDst.put(entry.getKey(), missingFiles);
+            } else {
+                missingFiles.removeAll(sentFiles);
+                if (!missingFiles.isEmpty()) {
+                    sentFiles.addAll(missingFiles);
+                    missingFilesByDst.put(entry.getKey(), missingFiles);
+                }
+            }
+        }
+
+        if (missingFilesByDst.isEmpty())
+            return;
+
+        int fogDeviceId = vmToFogDevice.get(taskToVm.get(taskId));
+        log("Sending STAGE_OUT_MSG to FogDevice(%s) for Task(%s) on Cycle(%s) to FogDevices(%s): (%s)", fogDeviceId, taskId, cycle, missingFilesByDst.keySet(), isData);
+        post(
+                fogDeviceId,
+                Constants.MsgTag.STAGE_OUT_DATA,
+                new StageOutDataMsg(taskId, cycle, isData, missingFilesByDst)
+        );
+    }
+
+    // Tells the fog devices they can drop the data of the cycles up to this one
+    private void finishCycle(int cycle) {
+        if (cycle <= finishedCycle)
+            return;
+
+        finishedCycle = cycle;
+        stagedOutFiles.keySet().removeIf(key -> key.getSecond() <= cycle);
+
+        log("Cycle(%s) is finished", cycle);
+        for (int fogDeviceId : fogDeviceIds)
+            post(fogDeviceId, Constants.MsgTag.CYCLE_IS_FINISHED, cycle);
+    }
+
+    public void setMulticastStageOut(boolean multicastStageOut) {
+        this.multicastStageOut = multicastStageOut;
+    }
+
+    public boolean isMulticastStageOut() {
+        return multicastStageOut;
+    }
+
     public void setWorkflowEngineId(int workflowEngineId) {
         this.workflowEngineId = workflowEngineId;
     }
@@ -449,6 +719,20 @@ public class FogBroker extends DatacenterBroker {
         return maximumCycle;
     }
 
+    // changes recorded since the previous mapping
+    int getNumOfRecordedChanges() {
+        return newlyQueuedTasks.size() + newlyDispatchedTasks.size();
+    }
+
+    Set<Task> getDispatchedChildren(int taskId) {
+        return dispatchedChildrenOf(taskId);
+    }
+
+    // outputs whose files already sent to each fog device are remembered
+    int getNumOfStagedOutputs() {
+        return stagedOutFiles.size();
+    }
+
     private void log(String formatted, Object... args) {
         String tag = String.format("FogBroker(%s)", getId());
 
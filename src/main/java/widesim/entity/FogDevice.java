@@ -2,39 +2,68 @@ package widesim.entity;
 
 import widesim.computation.Task;
 import widesim.core.Constants;
+import widesim.core.Enums.FileCachePolicyEnum;
+import widesim.core.Enums.LinkModelEnum;
+import widesim.core.Enums.TransferModeEnum;
 import widesim.core.Logger;
 import widesim.message.*;
+import widesim.network.Link;
+import widesim.network.Router;
+import widesim.storage.FileCache;
+import widesim.storage.FileKey;
 import org.cloudbus.cloudsim.*;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.jgrapht.alg.util.Pair;
 
+import java.io.Serializable;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class FogDevice extends Datacenter {
-    private boolean isUpLinkBusy;
-    private boolean isDownLinkBusy;
+    private final LinkModelEnum linkModel;
 
-    private final ArrayDeque<NetworkRequest> downLinkQueue;
-    private final ArrayDeque<NetworkRequest> upLinkQueue;
+    private final Link upLink;
+    private final Link downLink;
+
+    // channel to the storage, shared by the input data written to it
+    private final Link storageLink;
+
+    // links to the neighbors with their own bandwidth or latency, the others sharing the up link
+    private final HashMap<String, Link> neighborLinks;
+    private final HashMap<Integer, Link> neighborLinksById;
 
-    private final long upLinkBw;
     private final long downLinkBw;
 
+    private final TransferModeEnum transferMode;
+
+    // names and ids of the other devices, and the ones with a file cache, from the shared directory
+    // or else from their broadcasts
+    private DeviceDirectory directory;
     private final HashMap<String, Integer> nameToId;
     private final HashMap<Integer, String> idToName;
+    private final HashSet<Integer> fileCacheIds;
+
+    private Router router;
 
-    private final HashMap<String, String> routingTable;
+    // files received from the other devices, null when they are not cached
+    private FileCache fileCache;
+
+    // whether the input data of the root tasks is staged in from this device
+    private boolean dataSource;
 
     private final List<String> neighbors;
 
     private final Map<Integer, Task> tasks;
-    private final List<Integer> waitingTasks;
+    private final WaitingTasks waitingTasks;
+
+    // parents whose data was received, by cycle
+    private final ReceivedData receivedData;
 
-    // cycle -> (taskId, isData)
-    private final HashMap<Integer, HashSet<Pair<Integer, Boolean>>> receivedData;
+    // (source, transfer) -> pipelined transfer going through this device, until its tail arrives
+    private final Map<Pair<Integer, Integer>, PipelinedTransfer> pipelinedTransfers;
+    private int nextTransferId;
 
     public FogDevice(String name,
                      DatacenterCharacteristics characteristics,
@@ -44,32 +73,53 @@ public class FogDevice extends Datacenter {
                      List<String> neighbors,
                      long upLinkBw,
                      long downLinkBw) throws Exception {
+        this(name, characteristics, vmAllocationPolicy, storageList, schedulingInterval, neighbors, upLinkBw, downLinkBw,
+                0, LinkModelEnum.FIFO, TransferModeEnum.STORE_AND_FORWARD);
+    }
+
+    public FogDevice(String name,
+                     DatacenterCharacteristics characteristics,
+                     VmAllocationPolicy vmAllocationPolicy,
+                     List<Storage> storageList,
+                     double schedulingInterval,
+                     List<String> neighbors,
+                     long upLinkBw,
+                     long downLinkBw,
+                     double upLinkLatency,
+                     LinkModelEnum linkModel,
+                     TransferModeEnum transferMode) throws Exception {
         super(name, characteristics, vmAllocationPolicy, storageList, schedulingInterval);
 
         this.neighbors = neighbors;
-        this.routingTable = new HashMap<>();
 
         this.nameToId = new HashMap<>();
         this.idToName = new HashMap<>();
+        this.fileCacheIds = new HashSet<>();
 
         this.tasks = new HashMap<>();
-        this.waitingTasks = new ArrayList<>();
-        this.receivedData = new HashMap<>();
+        this.waitingTasks = new WaitingTasks();
+        this.receivedData = new ReceivedData();
+        this.pipelinedTransfers = new HashMap<>();
 
-        this.upLinkBw = upLinkBw;
         this.downLinkBw = downLinkBw;
 
-        this.isUpLinkBusy = false;
-        this.isDownLinkBusy = false;
+        this.transferMode = transferMode;
 
-        this.upLinkQueue = new ArrayDeque<>();
-        this.downLinkQueue = new ArrayDeque<>();
+        this.linkModel = linkModel;
+        this.upLink = linkModel.newLink(getId(), upLinkBw, upLinkLatency, Constants.MsgTag.UP_LINK_IS_FREE);
+        this.downLink = linkModel.newLink(getId(), downLinkBw, 0, Constants.MsgTag.DOWN_LINK_IS_FREE);
+        this.storageLink = linkModel.newLink(getId(), storageTransferRate(), 0, Constants.MsgTag.STORAGE_IS_FREE);
+        this.neighborLinks = new HashMap<>();
+        this.neighborLinksById = new HashMap<>();
     }
 
     @Override
     public void startEntity() {
         log("Starting FogDevice(%s)...", getId());
 
+        for (var entry : neighborLinks.entrySet())
+            neighborLinksById.put(CloudSim.getEntityId(entry.getKey()), entry.getValue());
+
         // this resource should register to regional CIS.
         // However, if not specified, then register to system CIS (the
         // default CloudInformationService) entity.
@@ -101,63 +151,71 @@ public class FogDevice extends Datacenter {
             case Constants.MsgTag.DOWNLOADED_FOG_TO_FOG -> processDownloadedFogToFog(event);
             case Constants.MsgTag.DOWN_LINK_IS_FREE -> processDownLinkIsFree(event);
             case Constants.MsgTag.UP_LINK_IS_FREE -> processUpLinkIsFree(event);
+            case Constants.MsgTag.CHECK_FILE_CACHE -> processCheckFileCache(event);
+            case Constants.MsgTag.STAGE_IN_DATA -> processStageInData(event);
+            case Constants.MsgTag.STORAGE_IS_FREE -> processStorageIsFree(event);
+            case Constants.MsgTag.CYCLE_IS_FINISHED -> processCycleIsFinished(event);
+            case Constants.MsgTag.BATCH -> processBatch(event);
+            case Constants.MsgTag.PIPELINE_HEAD -> processPipelineHead(event);
+            case Constants.MsgTag.PIPELINE_TAIL -> processPipelineTail(event);
             default -> super.processEvent(event);
         }
     }
 
+    @Override
+    public void shutdownEntity() {
+        super.shutdownEntity();
+
+        if (fileCache != null)
+            log("File cache: Hits(%s) Misses(%s) Evictions(%s)", fileCache.getHits(), fileCache.getMisses(), fileCache.getEvictions());
+    }
+
+    protected void processBatch(SimEvent event) {
+        BatchMsg batchMsg = (BatchMsg) event.getData();
+
+        for (int i = 0; i < batchMsg.size(); i++)
+            processEvent(event.derive(batchMsg.getTag(i), batchMsg.getMessage(i)));
+    }
+
     protected void processDownLinkIsFree(SimEvent event) {
-        NetworkRequest request = downLinkQueue.poll();
-
-        if (request != null) {
-            send(
-                    request.dstEntityId,
-                    request.delay,
-                    request.tag,
-                    request.msg
-            );
+        downLink.processEvent(event, this::send);
+    }
 
-            send(
-                    getId(),
-                    request.delay,
-                    Constants.MsgTag.DOWN_LINK_IS_FREE
-            );
-        } else {
-            isDownLinkBusy = false;
-        }
+    protected void processStorageIsFree(SimEvent event) {
+        storageLink.processEvent(event, this::send);
     }
 
     protected void processUpLinkIsFree(SimEvent event) {
-        NetworkRequest request = upLinkQueue.poll();
-
-        if (request != null) {
-            send(
-                    request.dstEntityId,
-                    request.delay,
-                    request.tag,
-                    request.msg
-            );
-
-            send(
-                    getId(),
-                    request.delay,
-                    Constants.MsgTag.UP_LINK_IS_FREE
-            );
-        } else {
-            isUpLinkBusy = false;
-        }
+        // The event is for the up link or for one of the links to the neighbors
+        ((Link) event.getData()).processEvent(event, this::send);
     }
 
     protected void processInit() {
-        List<Integer> fogDeviceIds = CloudSim.getCloudResourceList();
+        // The devices sharing a directory already know each other
+        if (directory != null)
+            return;
+
+        List<Integer> fogDeviceIds = fogDeviceIds();
 
         // broadcast name and id of the fog device to other fog devices
         for (int fogDeviceId : fogDeviceIds) {
 
             if (fogDeviceId != getId())
-                sendNow(fogDeviceId, Constants.MsgTag.BROADCAST_ID, new BroadcastIdMsg(this.getName(), this.getId()));
+                sendNow(fogDeviceId, Constants.MsgTag.BROADCAST_ID, new BroadcastIdMsg(this.getName(), this.getId(), this.fileCache != null));
         }
     }
 
+    // The entity list does not change while the simulation runs, while the resource list of the
+    // information service may still be filling up concurrently, in another logical process or
+    // in another entity of the same clock tick. Fog devices register in id order, so both lists
+    // hold the same ids in the same order once the registrations are delivered.
+    static List<Integer> fogDeviceIds() {
+        return CloudSim.getEntityList().stream()
+                .filter(entity -> entity instanceof FogDevice)
+                .map(SimEntity::getId)
+                .toList();
+    }
+
     protected void processVmCreate(SimEvent event) {
         VmCreateMsg vmCreateMsg = (VmCreateMsg) event.getData();
 
@@ -188,6 +246,8 @@ public class FogDevice extends Datacenter {
 
         this.nameToId.put(broadcastMsg.getName(), broadcastMsg.getId());
         this.idToName.put(broadcastMsg.getId(), broadcastMsg.getName());
+        if (broadcastMsg.hasFileCache())
+            this.fileCacheIds.add(broadcastMsg.getId());
     }
 
     protected void processStageOutData(SimEvent event) {
@@ -195,14 +255,29 @@ public class FogDevice extends Datacenter {
 
         Task task = this.tasks.get(stageOutDataMsg.getTaskId());
 
+        if (stageOutDataMsg.isMulticast()) {
+            processMulticastStageOut(stageOutDataMsg, task);
+            return;
+        }
+
         if (stageOutDataMsg.getNeededFiles() == null) {
-            System.out.println(">>>> Needed files is empty! for task: " + task.getTaskId());
+            Log.printLine(">>>> Needed files is empty! for task: " + task.getTaskId());
         }
         long aggregatedOutputSize = 0;
         if (stageOutDataMsg.getNeededFiles() != null) {
             aggregatedOutputSize = stageOutDataMsg.getNeededFiles().stream().mapToLong(task::getFileSize).sum();
         }
 
+        // The files already cached by the destination are not sent again
+        if (stageOutDataMsg.getDstFogDeviceId() != this.getId() && stageOutDataMsg.isData() && stageOutDataMsg.getNeededFiles() != null
+                && hasFileCache(stageOutDataMsg.getDstFogDeviceId())) {
+            Map<Integer, Set<String>> neededFilesByDst = new LinkedHashMap<>();
+            neededFilesByDst.put(stageOutDataMsg.getDstFogDeviceId(), new LinkedHashSet<>(stageOutDataMsg.getNeededFiles()));
+
+            processMulticastStageOut(new StageOutDataMsg(stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle(), true, neededFilesByDst), task);
+            return;
+        }
+
         // If destination is this fog device
         if (stageOutDataMsg.getDstFogDeviceId() == this.getId()) {
             log("Received STAGE_OUT data of Task(%s) on Cycle(%s): (%s) and destination is a loop back: sending data instantly", stageOutDataMsg.getTaskId(),
@@ -223,15 +298,31 @@ public class FogDevice extends Datacenter {
         }
 
         // If destination is not this fog device, use routing table and send the message to next hop
-        String dstName = this.idToName.get(stageOutDataMsg.getDstFogDeviceId());
         log("Received STAGE_OUT data of Task(%s) on Cycle(%s) to FogDevice(%s)", stageOutDataMsg.getTaskId(), this.tasks.get(stageOutDataMsg.getTaskId()).getCycle(), stageOutDataMsg.getDstFogDeviceId());
 
-        String nextHopName = this.nextHop(dstName);
+        if (transferMode == TransferModeEnum.PIPELINED) {
+            log("Sending data of Task(%s) on Cycle(%s) through the route to FogDevice(%s)", stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle(), stageOutDataMsg.getDstFogDeviceId());
+
+            sendPipelined(
+                    stageOutDataMsg.getDstFogDeviceId(),
+                    stageOutDataMsg.isData() ? aggregatedOutputSize : 0,
+                    new FogToFogMsg(
+                            stageOutDataMsg.getDstFogDeviceId(),
+                            stageOutDataMsg.getTaskId(),
+                            stageOutDataMsg.getCycle(),
+                            task.getCloudletOutputSize(),
+                            stageOutDataMsg.isData()
+                    )
+            );
+
+            return;
+        }
+
+        int nextHopId = nextHop(stageOutDataMsg.getDstFogDeviceId());
 
-        int nextHopId = this.nameToId.get(nextHopName);
+        Link link = getLinkTo(nextHopId);
 
-        log("Sending data of Task(%s) on Cycle(%s) to FogDevice(%s) with Delay(%s)", stageOutDataMsg.getTaskId(), this.tasks.get(stageOutDataMsg.getTaskId()).getCycle(), nextHopId, stageOutDataMsg.isData() ? (double) aggregatedOutputSize / this.upLinkBw : 0);
-        double delay = stageOutDataMsg.isData() ? (double) aggregatedOutputSize / this.upLinkBw : 0;
+        log("Sending data of Task(%s) on Cycle(%s) to FogDevice(%s) with Delay(%s)", stageOutDataMsg.getTaskId(), this.tasks.get(stageOutDataMsg.getTaskId()).getCycle(), nextHopId, stageOutDataMsg.isData() ? (double) aggregatedOutputSize / link.getBandwidth() : 0);
         FogToFogMsg msg = new FogToFogMsg(
                 stageOutDataMsg.getDstFogDeviceId(),
                 stageOutDataMsg.getTaskId(),
@@ -240,149 +331,242 @@ public class FogDevice extends Datacenter {
                 stageOutDataMsg.isData()
         );
 
-        if (isUpLinkBusy) {
-            upLinkQueue.add(new NetworkRequest(
-                    nextHopId,
-                    delay,
-                    Constants.MsgTag.FOG_TO_FOG,
-                    msg
-            ));
-        } else {
-            isUpLinkBusy = true;
+        // Upload the data
+        link.transfer(
+                nextHopId,
+                stageOutDataMsg.isData() ? aggregatedOutputSize : 0,
+                Constants.MsgTag.FOG_TO_FOG,
+                msg,
+                this::send
+        );
+    }
 
-            // Upload the data
-            send(
-                    nextHopId,
-                    delay,
-                    Constants.MsgTag.FOG_TO_FOG,
-                    msg
-            );
+    // Sends the output of a task to several fog devices at once: each file goes once through the
+    // links shared by the routes to the destinations, the message being split where they diverge
+    private void processMulticastStageOut(StageOutDataMsg stageOutDataMsg, Task task) {
+        Map<Integer, Set<String>> neededFilesByDst = stageOutDataMsg.getNeededFilesByDst();
+
+        Map<String, Long> fileSizes = new HashMap<>();
+        for (Set<String> files : neededFilesByDst.values())
+            for (String file : files)
+                fileSizes.put(file, task.getFileSize(file));
+
+        // The destinations with a cache first leave out the files they already have
+        if (stageOutDataMsg.isData() && !stageOutDataMsg.isCacheChecked()) {
+            List<Integer> cachingFogDeviceIds = neededFilesByDst.keySet().stream().filter(id -> id != getId() && hasFileCache(id)).toList();
+            if (!cachingFogDeviceIds.isEmpty()) {
+                log("Checking the file caches of FogDevices(%s) for the data of Task(%s) on Cycle(%s)", cachingFogDeviceIds, stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle());
+                sendNow(
+                        cachingFogDeviceIds.get(0),
+                        Constants.MsgTag.CHECK_FILE_CACHE,
+                        new FileCacheCheckMsg(getId(), task.getWorkflowId(), stageOutDataMsg, fileSizes, cachingFogDeviceIds)
+                );
 
-            // Notify that uplink will be free after `delay` time has passed
-            send(
-                    getId(),
-                    delay,
-                    Constants.MsgTag.UP_LINK_IS_FREE
-            );
+                return;
+            }
         }
+
+        FogToFogMsg msg = new FogToFogMsg(task.getWorkflowId(), stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle(), stageOutDataMsg.isData(), neededFilesByDst, fileSizes);
+
+        if (neededFilesByDst.containsKey(getId())) {
+            log("Received STAGE_OUT data of Task(%s) on Cycle(%s): (%s) and destination is a loop back: sending data instantly", stageOutDataMsg.getTaskId(),
+                    stageOutDataMsg.getCycle(), stageOutDataMsg.isData());
+            sendNow(getId(), Constants.MsgTag.DOWNLOADED_FOG_TO_FOG, msg.forDestinations(List.of(getId())));
+        }
+
+        List<Integer> dstFogDeviceIds = neededFilesByDst.keySet().stream().filter(id -> id != getId()).toList();
+        if (dstFogDeviceIds.isEmpty())
+            return;
+
+        log("Received STAGE_OUT data of Task(%s) on Cycle(%s) to FogDevices(%s)", stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle(), dstFogDeviceIds);
+
+        if (transferMode == TransferModeEnum.PIPELINED) {
+            // The data streams to each destination at once, so there is no hop to share the data at
+            for (int dstFogDeviceId : dstFogDeviceIds) {
+                FogToFogMsg dstMsg = msg.forDestinations(List.of(dstFogDeviceId));
+                log("Sending data of Task(%s) on Cycle(%s) through the route to FogDevice(%s)", stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle(), dstFogDeviceId);
+
+                sendPipelined(dstFogDeviceId, dstMsg.isData() ? dstMsg.getData() : 0, dstMsg);
+            }
+
+            return;
+        }
+
+        sendMulticast(msg);
     }
 
-    protected void processFogToFog(SimEvent event) {
-        FogToFogMsg fogToFogMsg = (FogToFogMsg) event.getData();
+    // Leaves the cached files out of a stage out, then passes it to the next destination with a
+    // cache, or back to the source. A destination having all its files needs no transfer at all
+    protected void processCheckFileCache(SimEvent event) {
+        FileCacheCheckMsg checkMsg = (FileCacheCheckMsg) event.getData();
+        StageOutDataMsg stageOutDataMsg = checkMsg.getStageOutDataMsg();
 
-        log("Downloading data from fog device: %s", event.getSource());
+        Map<Integer, Set<String>> neededFilesByDst = new LinkedHashMap<>(stageOutDataMsg.getNeededFilesByDst());
+        Set<String> neededFiles = neededFilesByDst.get(getId());
 
-        double delay = fogToFogMsg.isData() ? (double) fogToFogMsg.getData() / this.downLinkBw : 0;
-        if (isDownLinkBusy) {
-            downLinkQueue.add(new NetworkRequest(
-               getId(),
-               delay,
-               Constants.MsgTag.DOWNLOADED_FOG_TO_FOG,
-               fogToFogMsg
-            ));
+        Set<String> missingFiles = new LinkedHashSet<>();
+        for (String file : neededFiles) {
+            if (!fileCache.lookup(new FileKey(checkMsg.getWorkflowId(), file), stageOutDataMsg.getTaskId(), checkMsg.getFileSizes().get(file)))
+                missingFiles.add(file);
+        }
+
+        if (!neededFiles.isEmpty() && missingFiles.isEmpty()) {
+            log("Found the data of Task(%s) on Cycle(%s) in the file cache", stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle());
+            neededFilesByDst.remove(getId());
+
+            receiveData(stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle(), true);
         } else {
-            isDownLinkBusy = true;
+            neededFilesByDst.put(getId(), missingFiles);
+        }
 
-            // Download the data
-            send(
-                    getId(),
-                    delay,
-                    Constants.MsgTag.DOWNLOADED_FOG_TO_FOG,
-                    fogToFogMsg
-            );
+        if (neededFilesByDst.isEmpty())
+            return;
 
-            // Notify that download link will be free after `delay` time has passed
-            send(
-                    getId(),
-                    delay,
-                    Constants.MsgTag.DOWN_LINK_IS_FREE
-            );
+        StageOutDataMsg checkedMsg = new StageOutDataMsg(stageOutDataMsg.getTaskId(), stageOutDataMsg.getCycle(), true, neededFilesByDst, true);
+
+        List<Integer> dstFogDeviceIds = new ArrayList<>(checkMsg.getDstFogDeviceIds().subList(1, checkMsg.getDstFogDeviceIds().size()));
+        if (dstFogDeviceIds.isEmpty())
+            sendNow(checkMsg.getSrcFogDeviceId(), Constants.MsgTag.STAGE_OUT_DATA, checkedMsg);
+        else
+            sendNow(dstFogDeviceIds.get(0), Constants.MsgTag.CHECK_FILE_CACHE, new FileCacheCheckMsg(checkMsg.getSrcFogDeviceId(), checkMsg.getWorkflowId(), checkedMsg, checkMsg.getFileSizes(), dstFogDeviceIds));
+    }
+
+    protected void processFogToFog(SimEvent event) {
+        if (event.getData() instanceof StageInDataMsg stageInDataMsg) {
+            log("Downloading STAGE_IN data of Task(%s) from fog device: %s", stageInDataMsg.getExecuteTaskMsg().getTask().getTaskId(), event.getSource());
+
+            downLink.transfer(getId(), stageInDataMsg.getSize(), Constants.MsgTag.DOWNLOADED_FOG_TO_FOG, stageInDataMsg, this::send);
+            return;
         }
+
+        FogToFogMsg fogToFogMsg = (FogToFogMsg) event.getData();
+
+        log("Downloading data from fog device: %s", event.getSource());
+
+        // Download the data
+        downLink.transfer(
+                getId(),
+                fogToFogMsg.isData() ? fogToFogMsg.getData() : 0,
+                Constants.MsgTag.DOWNLOADED_FOG_TO_FOG,
+                fogToFogMsg,
+                this::send
+        );
     }
 
     protected void processDownloadedFogToFog(SimEvent event) {
+        if (event.getData() instanceof StageInDataMsg stageInDataMsg) {
+            sendStageIn(stageInDataMsg);
+            return;
+        }
+
         FogToFogMsg fogToFogMsg = (FogToFogMsg) event.getData();
         log("Downloaded data of Task(%s) on Cycle(%s)", fogToFogMsg.getTaskId(), fogToFogMsg.getCycle());
 
-        if (this.getId() == fogToFogMsg.getDstFogDeviceId()) {
+        if (fogToFogMsg.isMulticast()) {
+            processDownloadedMulticast(fogToFogMsg);
+        } else if (this.getId() == fogToFogMsg.getDstFogDeviceId()) {
             log("Data is for me");
 
-            this.receivedData.computeIfAbsent(fogToFogMsg.getCycle(), k -> new HashSet<>());
+            receiveData(fogToFogMsg.getTaskId(), fogToFogMsg.getCycle(), fogToFogMsg.isData());
+        } else {
+            log("Data is not for me. relaying the message");
 
-            log("Updating received data with: Cycle(%s): Task(%s) -> %s", fogToFogMsg.getCycle(), fogToFogMsg.getTaskId(), fogToFogMsg.isData());
-            this.receivedData.get(fogToFogMsg.getCycle()).add(Pair.of(fogToFogMsg.getTaskId(), fogToFogMsg.isData()));
+            int nextHopId = nextHop(fogToFogMsg.getDstFogDeviceId());
 
-            // Iterate over waiting tasks and check if any of them can be executed
-            for (Iterator<Integer> it = waitingTasks.iterator(); it.hasNext(); ) {
-                int taskId = it.next();
+            getLinkTo(nextHopId).transfer(
+                    nextHopId,
+                    fogToFogMsg.getData(),
+                    Constants.MsgTag.FOG_TO_FOG,
+                    fogToFogMsg,
+                    this::send
+            );
+        }
+    }
 
-                Task task = this.tasks.get(taskId);
+    // Records the data of a parent task and executes the waiting tasks that got all their data
+    private void receiveData(int parentTaskId, int cycle, boolean isData) {
+        log("Updating received data with: Cycle(%s): Task(%s) -> %s", cycle, parentTaskId, isData);
+        this.receivedData.add(cycle, parentTaskId, isData);
 
-                // Create a list of (parentId, isData=true)
-                var idToTrue = task.getParents().stream().map(id -> Pair.of(id, true)).collect(Collectors.toList());
+        // Only the tasks waiting for the data of this parent may be executed now
+        for (int taskId : waitingTasks.removeDependents(parentTaskId, cycle)) {
+            Task task = this.tasks.get(taskId);
 
-                if (this.receivedData.get(task.getCycle()).containsAll(idToTrue)) {
-                    log("Found Task(%s) from Workflow(%s) that can be executed", task.getTaskId(), task.getWorkflowId());
+            if (isData && waitingTasks.received(taskId)) {
+                log("Found Task(%s) from Workflow(%s) that can be executed", task.getTaskId(), task.getWorkflowId());
+                this.receivedData.release(task.getTaskId(), task.getCycle());
 
-                    task.getTaskState().setStartExecutionTime(task.getCycle(), CloudSim.clock());
-                    sendNow(
-                            getId(),
-                            Constants.MsgTag.EXECUTE_TASK,
-                            new ExecuteTaskMsg(task, task.getVmId())
-                    );
-
-                    task.getTaskState().setExitFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
-                    it.remove();
-                } else if (this.receivedData.get(task.getCycle()).stream().anyMatch(pair -> task.getParents().contains(pair.getFirst()) && !pair.getSecond())) {
-                    log("One of parents of Task(%s) did not generate data on Cycle(%s). Sending back Task...", task.getTaskId(), task.getCycle());
-
-                    task.getCycleToGeneratedData().put(task.getCycle(), false);
-
-                    task.getTaskState().setStartExecutionTime(task.getCycle(), CloudSim.clock());
-                    sendNow(
-                            task.getUserId(),
-                            CloudSimTags.CLOUDLET_RETURN,
-                            task
-                    );
-
-                    task.getTaskState().setExitFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
-                    it.remove();
-                }
-            }
-        } else {
-            log("Data is not for me. relaying the message");
+                task.getTaskState().setStartExecutionTime(task.getCycle(), CloudSim.clock());
+                sendNow(
+                        getId(),
+                        Constants.MsgTag.EXECUTE_TASK,
+                        new ExecuteTaskMsg(task, task.getVmId())
+                );
 
-            String dstName = this.idToName.get(fogToFogMsg.getDstFogDeviceId());
+                task.getTaskState().setExitFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
+                waitingTasks.remove(task);
+            } else if (!isData) {
+                log("One of parents of Task(%s) did not generate data on Cycle(%s). Sending back Task...", task.getTaskId(), task.getCycle());
 
-            String nextHopName = this.nextHop(dstName);
+                task.getCycleToGeneratedData().put(task.getCycle(), false);
+                this.receivedData.release(task.getTaskId(), task.getCycle());
 
-            int nextHopId = this.nameToId.get(nextHopName);
+                task.getTaskState().setStartExecutionTime(task.getCycle(), CloudSim.clock());
+                sendNow(
+                        task.getUserId(),
+                        CloudSimTags.CLOUDLET_RETURN,
+                        task
+                );
 
-            double delay = (double) fogToFogMsg.getData() / this.upLinkBw;
+                task.getTaskState().setExitFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
+                waitingTasks.remove(task);
+            }
+        }
+    }
 
-            if (isUpLinkBusy) {
-                upLinkQueue.add(new NetworkRequest(
-                   nextHopId,
-                   delay,
-                   Constants.MsgTag.FOG_TO_FOG,
-                   fogToFogMsg
-                ));
-            } else {
-                isUpLinkBusy = true;
+    // The data of a multicast is used by this fog device if it is one of the destinations, and
+    // relayed once towards each next hop of the other destinations
+    private void processDownloadedMulticast(FogToFogMsg fogToFogMsg) {
+        Map<Integer, Set<String>> neededFilesByDst = fogToFogMsg.getNeededFilesByDst();
 
-                send(
-                        nextHopId,
-                        delay,
-                        Constants.MsgTag.FOG_TO_FOG,
-                        fogToFogMsg
-                );
+        if (neededFilesByDst.containsKey(getId())) {
+            log("Data is for me");
 
-                send(
-                        getId(),
-                        delay,
-                        Constants.MsgTag.UP_LINK_IS_FREE
-                );
+            if (fileCache != null && fogToFogMsg.isData()) {
+                for (String file : neededFilesByDst.get(getId()))
+                    fileCache.add(new FileKey(fogToFogMsg.getWorkflowId(), file), fogToFogMsg.getTaskId(), fogToFogMsg.getFileSizes().get(file));
             }
+
+            receiveData(fogToFogMsg.getTaskId(), fogToFogMsg.getCycle(), fogToFogMsg.isData());
+        }
+
+        if (neededFilesByDst.size() > (neededFilesByDst.containsKey(getId()) ? 1 : 0)) {
+            log("Data is for other fog devices too. relaying the message");
+
+            sendMulticast(fogToFogMsg);
+        }
+    }
+
+    // Sends a multicast once to each next hop, with the destinations reached through it
+    private void sendMulticast(FogToFogMsg fogToFogMsg) {
+        Map<Integer, List<Integer>> dstsByNextHop = new LinkedHashMap<>();
+        for (int dstFogDeviceId : fogToFogMsg.getNeededFilesByDst().keySet()) {
+            if (dstFogDeviceId != getId())
+                dstsByNextHop.computeIfAbsent(nextHop(dstFogDeviceId), k -> new ArrayList<>()).add(dstFogDeviceId);
+        }
+
+        for (var entry : dstsByNextHop.entrySet()) {
+            int nextHopId = entry.getKey();
+            FogToFogMsg msg = fogToFogMsg.forDestinations(entry.getValue());
+
+            log("Sending data of Task(%s) on Cycle(%s) to FogDevice(%s) for FogDevices(%s)", msg.getTaskId(), msg.getCycle(), nextHopId, entry.getValue());
+            getLinkTo(nextHopId).transfer(
+                    nextHopId,
+                    msg.isData() ? msg.getData() : 0,
+                    Constants.MsgTag.FOG_TO_FOG,
+                    msg,
+                    this::send
+            );
         }
     }
 
@@ -393,14 +577,13 @@ public class FogDevice extends Datacenter {
         log("Received execute msg for Task(%s) on Cycle(%s) from Workflow(%s) to run on Vm(%s)", task.getTaskId(), task.getCycle(), task.getWorkflowId(), executeTaskMsg.getVmId());
         this.tasks.put(task.getTaskId(), task);
 
-        this.receivedData.computeIfAbsent(task.getCycle(), k -> new HashSet<>());
-
-        var idToTrue = task.getParents().stream().map(id -> Pair.of(id, true)).collect(Collectors.toList());
+        this.receivedData.hold(task.getTaskId(), task.getCycle());
 
         task.getTaskState().setEnterFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
 
-        if (this.receivedData.get(task.getCycle()).containsAll(idToTrue)) {
+        if (this.receivedData.hasDataOfAll(task.getCycle(), task.getParents())) {
             log("All parent data for Task(%s) are received. task can execute", task.getTaskId());
+            this.receivedData.release(task.getTaskId(), task.getCycle());
 
             task.getTaskState().setStartExecutionTime(task.getCycle(), CloudSim.clock());
             sendNow(
@@ -410,11 +593,12 @@ public class FogDevice extends Datacenter {
             );
 
             task.getTaskState().setExitFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
-            this.waitingTasks.removeIf(taskId -> taskId == task.getTaskId());
-        } else if (this.receivedData.get(task.getCycle()).stream().anyMatch(pair -> task.getParents().contains(pair.getFirst()) && !pair.getSecond())) {
+            this.waitingTasks.remove(task);
+        } else if (this.receivedData.hasNoDataOfAny(task.getCycle(), task.getParents())) {
             log("One of parents of Task(%s) did not generate data on Cycle(%s). Sending back Task...", task.getTaskId(), task.getCycle());
 
             task.getCycleToGeneratedData().put(task.getCycle(), false);
+            this.receivedData.release(task.getTaskId(), task.getCycle());
 
             task.getTaskState().setStartExecutionTime(task.getCycle(), CloudSim.clock());
             sendNow(
@@ -424,54 +608,97 @@ public class FogDevice extends Datacenter {
             );
 
             task.getTaskState().setExitFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
-            this.waitingTasks.removeIf(taskId -> taskId == task.getTaskId());
+            this.waitingTasks.remove(task);
         } else {
             log("Not all parent data are available. task is added to waiting queue");
             task.getTaskState().setEnterFogDeviceWaitingQueue(task.getCycle(), CloudSim.clock());
-            this.waitingTasks.add(task.getTaskId());
+            this.waitingTasks.add(task, this.receivedData.pendingParents(task.getCycle(), task.getParents()));
         }
     }
 
+    protected void processCycleIsFinished(SimEvent event) {
+        int cycle = (Integer) event.getData();
+
+        log("Cycle(%s) is finished", cycle);
+        this.receivedData.finish(cycle);
+    }
+
     protected void processExecuteTaskWithData(SimEvent event) {
         ExecuteTaskMsg executeTaskMsg = (ExecuteTaskMsg) event.getData();
 
         log("Received Task(%s) from Workflow(%s) with STAGE_IN data to run on Vm(%s)", executeTaskMsg.getTask().getTaskId(), executeTaskMsg.getTask().getWorkflowId(), executeTaskMsg.getVmId());
 
-        double maxRate = Double.MIN_VALUE;
-        for (Storage storage : getStorageList()) {
-            double rate = storage.getMaxTransferRate();
-            if (rate > maxRate) {
-                maxRate = rate;
-            }
-        }
-
 //        double delay = ((double) executeTaskMsg.getTask().getTotalInputDataSize() / this.downLinkBw) + 0;
-        double delay = 0.0;
-        if (isDownLinkBusy) {
-            downLinkQueue.add(new NetworkRequest(
-                    getId(),
-                    delay,
-                    Constants.MsgTag.EXECUTE_TASK,
-                    executeTaskMsg
-            ));
-        } else {
-            isDownLinkBusy = true;
+        // Download the data
+        downLink.transfer(
+                getId(),
+                0,
+                Constants.MsgTag.EXECUTE_TASK,
+                executeTaskMsg,
+                this::send
+        );
+    }
 
-            // Download the data
-            send(
+    protected void processStageInData(SimEvent event) {
+        StageInDataMsg stageInDataMsg = (StageInDataMsg) event.getData();
+
+        log("Received STAGE_IN data of Task(%s) for FogDevice(%s): %s", stageInDataMsg.getExecuteTaskMsg().getTask().getTaskId(), stageInDataMsg.getDstFogDeviceId(), stageInDataMsg.getSize());
+        sendStageIn(stageInDataMsg);
+    }
+
+    // Sends the input data of a task towards its fog device, hop by hop, and writes it to the
+    // storage of the fog device once there. The task executes when the data is written
+    private void sendStageIn(StageInDataMsg stageInDataMsg) {
+        int dstFogDeviceId = stageInDataMsg.getDstFogDeviceId();
+
+        if (dstFogDeviceId == getId()) {
+            log("Writing STAGE_IN data of Task(%s) to storage", stageInDataMsg.getExecuteTaskMsg().getTask().getTaskId());
+            storageLink.transfer(
                     getId(),
-                    delay,
+                    stageInDataMsg.getSize(),
                     Constants.MsgTag.EXECUTE_TASK,
-                    executeTaskMsg
+                    stageInDataMsg.getExecuteTaskMsg(),
+                    this::send
             );
 
-            // Notify that download link will be free after `delay` time has passed
-            send(
-                    getId(),
-                    delay,
-                    Constants.MsgTag.DOWN_LINK_IS_FREE
-            );
+            return;
         }
+
+        if (transferMode == TransferModeEnum.PIPELINED) {
+            sendPipelined(dstFogDeviceId, stageInDataMsg.getSize(), stageInDataMsg);
+            return;
+        }
+
+        int nextHopId = nextHop(dstFogDeviceId);
+
+        log("Sending STAGE_IN data of Task(%s) to FogDevice(%s)", stageInDataMsg.getExecuteTaskMsg().getTask().getTaskId(), nextHopId);
+        getLinkTo(nextHopId).transfer(
+                nextHopId,
+                stageInDataMsg.getSize(),
+                Constants.MsgTag.FOG_TO_FOG,
+                stageInDataMsg,
+                this::send
+        );
+    }
+
+    // The fastest storage of the device bounds the rate of the data written to it. The max transfer
+    // rate of a storage is in MB/s, converted to the bytes per second of the links. The data units
+    // count bits
+    private long storageTransferRate() {
+        double maxRate = 0;
+        for (Storage storage : getStorageList()) {
+            maxRate = Math.max(maxRate, storage.getMaxTransferRate());
+        }
+
+        return maxRate > 0 ? (long) (maxRate * Constants.DataUnit.MB / Constants.DataUnit.BYTE) : Long.MAX_VALUE;
+    }
+
+    public void setDataSource(boolean dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public boolean isDataSource() {
+        return dataSource;
     }
 
     public List<FogHost> getHosts() {
@@ -482,12 +709,130 @@ public class FogDevice extends Datacenter {
         return neighbors;
     }
 
-    public void addRoute(String dst, String hop) {
-        routingTable.put(dst, hop);
+    public void addNeighborLink(String neighbor, long bandwidth, double latency) {
+        neighborLinks.put(neighbor, linkModel.newLink(getId(), bandwidth, latency, Constants.MsgTag.UP_LINK_IS_FREE));
     }
 
-    public String nextHop(String dst) {
-        return routingTable.getOrDefault(dst, null);
+    public Link getLinkTo(String neighbor) {
+        return neighborLinks.getOrDefault(neighbor, upLink);
+    }
+
+    public Link getLinkTo(int neighborId) {
+        return neighborLinksById.isEmpty() ? upLink : neighborLinksById.getOrDefault(neighborId, upLink);
+    }
+
+    public long getDownLinkBw() {
+        return downLinkBw;
+    }
+
+    // Sends a message to a fog device with a cut-through transfer of its data: each hop passes the
+    // head of the data on as soon as it arrives, so that all the links on the route carry the data
+    // at the same time, each one being booked for the whole transfer. The message is delivered
+    // once the tail of the data has gone through all of them. Without other transfers, the data
+    // thus streams at the bandwidth of the slowest link, and each hop adds its latency
+    private void sendPipelined(int dstFogDeviceId, long size, Object msg) {
+        pipeline(new PipelineMsg(getId(), nextTransferId++, dstFogDeviceId, 0, size, msg));
+    }
+
+    // Passes the head of a pipelined transfer on to the next hop, and streams the data through the
+    // link to it
+    private void pipeline(PipelineMsg head) {
+        int nextHopId = nextHop(head.getDstFogDeviceId());
+        Link link = getLinkTo(nextHopId);
+
+        send(nextHopId, link.getLatency(), Constants.MsgTag.PIPELINE_HEAD, head.toNextHop());
+        link.transfer(nextHopId, head.getSize(), Constants.MsgTag.PIPELINE_TAIL, head.toNextHop().tail(), this::send);
+    }
+
+    protected void processPipelineHead(SimEvent event) {
+        PipelineMsg head = (PipelineMsg) event.getData();
+
+        if (head.getDstFogDeviceId() != getId())
+            pipeline(head);
+
+        downLink.transfer(getId(), head.getSize(), Constants.MsgTag.PIPELINE_TAIL, head.tail(), this::send);
+        arrivedPart(head);
+    }
+
+    protected void processPipelineTail(SimEvent event) {
+        arrivedPart((PipelineMsg) event.getData());
+    }
+
+    // The tail of the data has arrived at a hop once it has gone through the link from the previous
+    // hop and through the down link of the hop, and has arrived at the previous hop, unless that
+    // one is the source. The tail then goes on to the next hop, or the message is delivered
+    private void arrivedPart(PipelineMsg part) {
+        Pair<Integer, Integer> key = Pair.of(part.getSrcFogDeviceId(), part.getTransferId());
+        PipelinedTransfer transfer = pipelinedTransfers.computeIfAbsent(key, k -> new PipelinedTransfer());
+        if (part.isHead())
+            transfer.head = part;
+
+        transfer.parts++;
+        if (transfer.parts < (part.getHop() == 1 ? 3 : 4))
+            return;
+
+        pipelinedTransfers.remove(key);
+        PipelineMsg head = transfer.head;
+        if (head.getDstFogDeviceId() == getId()) {
+            sendNow(getId(), Constants.MsgTag.DOWNLOADED_FOG_TO_FOG, head.getMsg());
+            return;
+        }
+
+        int nextHopId = nextHop(head.getDstFogDeviceId());
+        send(nextHopId, getLinkTo(nextHopId).getLatency(), Constants.MsgTag.PIPELINE_TAIL, head.toNextHop().tail());
+    }
+
+    private static class PipelinedTransfer implements Serializable {
+        PipelineMsg head;
+
+        // head and tails arrived
+        int parts;
+    }
+
+    /**
+     * Caches the files received from the other devices, within the capacity of the storage of
+     * this device.
+     */
+    public void setFileCachePolicy(FileCachePolicyEnum fileCachePolicy) {
+        long capacity = (long) getStorageList().stream().mapToDouble(Storage::getCapacity).sum();
+
+        this.fileCache = fileCachePolicy.newFileCache(capacity);
+    }
+
+    public FileCache getFileCache() {
+        return fileCache;
+    }
+
+    private boolean hasFileCache(int fogDeviceId) {
+        return directory != null ? directory.hasFileCache(fogDeviceId) : fileCacheIds.contains(fogDeviceId);
+    }
+
+    public void setDeviceDirectory(DeviceDirectory directory) {
+        this.directory = directory;
+    }
+
+    public DeviceDirectory getDeviceDirectory() {
+        return directory;
+    }
+
+    public int getIdOf(String fogDeviceName) {
+        return directory != null ? directory.idOf(fogDeviceName) : nameToId.getOrDefault(fogDeviceName, -1);
+    }
+
+    public String getNameOf(int fogDeviceId) {
+        return directory != null ? directory.nameOf(fogDeviceId) : idToName.get(fogDeviceId);
+    }
+
+    public void setRouter(Router router) {
+        this.router = router;
+    }
+
+    public Router getRouter() {
+        return router;
+    }
+
+    public int nextHop(int dstId) {
+        return router.nextHop(getId(), dstId);
     }
 
     private void log(String formatted, Object... args) {
@@ -545,17 +890,3 @@ public class FogDevice extends Datacenter {
         }
     }
 }
-
-class NetworkRequest {
-    int dstEntityId;
-    double delay;
-    int tag;
-    Object msg;
-
-    public NetworkRequest(int dstEntityId, double delay, int tag, Object msg) {
-        this.dstEntityId = dstEntityId;
-        this.delay = delay;
-        this.tag = tag;
-        this.msg = msg;
-    }
-}
@@ -0,0 +1,62 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.core.EntityPartitioner;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import widesim.message.ResourceRequestResponseMsg;
+
+import java.util.List;
+
+/**
+ * Runs every fog device in its own logical process, and the broker, the workflow engine, the task
+ * manager and the CloudSim entities together in logical process 0. The tasks, vms and messages
+ * exchanged between the logical processes are copied, since both the broker and the fog devices
+ * keep changing them. The same holds when the entities of a tick run concurrently, see
+ * {@link org.cloudbus.cloudsim.core.Simulation#setTickParallelism(int, EntityPartitioner)}.
+ * <p>
+ * The parallel execution of WIDESim is experimental: it gives the same results as a sequential
+ * run, but its lookahead is 0 (see {@link #getLookahead(List)}), so the logical processes run in
+ * lockstep and it is not expected to be faster.
+ */
+public class FogDevicePartitioner implements EntityPartitioner {
+
+    // The broker sends its messages to the fog devices, and gets their answers, without delay
+    private static final double BROKER_DELAY = 0;
+
+    /**
+     * Gets the lookahead of a parallel execution of these fog devices, that is the minimum delay
+     * of the events sent between logical processes: the lowest latency of the links between fog
+     * devices, or the delay of the messages between the broker and the fog devices if it is
+     * lower, which it is as long as they have no delay.
+     */
+    public static double getLookahead(List<FogDevice> fogDevices) {
+        double lookahead = BROKER_DELAY;
+        for (FogDevice fogDevice : fogDevices) {
+            for (String neighbor : fogDevice.getNeighbors())
+                lookahead = Math.min(lookahead, fogDevice.getLinkTo(neighbor).getLatency());
+        }
+
+        return lookahead;
+    }
+
+    @Override
+    public int getLogicalProcess(SimEntity entity) {
+        if (entity instanceof FogDevice)
+            return entity.getId() + 1;
+
+        return 0;
+    }
+
+    @Override
+    public Object handOver(SimEvent ev) {
+        Object data = ev.getData();
+
+        // Values can't be changed, and the characteristics of a fog device, which refer to the
+        // device itself, are only read by the broker before it creates any vm
+        if (data instanceof Number || data instanceof String || data instanceof Boolean
+                || data instanceof ResourceRequestResponseMsg)
+            return data;
+
+        return EntityPartitioner.copy(data);
+    }
+}
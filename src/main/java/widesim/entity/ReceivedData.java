@@ -0,0 +1,117 @@
+package widesim.entity;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parent tasks whose data a fog device has received, by cycle, as bit sets indexed by task id.
+ * <p>
+ * The tasks of a cycle hold it from their arrival on the device until they start. The broker may
+ * not send the data of a parent again to a device that has already received it, so a cycle is kept
+ * until the broker declares it finished. From then on the data of the cycle is always sent, and
+ * arrives after the tasks waiting for it, so a finished cycle that no task holds anymore is not
+ * needed and is dropped. The memory is thus bounded by the number of cycles in flight.
+ */
+class ReceivedData implements Serializable {
+
+    private final HashMap<Integer, Cycle> cycles;
+
+    // cycles up to this one are finished
+    private int finishedCycle;
+
+    ReceivedData() {
+        this.cycles = new HashMap<>();
+        this.finishedCycle = Integer.MIN_VALUE;
+    }
+
+    void add(int cycle, int parentId, boolean isData) {
+        Cycle received = cycles.computeIfAbsent(cycle, k -> new Cycle());
+        (isData ? received.withData : received.withoutData).set(parentId);
+    }
+
+    /**
+     * @return whether all the parents have sent their data on the cycle
+     */
+    boolean hasDataOfAll(int cycle, List<Integer> parentIds) {
+        Cycle received = cycles.get(cycle);
+        if (received == null)
+            return parentIds.isEmpty();
+
+        for (int parentId : parentIds)
+            if (!received.withData.get(parentId))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * @return the parents that have not sent their data on the cycle yet
+     */
+    Set<Integer> pendingParents(int cycle, List<Integer> parentIds) {
+        Cycle received = cycles.get(cycle);
+
+        Set<Integer> pending = new LinkedHashSet<>();
+        for (int parentId : parentIds)
+            if (received == null || !received.withData.get(parentId))
+                pending.add(parentId);
+
+        return pending;
+    }
+
+    /**
+     * @return whether one of the parents has not generated data on the cycle
+     */
+    boolean hasNoDataOfAny(int cycle, List<Integer> parentIds) {
+        Cycle received = cycles.get(cycle);
+        if (received == null)
+            return false;
+
+        for (int parentId : parentIds)
+            if (received.withoutData.get(parentId))
+                return true;
+
+        return false;
+    }
+
+    // The task waits on the device for the data of the cycle
+    void hold(int taskId, int cycle) {
+        cycles.computeIfAbsent(cycle, k -> new Cycle()).holders.set(taskId);
+    }
+
+    // The task has started, and does not need the data of the cycle anymore
+    void release(int taskId, int cycle) {
+        Cycle received = cycles.get(cycle);
+        if (received == null)
+            return;
+
+        received.holders.clear(taskId);
+        if (received.holders.isEmpty() && cycle <= finishedCycle)
+            cycles.remove(cycle);
+    }
+
+    // The broker has declared the cycles up to this one finished
+    void finish(int cycle) {
+        if (cycle <= finishedCycle)
+            return;
+
+        finishedCycle = cycle;
+        cycles.entrySet().removeIf(entry -> entry.getKey() <= finishedCycle && entry.getValue().holders.isEmpty());
+    }
+
+    int getNumOfCycles() {
+        return cycles.size();
+    }
+
+    private static class Cycle implements Serializable {
+        // parents that have sent their data, and the ones that have not generated any
+        final BitSet withData = new BitSet();
+        final BitSet withoutData = new BitSet();
+
+        // tasks waiting on the device for the data of the cycle
+        final BitSet holders = new BitSet();
+    }
+}
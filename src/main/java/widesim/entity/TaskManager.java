@@ -9,45 +9,173 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 public class TaskManager extends SimEntity {
 
-    private final List<Task> tasks = new ArrayList<>();
     private final Integer workflowEngineId;
 
+    // tasks not sent yet, in entry time order; null once all the tasks are sent
+    private Iterator<Task> source;
+    private Task nextTask;
+
+    // maximum number of tasks sent and not entered yet
+    private final int window;
+
+    // entry times of the tasks sent and not entered yet
+    private final ArrayDeque<Double> inFlight;
+
+    private double lastEntryTime;
+
     public TaskManager(Integer workflowEngineId, List<Workflow> workflows) {
+        this(workflowEngineId, new ListSource(sortedTasks(workflows)), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sends the tasks of the source as the simulation advances, with at most about window tasks
+     * sent ahead of their entry time. The tasks of the source must be in entry time order, and the
+     * source must be serializable for the simulation to be checkpointed.
+     */
+    public TaskManager(Integer workflowEngineId, Iterator<Task> source, int window) {
         super("TaskManager");
 
+        if (window < 1)
+            throw new IllegalArgumentException(String.format("Invalid window: %s", window));
+
         this.workflowEngineId = workflowEngineId;
+        this.source = source;
+        this.window = window;
+        this.inFlight = new ArrayDeque<>();
+        this.lastEntryTime = Double.NEGATIVE_INFINITY;
+    }
+
+    public TaskManager(Integer workflowEngineId, Spliterator<Task> source, int window) {
+        this(workflowEngineId, new SpliteratorSource(source), window);
+    }
 
+    private static List<Task> sortedTasks(List<Workflow> workflows) {
+        List<Task> tasks = new ArrayList<>();
         for (Workflow workflow : workflows)
             tasks.addAll(workflow.getTasks());
 
         tasks.sort(Comparator.comparingDouble(Task::getEntryTime));
+
+        return tasks;
+    }
+
+    // The tasks of a list; unlike the iterator of the list, it can be part of a checkpoint
+    private static class ListSource implements Iterator<Task>, Serializable {
+        private final List<Task> tasks;
+        private int next;
+
+        ListSource(List<Task> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < tasks.size();
+        }
+
+        @Override
+        public Task next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return tasks.get(next++);
+        }
+    }
+
+    // The tasks of a spliterator, which is part of a checkpoint if it is serializable
+    private static class SpliteratorSource implements Iterator<Task>, Serializable {
+        private final Spliterator<Task> spliterator;
+        private Task next;
+
+        SpliteratorSource(Spliterator<Task> spliterator) {
+            this.spliterator = spliterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null || spliterator.tryAdvance(task -> next = task);
+        }
+
+        @Override
+        public Task next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Task task = next;
+            next = null;
+            return task;
+        }
     }
 
     @Override
     public void startEntity() {
         log("Starting Task Manager...");
 
-        // dispatch tasks to broker
-        for (Task task : tasks) {
-            log("Sending task: %s of workflow: %s", task.getTaskId(), task.getWorkflowId());
-            schedule(workflowEngineId, task.getEntryTime() - CloudSim.clock(), Constants.MsgTag.INCOMING_TASK, new IncomingTaskMsg(task));
-        }
+        sendTasks();
     }
 
     @Override
     public void processEvent(SimEvent ev) {
+        if (ev.getTag() == Constants.MsgTag.REFILL_TASKS)
+            sendTasks();
     }
 
     @Override
     public void shutdownEntity() {
     }
 
+    // dispatch tasks to broker, until the window is full
+    private void sendTasks() {
+        while (!inFlight.isEmpty() && inFlight.peekFirst() <= CloudSim.clock())
+            inFlight.pollFirst();
+
+        while (hasNextTask()) {
+            Task task = nextTask;
+
+            // The tasks entering at the same time are sent together, so that a refill never sends
+            // a task entering at the current time
+            if (inFlight.size() >= window && task.getEntryTime() > lastEntryTime)
+                break;
+
+            if (task.getEntryTime() < lastEntryTime)
+                throw new IllegalArgumentException(String.format("Task(%s) is not in entry time order", task.getTaskId()));
+
+            nextTask = null;
+            inFlight.addLast(task.getEntryTime());
+            lastEntryTime = task.getEntryTime();
+
+            log("Sending task: %s of workflow: %s", task.getTaskId(), task.getWorkflowId());
+            schedule(workflowEngineId, task.getEntryTime() - CloudSim.clock(), Constants.MsgTag.INCOMING_TASK, new IncomingTaskMsg(task));
+        }
+
+        if (!hasNextTask()) {
+            source = null;
+            return;
+        }
+
+        // Refill once half of the window has entered
+        double refillTime = inFlight.stream().skip(inFlight.size() / 2).findFirst().orElse(CloudSim.clock());
+        schedule(getId(), refillTime - CloudSim.clock(), Constants.MsgTag.REFILL_TASKS);
+    }
+
+    private boolean hasNextTask() {
+        if (nextTask == null && source != null && source.hasNext())
+            nextTask = source.next();
+
+        return nextTask != null;
+    }
+
     private void log(String formatted, Object... args) {
         String tag = String.format("TaskManager(%s)", getId());
 
@@ -0,0 +1,77 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.Vm;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The vms of a broker indexed by id, along with the ones whose creation has succeeded or failed,
+ * so that looking up a vm or its state does not scan the vm list.
+ */
+public class VmRegistry implements Serializable {
+
+    // vm by id
+    private Vm[] vms;
+
+    private final BitSet created;
+    private final BitSet failed;
+
+    public VmRegistry() {
+        this.vms = new Vm[16];
+        this.created = new BitSet();
+        this.failed = new BitSet();
+    }
+
+    /**
+     * Adds the vm, unless a vm with the same id is already registered.
+     */
+    public void add(Vm vm) {
+        int id = vm.getId();
+        if (id < 0)
+            throw new IllegalArgumentException(String.format("Invalid vm id: %s", id));
+
+        if (id >= vms.length)
+            vms = Arrays.copyOf(vms, Math.max(id + 1, vms.length * 2));
+
+        if (vms[id] == null)
+            vms[id] = vm;
+    }
+
+    /**
+     * @return the vm with this id, or null if there is no such vm
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Vm> T get(int id) {
+        return id >= 0 && id < vms.length ? (T) vms[id] : null;
+    }
+
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    public void setCreated(int id) {
+        failed.clear(id);
+        created.set(id);
+    }
+
+    public void setFailed(int id) {
+        created.clear(id);
+        failed.set(id);
+    }
+
+    public boolean isCreated(int id) {
+        return id >= 0 && created.get(id);
+    }
+
+    public boolean isFailed(int id) {
+        return id >= 0 && failed.get(id);
+    }
+
+    // Forgets the creation of all the vms, before they are provisioned again
+    public void clearStates() {
+        created.clear();
+        failed.clear();
+    }
+}
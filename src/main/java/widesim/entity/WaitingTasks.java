@@ -0,0 +1,78 @@
+package widesim.entity;
+
+import widesim.computation.Task;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The tasks of a fog device waiting for the data of their parents. Each task counts the parents it
+ * still waits for, and is indexed by each of them, so that the data of a parent only touches the
+ * tasks depending on it.
+ */
+class WaitingTasks implements Serializable {
+
+    // (parent, cycle) -> tasks waiting for its data, in the order they started waiting
+    private final HashMap<Long, LinkedHashSet<Integer>> byParent;
+
+    // task -> cycle and number of parents it still waits for
+    private final HashMap<Integer, int[]> remaining;
+
+    WaitingTasks() {
+        this.byParent = new HashMap<>();
+        this.remaining = new HashMap<>();
+    }
+
+    void add(Task task, Collection<Integer> pendingParentIds) {
+        remaining.put(task.getTaskId(), new int[]{task.getCycle(), pendingParentIds.size()});
+
+        for (int parentId : pendingParentIds)
+            byParent.computeIfAbsent(key(parentId, task.getCycle()), k -> new LinkedHashSet<>()).add(task.getTaskId());
+    }
+
+    /**
+     * Removes the tasks from the index of a parent, once its data has arrived.
+     *
+     * @return the tasks that were waiting for the data of the parent, in the order they started waiting
+     */
+    List<Integer> removeDependents(int parentId, int cycle) {
+        LinkedHashSet<Integer> dependents = byParent.remove(key(parentId, cycle));
+
+        return dependents == null ? List.of() : new ArrayList<>(dependents);
+    }
+
+    /**
+     * Counts the data of one of the parents of a task.
+     *
+     * @return whether the task has received the data of all its parents
+     */
+    boolean received(int taskId) {
+        return --remaining.get(taskId)[1] == 0;
+    }
+
+    void remove(Task task) {
+        int[] waiting = remaining.remove(task.getTaskId());
+        if (waiting == null)
+            return;
+
+        // The task may still be indexed by the parents it was waiting for
+        for (int parentId : task.getParents()) {
+            long key = key(parentId, waiting[0]);
+            LinkedHashSet<Integer> dependents = byParent.get(key);
+            if (dependents != null && dependents.remove(task.getTaskId()) && dependents.isEmpty())
+                byParent.remove(key);
+        }
+    }
+
+    int size() {
+        return remaining.size();
+    }
+
+    private static long key(int parentId, int cycle) {
+        return ((long) cycle << 32) | (parentId & 0xffffffffL);
+    }
+}
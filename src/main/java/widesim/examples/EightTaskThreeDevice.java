@@ -2,6 +2,7 @@ package widesim.examples;
 
 import widesim.computation.Task;
 import widesim.computation.Workflow;
+import widesim.core.Enums.RoutingModeEnum;
 import widesim.core.Logger;
 import widesim.entity.FogBroker;
 import widesim.entity.TaskManager;
@@ -33,14 +34,14 @@ public class EightTaskThreeDevice {
         var fogDevices = deviceAndVms.getFirst();
 
         PostProcessor.connectHostToDatacenter(fogDevices);
+        PostProcessor.setDeviceDirectoryOfFogDevices(fogDevices);
 
         var topologyAnalyzer = PostProcessor.buildTopologyAnalyzer(fogDevices);
-        var routingTable = topologyAnalyzer.buildRoutingTable();
-        PostProcessor.setRoutingTableOfFogDevices(fogDevices, routingTable);
-        var convertedRoutingTable = PostProcessor.convertNameToId(fogDevices, routingTable);
+        var router = PostProcessor.buildRouter(fogDevices, topologyAnalyzer, RoutingModeEnum.HOP_COUNT);
+        PostProcessor.setRouterOfFogDevices(fogDevices, router);
 
         var vms = deviceAndVms.getSecond();
-        var fogBroker = new FogBroker("broker", new SimpleVmProvisioner(), new SimpleVmToFogDeviceMapper(), new SimpleTaskToVmMapper(), 10L, 10L, convertedRoutingTable, fogDevices);
+        var fogBroker = new FogBroker("broker", new SimpleVmProvisioner(), new SimpleVmToFogDeviceMapper(), new SimpleTaskToVmMapper(), 10L, 10L, router, fogDevices);
         vms.forEach(vm -> {
             vm.setUid(Vm.getUid(fogBroker.getId(), vm.getId()));
             vm.setUserId(fogBroker.getId());
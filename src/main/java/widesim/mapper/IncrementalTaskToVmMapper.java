@@ -0,0 +1,10 @@
+package widesim.mapper;
+
+import java.util.Map;
+
+// A mapper that keeps the tasks it has mapped, and only needs what has changed since its previous mapping
+public interface IncrementalTaskToVmMapper extends TaskToVmMapper {
+
+    // taskId -> vmId, only for the tasks whose vm is new or has changed
+    Map<Integer, Integer> map(MappingDelta delta);
+}
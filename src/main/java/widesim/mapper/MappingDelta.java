@@ -0,0 +1,67 @@
+package widesim.mapper;
+
+import widesim.computation.Task;
+import org.cloudbus.cloudsim.Vm;
+import org.jgrapht.alg.util.Pair;
+
+import java.util.List;
+import java.util.Map;
+
+// What has changed in the broker since the previous mapping
+public class MappingDelta {
+    // tasks that have entered the waiting queue
+    private final List<Task> queuedTasks;
+
+    // tasks that have left the waiting queue to be executed
+    private final List<Task> dispatchedTasks;
+
+    // whether a vm has been created, has failed or has been provisioned again
+    private final boolean vmsChanged;
+
+    private final List<Vm> createdVms;
+    private final List<Vm> failedVms;
+
+    private final Map<Pair<Integer, Integer>, Integer> routingTable;
+    private final Map<Integer, Integer> vmToFogDevice;
+
+    public MappingDelta(List<Task> queuedTasks, List<Task> dispatchedTasks, boolean vmsChanged, List<Vm> createdVms,
+                        List<Vm> failedVms, Map<Pair<Integer, Integer>, Integer> routingTable, Map<Integer, Integer> vmToFogDevice) {
+        this.queuedTasks = queuedTasks;
+        this.dispatchedTasks = dispatchedTasks;
+        this.vmsChanged = vmsChanged;
+        this.createdVms = createdVms;
+        this.failedVms = failedVms;
+        this.routingTable = routingTable;
+        this.vmToFogDevice = vmToFogDevice;
+    }
+
+    public List<Task> getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public List<Task> getDispatchedTasks() {
+        return dispatchedTasks;
+    }
+
+    public boolean isVmsChanged() {
+        return vmsChanged;
+    }
+
+    // All the created vms, not only the ones created since the previous mapping
+    public List<Vm> getCreatedVms() {
+        return createdVms;
+    }
+
+    // All the failed vms, not only the ones failed since the previous mapping
+    public List<Vm> getFailedVms() {
+        return failedVms;
+    }
+
+    public Map<Pair<Integer, Integer>, Integer> getRoutingTable() {
+        return routingTable;
+    }
+
+    public Map<Integer, Integer> getVmToFogDevice() {
+        return vmToFogDevice;
+    }
+}
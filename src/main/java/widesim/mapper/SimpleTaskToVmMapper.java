@@ -4,12 +4,20 @@ import widesim.computation.Task;
 import org.cloudbus.cloudsim.Vm;
 import org.jgrapht.alg.util.Pair;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class SimpleTaskToVmMapper implements TaskToVmMapper {
+public class SimpleTaskToVmMapper implements IncrementalTaskToVmMapper {
+
+    // tasks in the waiting queue of the broker, when mapping incrementally
+    private final Map<Integer, Task> queuedTasks = new LinkedHashMap<>();
+
+    private List<Vm> createdVms = new ArrayList<>();
+
     @Override
     public Map<Integer, Integer> map(List<Vm> createdVms, List<Vm> failedVms, List<Task> queuedTasks,
                                      Set<Task> completedTasks, Set<Task> dispatchedTasks, Map<Integer, Integer> taskToVm,
@@ -18,20 +26,46 @@ public class SimpleTaskToVmMapper implements TaskToVmMapper {
         // Distribute tasks among created vms uniformly
         HashMap<Integer, Integer> newTaskToVm = new HashMap<>();
 
-        if (!createdVms.isEmpty()) {
-            for (Task task : queuedTasks) {
-                int taskId = task.getTaskId();
+        for (Task task : queuedTasks)
+            mapTask(task, createdVms, newTaskToVm);
+
+        return newTaskToVm;
+    }
+
+    @Override
+    public Map<Integer, Integer> map(MappingDelta delta) {
+        delta.getDispatchedTasks().forEach(task -> this.queuedTasks.remove(task.getTaskId()));
+
+        HashMap<Integer, Integer> newTaskToVm = new HashMap<>();
+
+        // The tasks still in the queue are distributed among the new vms
+        if (delta.isVmsChanged()) {
+            this.createdVms = new ArrayList<>(delta.getCreatedVms());
 
-                if (task.getAssignedVmId() != null) {
-                    newTaskToVm.put(taskId, task.getAssignedVmId());
-                } else {
-                    int vmId = taskId % createdVms.size();
+            for (Task task : this.queuedTasks.values())
+                mapTask(task, this.createdVms, newTaskToVm);
+        }
 
-                    newTaskToVm.put(taskId, createdVms.get(vmId).getId());
-                }
-            }
+        for (Task task : delta.getQueuedTasks()) {
+            this.queuedTasks.put(task.getTaskId(), task);
+            mapTask(task, this.createdVms, newTaskToVm);
         }
 
         return newTaskToVm;
     }
+
+    private void mapTask(Task task, List<Vm> createdVms, Map<Integer, Integer> newTaskToVm) {
+        if (createdVms.isEmpty())
+            return;
+
+        int taskId = task.getTaskId();
+
+        if (task.getAssignedVmId() != null) {
+            newTaskToVm.put(taskId, task.getAssignedVmId());
+        } else {
+            int vmId = taskId % createdVms.size();
+
+            newTaskToVm.put(taskId, createdVms.get(vmId).getId());
+        }
+    }
 }
@@ -4,11 +4,12 @@ import widesim.computation.Task;
 import org.cloudbus.cloudsim.Vm;
 import org.jgrapht.alg.util.Pair;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public interface TaskToVmMapper {
+public interface TaskToVmMapper extends Serializable {
     Map<Integer, Integer> map(List<Vm> createdVms,
                               List<Vm> failedVms,
                               List<Task> queuedTasks,
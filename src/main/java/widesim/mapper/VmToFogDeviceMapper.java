@@ -4,10 +4,11 @@ import widesim.entity.FogDevice;
 import widesim.entity.FogVm;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
-public interface VmToFogDeviceMapper {
+public interface VmToFogDeviceMapper extends Serializable {
 
     // vmId -> datacenterId
     Map<Integer, Integer> map(Map<Integer, DatacenterCharacteristics> datacenterToCharacteristics, List<FogVm> vms, List<FogDevice> fogDevices);
@@ -0,0 +1,33 @@
+package widesim.message;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// Messages sent to the same entity at the same time, in the order they were sent
+public class BatchMsg implements Serializable {
+    private final List<Integer> tags;
+    private final List<Object> messages;
+
+    public BatchMsg() {
+        this.tags = new ArrayList<>();
+        this.messages = new ArrayList<>();
+    }
+
+    public void add(int tag, Object message) {
+        tags.add(tag);
+        messages.add(message);
+    }
+
+    public int size() {
+        return tags.size();
+    }
+
+    public int getTag(int index) {
+        return tags.get(index);
+    }
+
+    public Object getMessage(int index) {
+        return messages.get(index);
+    }
+}
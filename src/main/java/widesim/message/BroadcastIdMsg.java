@@ -1,12 +1,16 @@
 package widesim.message;
 
-public class BroadcastIdMsg {
+import java.io.Serializable;
+
+public class BroadcastIdMsg implements Serializable {
     private final String name;
     private final int id;
+    private final boolean fileCache;
 
-    public BroadcastIdMsg(String name, int id) {
+    public BroadcastIdMsg(String name, int id, boolean fileCache) {
         this.name = name;
         this.id = id;
+        this.fileCache = fileCache;
     }
 
     public String getName() {
@@ -16,4 +20,8 @@ public class BroadcastIdMsg {
     public int getId() {
         return id;
     }
+
+    public boolean hasFileCache() {
+        return fileCache;
+    }
 }
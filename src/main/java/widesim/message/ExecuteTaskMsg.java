@@ -2,7 +2,9 @@ package widesim.message;
 
 import widesim.computation.Task;
 
-public class ExecuteTaskMsg {
+import java.io.Serializable;
+
+public class ExecuteTaskMsg implements Serializable {
     private final Task task;
     private final int vmId;
 
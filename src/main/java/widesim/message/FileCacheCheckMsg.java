@@ -0,0 +1,44 @@
+package widesim.message;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+public class FileCacheCheckMsg implements Serializable {
+    private final int srcFogDeviceId;
+    private final String workflowId;
+    private final StageOutDataMsg stageOutDataMsg;
+    private final Map<String, Long> fileSizes;
+
+    // destinations whose cache is still to be checked, starting with the one receiving the message
+    private final List<Integer> dstFogDeviceIds;
+
+    public FileCacheCheckMsg(int srcFogDeviceId, String workflowId, StageOutDataMsg stageOutDataMsg, Map<String, Long> fileSizes, List<Integer> dstFogDeviceIds) {
+        this.srcFogDeviceId = srcFogDeviceId;
+        this.workflowId = workflowId;
+        this.stageOutDataMsg = stageOutDataMsg;
+        this.fileSizes = fileSizes;
+        this.dstFogDeviceIds = dstFogDeviceIds;
+    }
+
+    public int getSrcFogDeviceId() {
+        return srcFogDeviceId;
+    }
+
+    // workflow of the task producing the files
+    public String getWorkflowId() {
+        return workflowId;
+    }
+
+    public StageOutDataMsg getStageOutDataMsg() {
+        return stageOutDataMsg;
+    }
+
+    public Map<String, Long> getFileSizes() {
+        return fileSizes;
+    }
+
+    public List<Integer> getDstFogDeviceIds() {
+        return dstFogDeviceIds;
+    }
+}
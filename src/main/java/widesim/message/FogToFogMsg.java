@@ -1,12 +1,25 @@
 package widesim.message;
 
-public class FogToFogMsg {
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class FogToFogMsg implements Serializable {
     private final int dstFogDeviceId;
     private final int taskId;
     private final int cycle;
     private final long data;
     private final boolean isData;
 
+    // For a multicast, the workflow of the task, the files needed by each destination reached through this message, and
+    // the size of each file. null for a single destination
+    private final String workflowId;
+    private final Map<Integer, Set<String>> neededFilesByDst;
+    private final Map<String, Long> fileSizes;
+
 
     public FogToFogMsg(int dstFogDeviceId, int taskId, int cycle, long data, boolean isData) {
         this.dstFogDeviceId = dstFogDeviceId;
@@ -14,6 +27,38 @@ public class FogToFogMsg {
         this.cycle = cycle;
         this.data = data;
         this.isData = isData;
+        this.workflowId = null;
+        this.neededFilesByDst = null;
+        this.fileSizes = null;
+    }
+
+    /**
+     * Creates a multicast message carrying the files needed by a set of destinations, each file
+     * being sent once whatever the number of destinations needing it.
+     */
+    public FogToFogMsg(String workflowId, int taskId, int cycle, boolean isData, Map<Integer, Set<String>> neededFilesByDst, Map<String, Long> fileSizes) {
+        this.dstFogDeviceId = -1;
+        this.taskId = taskId;
+        this.cycle = cycle;
+        this.isData = isData;
+        this.workflowId = workflowId;
+        this.neededFilesByDst = neededFilesByDst;
+        this.fileSizes = fileSizes;
+
+        Set<String> files = new HashSet<>();
+        neededFilesByDst.values().forEach(files::addAll);
+        this.data = files.stream().mapToLong(fileSizes::get).sum();
+    }
+
+    /**
+     * @return a multicast message to a subset of the destinations of this one
+     */
+    public FogToFogMsg forDestinations(Collection<Integer> dstFogDeviceIds) {
+        Map<Integer, Set<String>> neededFiles = new LinkedHashMap<>();
+        for (int dstFogDeviceId : dstFogDeviceIds)
+            neededFiles.put(dstFogDeviceId, neededFilesByDst.get(dstFogDeviceId));
+
+        return new FogToFogMsg(workflowId, taskId, cycle, isData, neededFiles, fileSizes);
     }
 
     public int getDstFogDeviceId() {
@@ -35,4 +80,20 @@ public class FogToFogMsg {
     public boolean isData() {
         return isData;
     }
+
+    public String getWorkflowId() {
+        return workflowId;
+    }
+
+    public Map<Integer, Set<String>> getNeededFilesByDst() {
+        return neededFilesByDst;
+    }
+
+    public Map<String, Long> getFileSizes() {
+        return fileSizes;
+    }
+
+    public boolean isMulticast() {
+        return neededFilesByDst != null;
+    }
 }
@@ -2,7 +2,9 @@ package widesim.message;
 
 import widesim.computation.Task;
 
-public class IncomingTaskMsg {
+import java.io.Serializable;
+
+public class IncomingTaskMsg implements Serializable {
     private final Task task;
 
     public IncomingTaskMsg(Task task) {
@@ -0,0 +1,63 @@
+package widesim.message;
+
+import java.io.Serializable;
+
+// A part of a pipelined transfer: either its head, carrying the message delivered once all the data
+// has arrived, or its tail, telling a fog device that the data has gone through a part of the route
+public class PipelineMsg implements Serializable {
+    private final int srcFogDeviceId;
+    private final int transferId;
+    private final int dstFogDeviceId;
+
+    // index on the route of the fog device the message is for, the source being 0
+    private final int hop;
+    private final long size;
+
+    // null for the tail
+    private final Object msg;
+
+    public PipelineMsg(int srcFogDeviceId, int transferId, int dstFogDeviceId, int hop, long size, Object msg) {
+        this.srcFogDeviceId = srcFogDeviceId;
+        this.transferId = transferId;
+        this.dstFogDeviceId = dstFogDeviceId;
+        this.hop = hop;
+        this.size = size;
+        this.msg = msg;
+    }
+
+    public PipelineMsg toNextHop() {
+        return new PipelineMsg(srcFogDeviceId, transferId, dstFogDeviceId, hop + 1, size, msg);
+    }
+
+    public PipelineMsg tail() {
+        return new PipelineMsg(srcFogDeviceId, transferId, dstFogDeviceId, hop, size, null);
+    }
+
+    public boolean isHead() {
+        return msg != null;
+    }
+
+    public int getSrcFogDeviceId() {
+        return srcFogDeviceId;
+    }
+
+    public int getTransferId() {
+        return transferId;
+    }
+
+    public int getDstFogDeviceId() {
+        return dstFogDeviceId;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public Object getMsg() {
+        return msg;
+    }
+}
@@ -2,7 +2,9 @@ package widesim.message;
 
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 
-public class ResourceRequestResponseMsg {
+import java.io.Serializable;
+
+public class ResourceRequestResponseMsg implements Serializable {
 
     private final DatacenterCharacteristics characteristics;
 
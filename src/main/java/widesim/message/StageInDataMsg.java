@@ -0,0 +1,27 @@
+package widesim.message;
+
+import java.io.Serializable;
+
+public class StageInDataMsg implements Serializable {
+    private final ExecuteTaskMsg executeTaskMsg;
+    private final int dstFogDeviceId;
+    private final long size;
+
+    public StageInDataMsg(ExecuteTaskMsg executeTaskMsg, int dstFogDeviceId, long size) {
+        this.executeTaskMsg = executeTaskMsg;
+        this.dstFogDeviceId = dstFogDeviceId;
+        this.size = size;
+    }
+
+    public ExecuteTaskMsg getExecuteTaskMsg() {
+        return executeTaskMsg;
+    }
+
+    public int getDstFogDeviceId() {
+        return dstFogDeviceId;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
@@ -1,20 +1,45 @@
 package widesim.message;
 
+import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-public class StageOutDataMsg {
+public class StageOutDataMsg implements Serializable {
     private final int taskId;
     private final List<String> neededFiles;
     private final int cycle;
     private final int dstFogDeviceId;
     private final boolean isData;
 
+    // files needed by each destination of a multicast stage out, null for a single destination
+    private final Map<Integer, Set<String>> neededFilesByDst;
+
+    // whether the files already cached by the destinations have been left out
+    private final boolean cacheChecked;
+
     public StageOutDataMsg(int taskId, int cycle, int dstFogDeviceId, boolean isData, List<String> neededFiles) {
         this.taskId = taskId;
         this.cycle = cycle;
         this.dstFogDeviceId = dstFogDeviceId;
         this.isData = isData;
         this.neededFiles = neededFiles;
+        this.neededFilesByDst = null;
+        this.cacheChecked = false;
+    }
+
+    public StageOutDataMsg(int taskId, int cycle, boolean isData, Map<Integer, Set<String>> neededFilesByDst) {
+        this(taskId, cycle, isData, neededFilesByDst, false);
+    }
+
+    public StageOutDataMsg(int taskId, int cycle, boolean isData, Map<Integer, Set<String>> neededFilesByDst, boolean cacheChecked) {
+        this.taskId = taskId;
+        this.cycle = cycle;
+        this.dstFogDeviceId = -1;
+        this.isData = isData;
+        this.neededFiles = null;
+        this.neededFilesByDst = neededFilesByDst;
+        this.cacheChecked = cacheChecked;
     }
 
     public int getTaskId() {
@@ -36,4 +61,16 @@ public class StageOutDataMsg {
     public List<String> getNeededFiles() {
         return neededFiles;
     }
+
+    public Map<Integer, Set<String>> getNeededFilesByDst() {
+        return neededFilesByDst;
+    }
+
+    public boolean isMulticast() {
+        return neededFilesByDst != null;
+    }
+
+    public boolean isCacheChecked() {
+        return cacheChecked;
+    }
 }
@@ -2,7 +2,9 @@ package widesim.message;
 
 import widesim.computation.Task;
 
-public class TaskIsDoneMsg {
+import java.io.Serializable;
+
+public class TaskIsDoneMsg implements Serializable {
     private final Task task;
 
     public TaskIsDoneMsg(Task task) {
@@ -1,6 +1,8 @@
 package widesim.message;
 
-public class VmCreateAckMsg {
+import java.io.Serializable;
+
+public class VmCreateAckMsg implements Serializable {
 
     public final int fogDeviceId;
     public final int vmId;
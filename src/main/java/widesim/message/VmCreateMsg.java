@@ -2,7 +2,9 @@ package widesim.message;
 
 import org.cloudbus.cloudsim.Vm;
 
-public class VmCreateMsg {
+import java.io.Serializable;
+
+public class VmCreateMsg implements Serializable {
     private final Vm vm;
 
     public VmCreateMsg(Vm vm) {
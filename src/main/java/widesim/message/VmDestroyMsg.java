@@ -1,6 +1,8 @@
 package widesim.message;
 
-public class VmDestroyMsg {
+import java.io.Serializable;
+
+public class VmDestroyMsg implements Serializable {
     private final int vmId;
 
     public VmDestroyMsg(int vmId) {
@@ -0,0 +1,50 @@
+package widesim.network;
+
+import org.cloudbus.cloudsim.core.SimEvent;
+
+import java.util.ArrayDeque;
+
+/**
+ * A link carrying one transfer at a time at full bandwidth, the other transfers waiting in
+ * arrival order.
+ */
+public class FifoLink extends Link {
+
+    private boolean isBusy;
+    private final ArrayDeque<NetworkRequest> queue;
+
+    public FifoLink(int deviceId, long bandwidth, double latency, int eventTag) {
+        super(deviceId, bandwidth, latency, eventTag);
+
+        this.isBusy = false;
+        this.queue = new ArrayDeque<>();
+    }
+
+    @Override
+    public void transfer(int dstEntityId, long size, int tag, Object msg, Sender sender) {
+        double delay = (double) size / bandwidth;
+
+        if (isBusy) {
+            queue.add(new NetworkRequest(dstEntityId, delay, tag, msg));
+        } else {
+            isBusy = true;
+
+            sender.send(dstEntityId, delay + latency, tag, msg);
+
+            // Notify that the link will be free after `delay` time has passed
+            sender.send(deviceId, delay, eventTag, this);
+        }
+    }
+
+    @Override
+    public void processEvent(SimEvent event, Sender sender) {
+        NetworkRequest request = queue.poll();
+
+        if (request != null) {
+            sender.send(request.dstEntityId, request.delay + latency, request.tag, request.msg);
+            sender.send(deviceId, request.delay, eventTag, this);
+        } else {
+            isBusy = false;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package widesim.network;
+
+import org.cloudbus.cloudsim.core.SimEvent;
+
+import java.io.Serializable;
+
+/**
+ * One direction of the network link of a fog device. Transfers are started with
+ * {@link #transfer(int, long, int, Object, Sender)}, and the message of a transfer is sent to its
+ * destination once its data has gone through the link, arriving after the latency of the link. The link keeps track of time by sending
+ * events with its event tag to its device, carrying the link itself, which the device hands back
+ * to {@link #processEvent(SimEvent, Sender)}.
+ */
+public abstract class Link implements Serializable {
+
+    /**
+     * Sends events on behalf of the device owning the link.
+     */
+    @FunctionalInterface
+    public interface Sender {
+        void send(int dstEntityId, double delay, int tag, Object data);
+    }
+
+    protected final int deviceId;
+    protected final long bandwidth;
+    protected final double latency;
+    protected final int eventTag;
+
+    protected Link(int deviceId, long bandwidth, double latency, int eventTag) {
+        this.deviceId = deviceId;
+        this.bandwidth = bandwidth;
+        this.latency = latency;
+        this.eventTag = eventTag;
+    }
+
+    public abstract void transfer(int dstEntityId, long size, int tag, Object msg, Sender sender);
+
+    public abstract void processEvent(SimEvent event, Sender sender);
+
+    public long getBandwidth() {
+        return bandwidth;
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,52 @@
+package widesim.network;
+
+import org.jgrapht.alg.util.Pair;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A router looking the next hops up in a precomputed matrix of device indices.
+ */
+public class MatrixRouter extends Router {
+
+    // next hop index from each device to each device, row by row, -1 where there is no route
+    private final int[] nextHops;
+
+    public MatrixRouter(int[] ids, int[] nextHops) {
+        super(ids);
+
+        if (nextHops.length != ids.length * ids.length)
+            throw new IllegalArgumentException(String.format("%s next hops for %s devices", nextHops.length, ids.length));
+
+        this.nextHops = nextHops;
+    }
+
+    /**
+     * Builds a router over the devices from a routing table of entity ids. The next hops that are not
+     * one of the devices are dropped.
+     *
+     * @param ids entity id of each device, by index
+     */
+    public static MatrixRouter of(int[] ids, Map<Pair<Integer, Integer>, Integer> routingTable) {
+        int n = ids.length;
+        Map<Integer, Integer> indices = new HashMap<>();
+        for (int index = 0; index < n; index++)
+            indices.put(ids[index], index);
+
+        int[] nextHops = new int[n * n];
+        for (int src = 0; src < n; src++) {
+            for (int dst = 0; dst < n; dst++) {
+                Integer hop = routingTable.get(Pair.of(ids[src], ids[dst]));
+                nextHops[src * n + dst] = hop == null ? -1 : indices.getOrDefault(hop, -1);
+            }
+        }
+
+        return new MatrixRouter(ids, nextHops);
+    }
+
+    @Override
+    protected int nextHopIndex(int src, int dst) {
+        return nextHops[src * ids.length + dst];
+    }
+}
@@ -0,0 +1,105 @@
+package widesim.network;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+import java.io.Serializable;
+import java.util.PriorityQueue;
+
+/**
+ * A link sharing its bandwidth between all its transfers with max-min fairness. The transfers of
+ * a link are only limited by the link itself, so each of the n active transfers gets 1/n of the
+ * bandwidth.
+ * <p>
+ * The transfers are tracked in virtual time, the amount of data sent by each active transfer so
+ * far, which grows at bandwidth / n. A transfer finishes when the virtual time reaches the virtual
+ * time it started at plus its size, and that finish time never changes. Starting or finishing a
+ * transfer thus only advances the virtual time and schedules the next completion, without
+ * touching the other transfers.
+ */
+public class MaxMinFairLink extends Link {
+
+    // active transfers, by virtual finish time
+    private final PriorityQueue<Flow> flows;
+
+    private double virtualTime;
+    private double lastUpdate;
+    private long nextFlowId;
+
+    // time of the next completion, the events sent for other times being stale
+    private double completionTime = Double.NaN;
+
+    public MaxMinFairLink(int deviceId, long bandwidth, double latency, int eventTag) {
+        super(deviceId, bandwidth, latency, eventTag);
+
+        this.flows = new PriorityQueue<>();
+    }
+
+    @Override
+    public void transfer(int dstEntityId, long size, int tag, Object msg, Sender sender) {
+        advance(CloudSim.clock());
+        flows.add(new Flow(virtualTime + size, nextFlowId++, dstEntityId, tag, msg));
+        scheduleCompletion(sender);
+    }
+
+    @Override
+    public void processEvent(SimEvent event, Sender sender) {
+        if (event.eventTime() != completionTime)
+            return;
+
+        advance(CloudSim.clock());
+
+        // the event is due for the first transfer, whatever the rounding of the virtual time
+        virtualTime = Math.max(virtualTime, flows.peek().finish);
+        while (!flows.isEmpty() && flows.peek().finish <= virtualTime) {
+            Flow flow = flows.poll();
+            sender.send(flow.dstEntityId, latency, flow.tag, flow.msg);
+        }
+
+        scheduleCompletion(sender);
+    }
+
+    public int getActiveTransfers() {
+        return flows.size();
+    }
+
+    private void advance(double now) {
+        if (!flows.isEmpty())
+            virtualTime += (now - lastUpdate) * bandwidth / flows.size();
+
+        lastUpdate = now;
+    }
+
+    private void scheduleCompletion(Sender sender) {
+        if (flows.isEmpty()) {
+            completionTime = Double.NaN;
+            return;
+        }
+
+        double delay = Math.max(0, (flows.peek().finish - virtualTime) * flows.size() / bandwidth);
+        completionTime = CloudSim.clock() + delay;
+        sender.send(deviceId, delay, eventTag, this);
+    }
+
+    private static class Flow implements Comparable<Flow>, Serializable {
+        final double finish;
+        final long id;
+        final int dstEntityId;
+        final int tag;
+        final Object msg;
+
+        Flow(double finish, long id, int dstEntityId, int tag, Object msg) {
+            this.finish = finish;
+            this.id = id;
+            this.dstEntityId = dstEntityId;
+            this.tag = tag;
+            this.msg = msg;
+        }
+
+        @Override
+        public int compareTo(Flow other) {
+            int byFinish = Double.compare(finish, other.finish);
+            return byFinish != 0 ? byFinish : Long.compare(id, other.id);
+        }
+    }
+}
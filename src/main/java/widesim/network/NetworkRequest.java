@@ -0,0 +1,17 @@
+package widesim.network;
+
+import java.io.Serializable;
+
+class NetworkRequest implements Serializable {
+    int dstEntityId;
+    double delay;
+    int tag;
+    Object msg;
+
+    public NetworkRequest(int dstEntityId, double delay, int tag, Object msg) {
+        this.dstEntityId = dstEntityId;
+        this.delay = delay;
+        this.tag = tag;
+        this.msg = msg;
+    }
+}
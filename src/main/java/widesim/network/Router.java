@@ -0,0 +1,102 @@
+package widesim.network;
+
+import org.jgrapht.alg.util.Pair;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gives the next hop of the route between two fog devices. The devices get dense indices, so that
+ * the routes are looked up by entity id without hashing.
+ */
+public abstract class Router implements Serializable {
+
+    // entity id of each device, by index
+    protected final int[] ids;
+
+    // index of each device, by entity id, -1 for the other entities
+    private final int[] indices;
+
+    protected Router(int[] ids) {
+        this.ids = ids;
+
+        int maxId = Arrays.stream(ids).max().orElse(-1);
+        this.indices = new int[maxId + 1];
+        Arrays.fill(indices, -1);
+        for (int index = 0; index < ids.length; index++)
+            indices[ids[index]] = index;
+    }
+
+    /**
+     * Gets the next hop of the route from a device to another.
+     *
+     * @return the entity id of the next hop, or -1 if there is no route or the devices are the same
+     */
+    public int nextHop(int srcId, int dstId) {
+        int src = indexOf(srcId);
+        int dst = indexOf(dstId);
+        if (src == -1 || dst == -1 || src == dst)
+            return -1;
+
+        int hop = nextHopIndex(src, dst);
+        return hop == -1 ? -1 : ids[hop];
+    }
+
+    protected abstract int nextHopIndex(int src, int dst);
+
+    public int size() {
+        return ids.length;
+    }
+
+    protected int indexOf(int id) {
+        return id >= 0 && id < indices.length ? indices[id] : -1;
+    }
+
+    /**
+     * Gets a view of the routes as a routing table from (source id, destination id) to next hop id,
+     * for the code expecting one. The entries are only materialized if the table is iterated.
+     */
+    public Map<Pair<Integer, Integer>, Integer> asRoutingTable() {
+        return new RoutingTable(this);
+    }
+
+    private static class RoutingTable extends AbstractMap<Pair<Integer, Integer>, Integer> implements Serializable {
+        private final Router router;
+
+        RoutingTable(Router router) {
+            this.router = router;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof Pair<?, ?> pair) || !(pair.getFirst() instanceof Integer src) || !(pair.getSecond() instanceof Integer dst))
+                return null;
+
+            int hop = router.nextHop(src, dst);
+            return hop == -1 ? null : hop;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<Pair<Integer, Integer>, Integer>> entrySet() {
+            Set<Entry<Pair<Integer, Integer>, Integer>> entries = new LinkedHashSet<>();
+            for (int src : router.ids) {
+                for (int dst : router.ids) {
+                    int hop = router.nextHop(src, dst);
+                    if (hop != -1)
+                        entries.add(new SimpleImmutableEntry<>(Pair.of(src, dst), hop));
+                }
+            }
+
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package widesim.network;
+
+import widesim.core.Enums.RoutingModeEnum;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A router computing the routes to a destination only when they are needed, as the tree of the
+ * best routes of all the devices to it. The trees of the last destinations routed to are kept in a
+ * cache, the oldest tree being evicted first. As every route follows the tree of its destination,
+ * the routes never loop.
+ * <p>
+ * Devices may route concurrently when the entities of a tick run in parallel, so the cache takes
+ * no lock: a tree may be built twice by two devices at once, and both get the same tree.
+ * <p>
+ * {@link RoutingModeEnum#HOP_COUNT} builds the trees with a breadth-first search,
+ * {@link RoutingModeEnum#MIN_LATENCY} and {@link RoutingModeEnum#MAX_BOTTLENECK} with Dijkstra,
+ * the ties being broken by the number of hops.
+ */
+public class TreeRouter extends Router {
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final RoutingModeEnum routingMode;
+
+    // links into each device, by index
+    private final int[][] predecessors;
+    private final long[][] bandwidths;
+    private final double[][] latencies;
+
+    // tree of each destination, by index, null if it is not cached
+    private final AtomicReferenceArray<int[]> trees;
+
+    // cached destinations, in the order their trees were built
+    private final ConcurrentLinkedQueue<Integer> cachedDsts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numOfCachedDsts = new AtomicInteger();
+    private final int cacheSize;
+
+    /**
+     * Creates a router over the links between devices, given by index.
+     *
+     * @param ids        entity id of each device, by index
+     * @param linkSrcs   source index of each link
+     * @param linkDsts   destination index of each link
+     * @param bandwidths bandwidth of each link
+     * @param latencies  latency of each link
+     */
+    public TreeRouter(int[] ids, int[] linkSrcs, int[] linkDsts, long[] bandwidths, double[] latencies,
+                      RoutingModeEnum routingMode, int cacheSize) {
+        super(ids);
+
+        this.routingMode = routingMode;
+
+        int n = ids.length;
+        int[] degrees = new int[n];
+        for (int dst : linkDsts)
+            degrees[dst]++;
+
+        this.predecessors = new int[n][];
+        this.bandwidths = new long[n][];
+        this.latencies = new double[n][];
+        for (int i = 0; i < n; i++) {
+            predecessors[i] = new int[degrees[i]];
+            this.bandwidths[i] = new long[degrees[i]];
+            this.latencies[i] = new double[degrees[i]];
+            degrees[i] = 0;
+        }
+
+        for (int link = 0; link < linkSrcs.length; link++) {
+            int dst = linkDsts[link];
+            int position = degrees[dst]++;
+            predecessors[dst][position] = linkSrcs[link];
+            this.bandwidths[dst][position] = bandwidths[link];
+            this.latencies[dst][position] = latencies[link];
+        }
+
+        this.trees = new AtomicReferenceArray<>(n);
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    protected int nextHopIndex(int src, int dst) {
+        return treeTo(dst)[src];
+    }
+
+    private int[] treeTo(int dst) {
+        int[] tree = trees.get(dst);
+        if (tree != null)
+            return tree;
+
+        tree = routingMode == RoutingModeEnum.HOP_COUNT ? breadthFirstTree(dst) : dijkstraTree(dst);
+        if (!trees.compareAndSet(dst, null, tree))
+            return tree;
+
+        cachedDsts.add(dst);
+        if (numOfCachedDsts.incrementAndGet() > cacheSize) {
+            Integer eldest = cachedDsts.poll();
+            if (eldest != null) {
+                trees.set(eldest, null);
+                numOfCachedDsts.decrementAndGet();
+            }
+        }
+
+        return tree;
+    }
+
+    // next hop index of each device towards the destination, -1 for the devices without a route
+    private int[] breadthFirstTree(int dst) {
+        int[] tree = new int[ids.length];
+        Arrays.fill(tree, -1);
+
+        boolean[] visited = new boolean[ids.length];
+        visited[dst] = true;
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(dst);
+        while (!queue.isEmpty()) {
+            int hop = queue.poll();
+            for (int prev : predecessors[hop]) {
+                if (!visited[prev]) {
+                    visited[prev] = true;
+                    tree[prev] = hop;
+                    queue.add(prev);
+                }
+            }
+        }
+
+        return tree;
+    }
+
+    // The cost of a route is its latency, or the opposite of its bottleneck bandwidth, so that
+    // the best route always has the lowest cost
+    private int[] dijkstraTree(int dst) {
+        int n = ids.length;
+        int[] tree = new int[n];
+        Arrays.fill(tree, -1);
+
+        double[] costs = new double[n];
+        int[] hops = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        costs[dst] = routingMode == RoutingModeEnum.MAX_BOTTLENECK ? Double.NEGATIVE_INFINITY : 0;
+
+        PriorityQueue<Label> queue = new PriorityQueue<>();
+        queue.add(new Label(dst, costs[dst], 0));
+        while (!queue.isEmpty()) {
+            int hop = queue.poll().device;
+            if (settled[hop])
+                continue;
+            settled[hop] = true;
+
+            for (int i = 0; i < predecessors[hop].length; i++) {
+                int prev = predecessors[hop][i];
+                if (settled[prev])
+                    continue;
+
+                double cost = routingMode == RoutingModeEnum.MAX_BOTTLENECK
+                        ? Math.max(costs[hop], -(double) bandwidths[hop][i])
+                        : costs[hop] + latencies[hop][i];
+                if (cost < costs[prev] || (cost == costs[prev] && hops[hop] + 1 < hops[prev])) {
+                    costs[prev] = cost;
+                    hops[prev] = hops[hop] + 1;
+                    tree[prev] = hop;
+                    queue.add(new Label(prev, cost, hops[prev]));
+                }
+            }
+        }
+
+        return tree;
+    }
+
+    private static class Label implements Comparable<Label> {
+        final int device;
+        final double cost;
+        final int hops;
+
+        Label(int device, double cost, int hops) {
+            this.device = device;
+            this.cost = cost;
+            this.hops = hops;
+        }
+
+        @Override
+        public int compareTo(Label other) {
+            int byCost = Double.compare(cost, other.cost);
+            return byCost != 0 ? byCost : Integer.compare(hops, other.hops);
+        }
+    }
+}
@@ -23,6 +23,12 @@ public class Default {
         public static final double SCHEDULING_INTERVAL = 0.0;
         public static final long UP_LINK_BW = Constants.PowOfTwo.TEN;
         public static final long DOWN_LINK_BW = Constants.PowOfTwo.TEN;
+        public static final double UP_LINK_LATENCY = 0.0;
+        public static final LinkModelEnum LINK_MODEL = LinkModelEnum.FIFO;
+        public static final TransferModeEnum TRANSFER_MODE = TransferModeEnum.STORE_AND_FORWARD;
+        public static final FileCachePolicyEnum FILE_CACHE = FileCachePolicyEnum.NONE;
+        public static final int STORAGE_TRANSFER_RATE = 15; // MB/s, as the max transfer rate of HarddriveStorage
+        public static final boolean DATA_SOURCE = false;
     }
 
     public static class HOST {
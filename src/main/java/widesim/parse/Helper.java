@@ -22,6 +22,8 @@ public class Helper {
                     return (T) Long.valueOf(rawValue);
                 else if (String.class.equals(type))
                     return (T) rawValue;
+                else if (Boolean.class.equals(type))
+                    return (T) Boolean.valueOf(rawValue);
                 else
                     throw new IllegalArgumentException(String.format("getOrDefault does not support %s", type));
             } catch (NumberFormatException e) {
@@ -15,11 +15,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+import static widesim.core.Enums.enumOf;
 import static widesim.parse.Helper.getOrDefault;
 
 public class Parser {
@@ -88,6 +90,23 @@ public class Parser {
             double schedulingInterval = getOrDefault(fogDeviceObj, Tags.FogDevice.SCHEDULE_INTERVAL, Default.FOG_DEVICE.SCHEDULING_INTERVAL, Double.class);
             long upLinkBw = getOrDefault(fogDeviceObj, Tags.FogDevice.UP_LINK_BW, Default.FOG_DEVICE.UP_LINK_BW, Long.class);
             long downLinkBw = getOrDefault(fogDeviceObj, Tags.FogDevice.DOWN_LINK_BW, Default.FOG_DEVICE.DOWN_LINK_BW, Long.class);
+            double upLinkLatency = getOrDefault(fogDeviceObj, Tags.FogDevice.UP_LINK_LATENCY, Default.FOG_DEVICE.UP_LINK_LATENCY, Double.class);
+            LinkModelEnum linkModel = enumOf(LinkModelEnum.class, getOrDefault(fogDeviceObj, Tags.FogDevice.LINK_MODEL, Default.FOG_DEVICE.LINK_MODEL.toString(), String.class));
+            TransferModeEnum transferMode = enumOf(TransferModeEnum.class, getOrDefault(fogDeviceObj, Tags.FogDevice.TRANSFER_MODE, Default.FOG_DEVICE.TRANSFER_MODE.toString(), String.class));
+            FileCachePolicyEnum fileCache = enumOf(FileCachePolicyEnum.class, getOrDefault(fogDeviceObj, Tags.FogDevice.FILE_CACHE, Default.FOG_DEVICE.FILE_CACHE.toString(), String.class));
+            int storageTransferRate = getOrDefault(fogDeviceObj, Tags.FogDevice.STORAGE_TRANSFER_RATE, Default.FOG_DEVICE.STORAGE_TRANSFER_RATE, Integer.class);
+            boolean dataSource = getOrDefault(fogDeviceObj, Tags.FogDevice.DATA_SOURCE, Default.FOG_DEVICE.DATA_SOURCE, Boolean.class);
+
+            // Parse the links to the neighbors that have their own bandwidth or latency
+            Map<String, Pair<Long, Double>> neighborLinks = new HashMap<>();
+            for (Object neighbor : fogDeviceObj.getJSONArray(Tags.FogDevice.NEIGHBORS).toList()) {
+                JSONObject neighborObj = new JSONObject((Map<?, ?>)neighbor);
+                if (neighborObj.has(Tags.FogDevice.NEIGHBOR_BW) || neighborObj.has(Tags.FogDevice.NEIGHBOR_LATENCY)) {
+                    long bw = getOrDefault(neighborObj, Tags.FogDevice.NEIGHBOR_BW, upLinkBw, Long.class);
+                    double latency = getOrDefault(neighborObj, Tags.FogDevice.NEIGHBOR_LATENCY, upLinkLatency, Double.class);
+                    neighborLinks.put(neighborObj.getString(Tags.FogDevice.NEIGHBOR_ID), Pair.of(bw, latency));
+                }
+            }
 
             // Parse hosts
             List<FogHost> hosts = fogDeviceObj.getJSONArray(Tags.FogDevice.HOSTS).toList().stream().map(host -> {
@@ -140,10 +159,10 @@ public class Parser {
             } catch (ParameterException e) {
                 e.printStackTrace();
             }
-            s1.setMaxTransferRate(15);
+            s1.setMaxTransferRate(storageTransferRate);
 
             try {
-                return new FogDevice(
+                FogDevice device = new FogDevice(
                         deviceId,
                         characteristics,
                         VmAllocPolicyEnum.getPolicy(vmAllocationPolicy, hosts),
@@ -151,8 +170,16 @@ public class Parser {
                         schedulingInterval,
                         neighborIds,
                         upLinkBw,
-                        downLinkBw
+                        downLinkBw,
+                        upLinkLatency,
+                        linkModel,
+                        transferMode
                 );
+                neighborLinks.forEach((neighbor, link) -> device.addNeighborLink(neighbor, link.getFirst(), link.getSecond()));
+                device.setFileCachePolicy(fileCache);
+                device.setDataSource(dataSource);
+
+                return device;
             } catch (Exception e) {
                 e.printStackTrace();
                 throw new IllegalArgumentException(e.getMessage());
@@ -192,6 +219,8 @@ public class Parser {
             public static final String OS = "os";
             public static final String NEIGHBORS = "neighbors";
             public static final String NEIGHBOR_ID = "neighbor_id";
+            public static final String NEIGHBOR_BW = "bandwidth";
+            public static final String NEIGHBOR_LATENCY = "latency";
             public static final String TIME_ZONE = "time_zone";
             public static final String COST_PER_SEC = "cost_per_sec";
             public static final String COST_PER_STORAGE = "cost_per_storage";
@@ -203,6 +232,12 @@ public class Parser {
             public static final String HOSTS = "hosts";
             public static final String UP_LINK_BW = "up_link_bw";
             public static final String DOWN_LINK_BW = "down_link_bw";
+            public static final String UP_LINK_LATENCY = "up_link_latency";
+            public static final String LINK_MODEL = "link_model";
+            public static final String TRANSFER_MODE = "transfer_mode";
+            public static final String FILE_CACHE = "file_cache";
+            public static final String STORAGE_TRANSFER_RATE = "storage_transfer_rate";
+            public static final String DATA_SOURCE = "data_source";
         }
 
         public static class Host {
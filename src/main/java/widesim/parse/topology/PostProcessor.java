@@ -1,12 +1,21 @@
 package widesim.parse.topology;
 
 import widesim.analyze.TopologyAnalyzer;
+import widesim.entity.DeviceDirectory;
 import widesim.entity.FogDevice;
 import widesim.entity.FogHost;
+import widesim.core.Enums.RoutingModeEnum;
+import widesim.network.Link;
+import widesim.network.MatrixRouter;
+import widesim.network.Router;
+import widesim.network.TreeRouter;
 import org.jgrapht.alg.util.Pair;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public class PostProcessor {
 
@@ -17,58 +26,77 @@ public class PostProcessor {
                 host.setDatacenter(fogDevice);
     }
 
+    public static DeviceDirectory setDeviceDirectoryOfFogDevices(List<FogDevice> fogDevices) {
+        DeviceDirectory directory = new DeviceDirectory(fogDevices);
+        for (FogDevice fogDevice : fogDevices)
+            fogDevice.setDeviceDirectory(directory);
+
+        return directory;
+    }
+
     public static TopologyAnalyzer buildTopologyAnalyzer(List<FogDevice> fogDevices) {
         // Create topology graph
         TopologyAnalyzer analyzer = new TopologyAnalyzer();
+        Map<String, FogDevice> devicesByName = fogDevices.stream().collect(Collectors.toMap(FogDevice::getName, Function.identity()));
         for (FogDevice fogDevice : fogDevices) {
             for (String neighbor : fogDevice.getNeighbors()) {
                 analyzer.addVertex(fogDevice.getName());
                 analyzer.addVertex(neighbor);
-                analyzer.addEdge(fogDevice.getName(), neighbor);
+
+                // The data to a neighbor goes through the link to it, then the down link of the neighbor
+                Link link = fogDevice.getLinkTo(neighbor);
+                FogDevice neighborDevice = devicesByName.get(neighbor);
+                long bandwidth = neighborDevice == null ? link.getBandwidth() : Math.min(link.getBandwidth(), neighborDevice.getDownLinkBw());
+                analyzer.addEdge(fogDevice.getName(), neighbor, bandwidth, link.getLatency());
             }
         }
 
         return analyzer;
     }
 
+    public static TreeRouter buildRouter(List<FogDevice> fogDevices, TopologyAnalyzer analyzer, RoutingModeEnum routingMode) {
+        return analyzer.buildRouter(idsByName(fogDevices), routingMode, TreeRouter.DEFAULT_CACHE_SIZE);
+    }
+
+    public static void setRouterOfFogDevices(List<FogDevice> fogDevices, Router router) {
+        for (FogDevice fogDevice : fogDevices)
+            fogDevice.setRouter(router);
+    }
+
     public static void setRoutingTableOfFogDevices(List<FogDevice> fogDevices,
                                                    HashMap<Pair<String, String>, String> routingTable) {
-        for (FogDevice src : fogDevices) {
-            for (FogDevice dst : fogDevices) {
-                String hop = routingTable.getOrDefault(Pair.of(src.getName(), dst.getName()), null);
-                src.addRoute(dst.getName(), hop);
+        // Turn the routing table into a matrix of device indices
+        int n = fogDevices.size();
+        Map<String, Integer> indices = new HashMap<>();
+        for (int index = 0; index < n; index++)
+            indices.put(fogDevices.get(index).getName(), index);
+
+        int[] nextHops = new int[n * n];
+        for (int src = 0; src < n; src++) {
+            for (int dst = 0; dst < n; dst++) {
+                String hop = routingTable.get(Pair.of(fogDevices.get(src).getName(), fogDevices.get(dst).getName()));
+                nextHops[src * n + dst] = hop == null ? -1 : indices.getOrDefault(hop, -1);
             }
         }
+
+        int[] ids = fogDevices.stream().mapToInt(FogDevice::getId).toArray();
+        setRouterOfFogDevices(fogDevices, new MatrixRouter(ids, nextHops));
     }
 
     public static HashMap<Pair<Integer, Integer>, Integer> convertNameToId(List<FogDevice> fogDevices,
                                                                            HashMap<Pair<String, String>, String> routingTable) {
-        HashMap<Pair<Integer, Integer>, Integer> convertedRoutingTable = new HashMap<>();
-
-//        System.out.println(fogDevices);
+        Map<String, Integer> ids = idsByName(fogDevices);
 
-        for (Pair<String, String> srcDst: routingTable.keySet()) {
-            String srcName = srcDst.getFirst();
-            String dstName = srcDst.getSecond();
-            String nextHopName = routingTable.get(srcDst);
-//            System.out.printf("src: %s - dst: %s - nxt: %s\n", srcName, dstName, nextHopName);
-
-            Integer srcId = IdOfName(srcName, fogDevices);
-            Integer dstId = IdOfName(dstName, fogDevices);
-            Integer nextHopId = IdOfName(nextHopName, fogDevices);
-
-            convertedRoutingTable.put(Pair.of(srcId, dstId), nextHopId);
+        HashMap<Pair<Integer, Integer>, Integer> convertedRoutingTable = new HashMap<>();
+        for (var entry : routingTable.entrySet()) {
+            Pair<String, String> srcDst = entry.getKey();
+            convertedRoutingTable.put(Pair.of(ids.get(srcDst.getFirst()), ids.get(srcDst.getSecond())), ids.get(entry.getValue()));
         }
 
         return convertedRoutingTable;
     }
 
-    private static Integer IdOfName(String name, List<FogDevice> fogDevices) {
-        var fd = fogDevices.stream().filter(fogDevice -> fogDevice.getName().equals(name)).findFirst();
-        if (fd.isEmpty()) {
-            return null;
-        } else {
-            return fd.get().getId();
-        }
+    private static Map<String, Integer> idsByName(List<FogDevice> fogDevices) {
+        return fogDevices.stream().collect(Collectors.toMap(FogDevice::getName, FogDevice::getId));
     }
 }
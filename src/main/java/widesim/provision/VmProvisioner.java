@@ -4,11 +4,12 @@ import widesim.computation.Task;
 import org.cloudbus.cloudsim.Vm;
 import org.jgrapht.alg.util.Triple;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public interface VmProvisioner {
+public interface VmProvisioner extends Serializable {
     Triple<List<Integer>, List<Integer>, List<Integer>> provision(
             List<Vm> failedVms,
             List<Vm> createdVms,
@@ -0,0 +1,133 @@
+package widesim.storage;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The files kept by a fog device after they have been transferred to it, so that they are not
+ * transferred again while they stay in the cache. A file is identified by its workflow and its
+ * name, and versioned by the task that produced it and its size, so that the file a task produces
+ * again on a later cycle is found in the cache, while another version of a cached file replaces it.
+ * When a file does not fit, the files chosen by the eviction policy are removed until it does.
+ */
+public abstract class FileCache implements Serializable {
+
+    protected final long capacity;
+
+    // version and size of each cached file
+    private final Map<FileKey, Entry> entries;
+    private long usedSpace;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    protected FileCache(long capacity) {
+        this.capacity = capacity;
+
+        this.entries = new HashMap<>();
+    }
+
+    /**
+     * Looks a file up, counting a hit or a miss.
+     *
+     * @return whether the version of the file produced by this task with this size is in the cache
+     */
+    public boolean lookup(FileKey file, int taskId, long size) {
+        Entry entry = entries.get(file);
+        if (entry != null && entry.isVersion(taskId, size)) {
+            hits++;
+            accessed(file);
+            return true;
+        }
+
+        misses++;
+        return false;
+    }
+
+    /**
+     * Adds the version of a file produced by a task to the cache, evicting other files if needed.
+     * A file larger than the cache is not kept.
+     */
+    public void add(FileKey file, int taskId, long size) {
+        Entry entry = entries.get(file);
+        if (entry != null) {
+            if (entry.isVersion(taskId, size)) {
+                accessed(file);
+                return;
+            }
+
+            remove(file);
+        }
+
+        if (size > capacity)
+            return;
+
+        while (usedSpace + size > capacity) {
+            remove(victim());
+            evictions++;
+        }
+
+        entries.put(file, new Entry(taskId, size));
+        usedSpace += size;
+        added(file);
+    }
+
+    public boolean contains(FileKey file) {
+        return entries.containsKey(file);
+    }
+
+    private void remove(FileKey file) {
+        usedSpace -= entries.remove(file).size;
+        removed(file);
+    }
+
+    // Bookkeeping of the eviction policy
+    protected abstract void added(FileKey file);
+
+    protected abstract void accessed(FileKey file);
+
+    protected abstract void removed(FileKey file);
+
+    // the file to evict next, the cache not being empty
+    protected abstract FileKey victim();
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getUsedSpace() {
+        return usedSpace;
+    }
+
+    public int getNumOfFiles() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    private static class Entry implements Serializable {
+        final int taskId;
+        final long size;
+
+        Entry(int taskId, long size) {
+            this.taskId = taskId;
+            this.size = size;
+        }
+
+        boolean isVersion(int taskId, long size) {
+            return this.taskId == taskId && this.size == size;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package widesim.storage;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Identifies a file kept by a file cache. The files of different workflows are different files,
+ * even when they have the same name.
+ */
+public final class FileKey implements Serializable {
+
+    private final String workflowId;
+    private final String name;
+
+    public FileKey(String workflowId, String name) {
+        this.workflowId = workflowId;
+        this.name = name;
+    }
+
+    public String getWorkflowId() {
+        return workflowId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof FileKey fileKey))
+            return false;
+
+        return Objects.equals(workflowId, fileKey.workflowId) && name.equals(fileKey.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(workflowId, name);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s", workflowId, name);
+    }
+}
@@ -0,0 +1,72 @@
+package widesim.storage;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A file cache evicting the least frequently used file first, the least recently used one among
+ * the files used as often.
+ */
+public class LfuFileCache extends FileCache {
+
+    private final Map<FileKey, Usage> usages;
+
+    // cached files, from the next one to evict
+    private final TreeSet<Usage> order;
+
+    private long clock;
+
+    public LfuFileCache(long capacity) {
+        super(capacity);
+
+        this.usages = new HashMap<>();
+        this.order = new TreeSet<>();
+    }
+
+    @Override
+    protected void added(FileKey file) {
+        Usage usage = new Usage(file, 1, clock++);
+        usages.put(file, usage);
+        order.add(usage);
+    }
+
+    @Override
+    protected void accessed(FileKey file) {
+        Usage usage = usages.get(file);
+        order.remove(usage);
+
+        usage = new Usage(file, usage.count + 1, clock++);
+        usages.put(file, usage);
+        order.add(usage);
+    }
+
+    @Override
+    protected void removed(FileKey file) {
+        order.remove(usages.remove(file));
+    }
+
+    @Override
+    protected FileKey victim() {
+        return order.first().file;
+    }
+
+    private static class Usage implements Comparable<Usage>, Serializable {
+        final FileKey file;
+        final long count;
+        final long lastUse;
+
+        Usage(FileKey file, long count, long lastUse) {
+            this.file = file;
+            this.count = count;
+            this.lastUse = lastUse;
+        }
+
+        @Override
+        public int compareTo(Usage other) {
+            int byCount = Long.compare(count, other.count);
+            return byCount != 0 ? byCount : Long.compare(lastUse, other.lastUse);
+        }
+    }
+}
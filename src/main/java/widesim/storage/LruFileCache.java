@@ -0,0 +1,39 @@
+package widesim.storage;
+
+import java.util.LinkedHashSet;
+
+/**
+ * A file cache evicting the least recently used file first.
+ */
+public class LruFileCache extends FileCache {
+
+    // cached files, from the least to the most recently used
+    private final LinkedHashSet<FileKey> files;
+
+    public LruFileCache(long capacity) {
+        super(capacity);
+
+        this.files = new LinkedHashSet<>();
+    }
+
+    @Override
+    protected void added(FileKey file) {
+        files.add(file);
+    }
+
+    @Override
+    protected void accessed(FileKey file) {
+        files.remove(file);
+        files.add(file);
+    }
+
+    @Override
+    protected void removed(FileKey file) {
+        files.remove(file);
+    }
+
+    @Override
+    protected FileKey victim() {
+        return files.iterator().next();
+    }
+}
@@ -0,0 +1,146 @@
+package org.cloudbus.cloudsim.core;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateFrom;
+import org.cloudbus.cloudsim.core.predicates.PredicateNotType;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeferredQueueTest {
+
+    // The data of an event numbers it
+    private static SimEvent newEvent(double time, int src, int tag, int number) {
+        return new SimEvent(SimEvent.SEND, time, src, 0, tag, number);
+    }
+
+    private static List<Object> numbers(DeferredQueue queue) {
+        List<Object> numbers = new ArrayList<>();
+        for (SimEvent event : queue)
+            numbers.add(event.getData());
+
+        return numbers;
+    }
+
+    @Test
+    void keepsOrderWhenWrappingAround() {
+        var queue = new DeferredQueue();
+
+        // Removing the first events moves the head of the ring buffer of 16 slots, so that the
+        // events added next wrap around its end without growing it
+        for (int i = 0; i < 10; i++)
+            queue.addEvent(newEvent(i, i % 2, i % 3, i));
+        for (int i = 0; i < 6; i++)
+            assertEquals(i, queue.select(CloudSim.SIM_ANY).getData());
+        for (int i = 10; i < 20; i++)
+            queue.addEvent(newEvent(i, i % 2, i % 3, i));
+
+        // An earlier event is moved back across the end of the buffer
+        queue.addEvent(newEvent(8.5, 1, 2, 20));
+
+        assertEquals(List.of(6, 7, 8, 20, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19), numbers(queue));
+        assertEquals(15, queue.size());
+
+        assertEquals(8, queue.first(new PredicateType(2)).getData());
+        assertEquals(7, queue.first(new PredicateFrom(1)).getData());
+        assertEquals(5, queue.count(new PredicateType(0)));
+
+        assertEquals(6, queue.select(new PredicateType(0)).getData());
+        assertEquals(9, queue.select(new PredicateType(0)).getData());
+        assertEquals(List.of(7, 8, 20, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19), numbers(queue));
+        assertEquals(3, queue.count(new PredicateType(0)));
+    }
+
+    @Test
+    void countsAfterRemove() {
+        var queue = new DeferredQueue();
+        int unindexedTag = 1 << 20;
+        queue.addEvent(newEvent(1, 1, 5, 0));
+        queue.addEvent(newEvent(2, 2, 5, 1));
+        queue.addEvent(newEvent(3, 1, 6, 2));
+        queue.addEvent(newEvent(4, -1, unindexedTag, 3));
+        queue.addEvent(newEvent(5, 2, 5, 4));
+
+        assertEquals(3, queue.count(new PredicateType(5)));
+        // A repeated tag or source counts its events once
+        assertEquals(3, queue.count(new PredicateType(new int[] { 5, 5 })));
+        assertEquals(4, queue.count(new PredicateType(new int[] { 5, 6, 5 })));
+        assertEquals(2, queue.count(new PredicateFrom(new int[] { 1, 1 })));
+        assertEquals(1, queue.count(new PredicateType(unindexedTag)));
+        assertEquals(1, queue.count(new PredicateFrom(-1)));
+
+        assertEquals(1, queue.select(new PredicateFrom(2)).getData());
+        assertEquals(0, queue.select(new PredicateType(5)).getData());
+        assertEquals(3, queue.select(new PredicateType(unindexedTag)).getData());
+
+        assertEquals(1, queue.count(new PredicateType(5)));
+        assertEquals(2, queue.count(new PredicateType(new int[] { 5, 6, 5 })));
+        assertEquals(1, queue.count(new PredicateFrom(1)));
+        assertEquals(1, queue.count(new PredicateFrom(2)));
+        assertEquals(0, queue.count(new PredicateType(unindexedTag)));
+        assertEquals(0, queue.count(new PredicateFrom(-1)));
+        assertEquals(1, queue.count(new PredicateNotType(5)));
+        assertEquals(2, queue.size());
+
+        assertEquals(4, queue.select(new PredicateType(5)).getData());
+        assertNull(queue.select(new PredicateType(5)));
+        assertEquals(0, queue.count(new PredicateType(5)));
+
+        queue.clear();
+        assertEquals(0, queue.count(CloudSim.SIM_ANY));
+        assertNull(queue.first(new PredicateFrom(1)));
+    }
+
+    @Test
+    void matchesLinearScan() {
+        var random = new Random(42);
+
+        for (int trial = 0; trial < 200; trial++) {
+            var queue = new DeferredQueue();
+            List<SimEvent> expected = new ArrayList<>();
+            double time = 0;
+
+            for (int step = 0; step < 300; step++) {
+                if (random.nextInt(10) < 4) {
+                    // Mostly in time order, some events earlier than the last one
+                    double eventTime = random.nextInt(10) == 0 ? time - random.nextInt(3) : (time += random.nextInt(2));
+                    int tag = random.nextInt(20) == 0 ? 70000 + random.nextInt(3) : random.nextInt(6);
+                    int src = random.nextInt(20) == 0 ? -1 : random.nextInt(5);
+                    SimEvent event = newEvent(eventTime, src, tag, step);
+                    queue.addEvent(event);
+
+                    int position = expected.size();
+                    while (position > 0 && expected.get(position - 1).eventTime() > eventTime)
+                        position--;
+                    expected.add(position, event);
+                    continue;
+                }
+
+                Predicate p = switch (random.nextInt(6)) {
+                    case 0 -> new PredicateType(random.nextInt(7));
+                    case 1 -> new PredicateType(new int[] { random.nextInt(7), random.nextInt(7), 70000 + random.nextInt(3) });
+                    case 2 -> new PredicateFrom(random.nextInt(6));
+                    case 3 -> new PredicateFrom(new int[] { random.nextInt(6), random.nextInt(6), -1 });
+                    case 4 -> new PredicateNotType(random.nextInt(6));
+                    default -> CloudSim.SIM_ANY;
+                };
+
+                SimEvent first = expected.stream().filter(p::match).findFirst().orElse(null);
+                assertEquals(expected.stream().filter(p::match).count(), queue.count(p));
+                assertSame(first, queue.first(p));
+                assertSame(first, queue.select(p));
+                expected.remove(first);
+
+                assertEquals(expected.size(), queue.size());
+                List<SimEvent> events = new ArrayList<>();
+                queue.forEach(events::add);
+                assertEquals(expected, events);
+            }
+        }
+    }
+}
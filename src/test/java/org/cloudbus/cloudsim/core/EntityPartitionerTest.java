@@ -0,0 +1,171 @@
+package org.cloudbus.cloudsim.core;
+
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import widesim.computation.Task;
+import widesim.entity.FogDevicePartitioner;
+import widesim.message.ExecuteTaskMsg;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityPartitionerTest {
+
+    private static class Holder implements Serializable {
+        private final SimEntity entity;
+
+        private Holder(SimEntity entity) {
+            this.entity = entity;
+        }
+    }
+
+    // Sends a list to an entity when it starts, and keeps the list received from it
+    private static class Peer extends SimEntity {
+        final List<Integer> sent = new ArrayList<>(List.of(1, 2));
+        Peer peer;
+        Object received;
+
+        Peer(String name) {
+            super(name);
+        }
+
+        @Override
+        public void startEntity() {
+            send(peer.getId(), 1, 0, sent);
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            received = ev.getData();
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    // Copies the data sent to another logical process, each entity having its own one if separate
+    private static Peer[] runPeers(boolean separate) {
+        var partitioner = new EntityPartitioner() {
+            @Override
+            public int getLogicalProcess(SimEntity entity) {
+                return separate ? entity.getId() : 0;
+            }
+
+            @Override
+            public Object handOver(SimEvent ev) {
+                return EntityPartitioner.copy(ev.getData());
+            }
+        };
+        var peers = new Peer[] { new Peer("a"), new Peer("b") };
+        peers[0].peer = peers[1];
+        peers[1].peer = peers[0];
+        CloudSim.setTickParallelism(2, partitioner);
+        CloudSim.startSimulation();
+
+        return peers;
+    }
+
+    @BeforeEach
+    void setUp() {
+        CloudSim.init(1, Calendar.getInstance(), false);
+    }
+
+    private static Task newTask(int id) {
+        var full = new UtilizationModelFull();
+        return new Task(id, 1000, 1, 0, 0, full, full, full, new ArrayList<>(), 0, 0, "w");
+    }
+
+    private static SimEvent newEvent(Object data) {
+        return new SimEvent(SimEvent.SEND, 0, 1, 2, 0, data);
+    }
+
+    @Test
+    void handedOverTaskIsIndependentOfTheSentOne() {
+        var task = newTask(3);
+        var msg = new ExecuteTaskMsg(task, 0);
+
+        var received = (ExecuteTaskMsg) new FogDevicePartitioner().handOver(newEvent(msg));
+
+        assertNotSame(msg, received);
+        assertNotSame(task, received.getTask());
+        assertEquals(3, received.getTask().getTaskId());
+
+        // The sender and the receiver change their own task only
+        task.setCycle(5);
+        received.getTask().setCycle(7);
+        assertEquals(5, task.getCycle());
+        assertEquals(7, received.getTask().getCycle());
+    }
+
+    @Test
+    void valuesAreHandedOverAsIs() {
+        var partitioner = new FogDevicePartitioner();
+        Integer id = 12345;
+        String name = "name";
+
+        assertSame(id, partitioner.handOver(newEvent(id)));
+        assertSame(name, partitioner.handOver(newEvent(name)));
+    }
+
+    @Test
+    void defaultHandOverSharesTheData() {
+        var task = newTask(1);
+        EntityPartitioner partitioner = entity -> 0;
+
+        assertSame(task, partitioner.handOver(newEvent(task)));
+    }
+
+    @Test
+    void tickParallelismHandsOverTheDataOfOtherProcesses() {
+        var peers = runPeers(true);
+
+        for (Peer peer : peers) {
+            assertNotSame(peer.peer.sent, peer.received);
+            assertEquals(List.of(1, 2), peer.received);
+        }
+    }
+
+    @Test
+    void tickParallelismSharesTheDataOfAProcess() {
+        var peers = runPeers(false);
+
+        for (Peer peer : peers)
+            assertSame(peer.peer.sent, peer.received);
+    }
+
+    @Test
+    void copyKeepsSharedReferences() {
+        var task = newTask(1);
+        var pair = new Object[] { task, task };
+
+        var copy = (Object[]) EntityPartitioner.copy(pair);
+
+        assertNotSame(task, copy[0]);
+        assertSame(copy[0], copy[1]);
+    }
+
+    @Test
+    void copyRejectsDataReferringToAnEntity() {
+        var entity = new SimEntity("entity") {
+            @Override
+            public void startEntity() {
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> EntityPartitioner.copy(new Holder(entity)));
+    }
+}
@@ -0,0 +1,77 @@
+package org.cloudbus.cloudsim.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventTraceTest {
+
+    private static final int HOPS = 20;
+
+    @TempDir
+    Path dir;
+
+    // Runs two pingers with their events recorded into a trace of a given capacity
+    private File trace(int capacity) throws Exception {
+        var file = dir.resolve("trace" + capacity + ".bin").toFile();
+        var simulation = new Simulation();
+        simulation.init(0, Calendar.getInstance(), false);
+        Pinger.pair(HOPS, 1);
+
+        try (var trace = new EventTrace(file, capacity)) {
+            simulation.setEventTrace(trace);
+            simulation.startSimulation();
+        }
+        return file;
+    }
+
+    // time, source, destination, tag and payload type of each record
+    private static List<String> records(EventTraceReader reader) {
+        var records = new ArrayList<String>();
+        for (int i = 0; i < reader.size(); i++)
+            records.add(reader.getTime(i) + " " + reader.getEntityName(reader.getSource(i)) + " "
+                    + reader.getEntityName(reader.getDestination(i)) + " " + reader.getTag(i) + " " + reader.getPayloadType(i));
+
+        return records;
+    }
+
+    @Test
+    void traceRecordsTheDeliveredEvents() throws Exception {
+        try (var reader = new EventTraceReader(trace(1000))) {
+            var records = records(reader);
+            assertEquals(reader.getCount(), reader.size());
+
+            // Every ping is recorded in the order of delivery
+            var pings = records.stream().filter(record -> record.endsWith(" " + Pinger.PING + " java.lang.Integer")).toList();
+            assertEquals(2 * (HOPS + 1), pings.size());
+            assertEquals("1.0 ping pong 1 java.lang.Integer", pings.get(0));
+            assertEquals("2.0 pong ping 1 java.lang.Integer", pings.get(1));
+            for (int i = 1; i < reader.size(); i++) {
+                assertTrue(reader.getTime(i - 1) <= reader.getTime(i));
+                assertTrue(reader.getSerial(i - 1) != reader.getSerial(i));
+            }
+        }
+    }
+
+    @Test
+    void fullTraceKeepsTheLastEvents() throws Exception {
+        List<String> all;
+        try (var reader = new EventTraceReader(trace(1000))) {
+            all = records(reader);
+        }
+
+        try (var reader = new EventTraceReader(trace(10))) {
+            assertEquals(10, reader.size());
+            assertEquals(all.size(), reader.getCount());
+            assertEquals(all.subList(all.size() - 10, all.size()), records(reader));
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.getTime(10));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.cloudbus.cloudsim.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapFutureQueueTest {
+
+    // The tag identifies an event, so that the same events can be added to both queues
+    private static SimEvent newEvent(double time, int tag) {
+        return new SimEvent(SimEvent.SEND, time, 0, 0, tag, null);
+    }
+
+    private static List<Integer> pollAll(FutureEventQueue queue) {
+        List<Integer> tags = new ArrayList<>();
+        for (SimEvent event = queue.poll(); event != null; event = queue.poll())
+            tags.add(event.getTag());
+
+        return tags;
+    }
+
+    @Test
+    void ordersByTimeThenSerial() {
+        var queue = new HeapFutureQueue(1);
+        queue.addEvent(newEvent(3, 0));
+        queue.addEvent(newEvent(1, 1));
+        queue.addEvent(newEvent(2, 2));
+        queue.addEvent(newEvent(1, 3));
+
+        assertEquals(List.of(1, 3, 2, 0), pollAll(queue));
+    }
+
+    @Test
+    void keepsSerialTiesInInsertionOrder() {
+        var heap = new HeapFutureQueue();
+        var tree = new FutureQueue();
+        for (FutureEventQueue queue : List.of(heap, tree)) {
+            // The first added event and the ones added first all have a serial of 0
+            queue.addEvent(newEvent(5, 0));
+            queue.addEvent(newEvent(5, 1));
+            queue.addEventFirst(newEvent(5, 2));
+            queue.addEventFirst(newEvent(5, 3));
+            queue.addEvent(newEvent(4, 4));
+            queue.addEventFirst(newEvent(4, 5));
+        }
+
+        List<Integer> expected = List.of(5, 4, 0, 2, 3, 1);
+        assertEquals(expected, pollAll(tree));
+        assertEquals(expected, pollAll(heap));
+    }
+
+    @Test
+    void keepsAllSerialZeroTies() {
+        var heap = new HeapFutureQueue();
+        var tree = new FutureQueue();
+        List<SimEvent> events = new ArrayList<>();
+        for (FutureEventQueue queue : List.of(heap, tree)) {
+            for (int tag = 0; tag < 3; tag++) {
+                SimEvent event = newEvent(1, tag);
+                events.add(event);
+                queue.addEventFirst(event);
+            }
+            // The first event added has a serial of 0 too
+            queue.addEvent(newEvent(1, 3));
+        }
+
+        // No tied event replaces another
+        assertEquals(4, heap.size());
+        assertEquals(4, tree.size());
+
+        assertTrue(heap.remove(events.get(1)));
+        assertFalse(heap.remove(events.get(1)));
+        assertEquals(List.of(0, 2, 3), pollAll(heap));
+        assertEquals(List.of(0, 1, 2, 3), pollAll(tree));
+    }
+
+    @Test
+    void matchesTreeSetQueue() {
+        var random = new Random(42);
+        var heap = new HeapFutureQueue(2);
+        var tree = new FutureQueue();
+
+        for (int step = 0; step < 20000; step++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                // Few distinct times, so that ties are common
+                double time = random.nextInt(20);
+                if (random.nextInt(4) == 0) {
+                    heap.addEventFirst(newEvent(time, step));
+                    tree.addEventFirst(newEvent(time, step));
+                } else {
+                    heap.addEvent(newEvent(time, step));
+                    tree.addEvent(newEvent(time, step));
+                }
+            } else if (op < 9) {
+                SimEvent expected = tree.poll();
+                SimEvent polled = heap.poll();
+                assertEquals(expected == null ? null : expected.getTag(), polled == null ? null : polled.getTag());
+            } else {
+                List<SimEvent> treeBatch = new ArrayList<>();
+                List<SimEvent> heapBatch = new ArrayList<>();
+                assertEquals(tree.drainFirstBatch(treeBatch), heap.drainFirstBatch(heapBatch));
+                assertEquals(tags(treeBatch), tags(heapBatch));
+            }
+
+            assertEquals(tree.size(), heap.size());
+        }
+
+        assertEquals(pollAll(tree), pollAll(heap));
+    }
+
+    // The tree set of FutureQueue can't find some of the events tied on time and serial, so the
+    // removals are checked against a sorted list instead
+    @Test
+    void removeKeepsTheOrderOfTheOtherEvents() {
+        var random = new Random(7);
+        var heap = new HeapFutureQueue(2);
+        List<SimEvent> events = new ArrayList<>();
+        List<SimEvent> expected = new ArrayList<>();
+
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                SimEvent event = newEvent(random.nextInt(20), step);
+                events.add(event);
+                if (random.nextInt(4) == 0) {
+                    heap.addEventFirst(event);
+                    // After the events at an earlier time and the ones added first at the same time
+                    int index = 0;
+                    while (index < expected.size() && (expected.get(index).eventTime() < event.eventTime()
+                            || (expected.get(index).eventTime() == event.eventTime() && expected.get(index).getSerial() == 0)))
+                        index++;
+                    expected.add(index, event);
+                } else {
+                    heap.addEvent(event);
+                    int index = expected.size();
+                    while (index > 0 && expected.get(index - 1).eventTime() > event.eventTime())
+                        index--;
+                    expected.add(index, event);
+                }
+            } else if (op < 8 && !events.isEmpty()) {
+                SimEvent event = events.get(random.nextInt(events.size()));
+                assertEquals(expected.remove(event), heap.remove(event));
+            } else {
+                SimEvent polled = heap.poll();
+                assertSame(expected.isEmpty() ? null : expected.remove(0), polled);
+            }
+
+            assertEquals(expected.size(), heap.size());
+            assertSame(expected.isEmpty() ? null : expected.get(0), heap.first());
+        }
+    }
+
+    private static List<Integer> tags(List<SimEvent> events) {
+        return events.stream().map(SimEvent::getTag).toList();
+    }
+}
@@ -0,0 +1,52 @@
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Sends a ping to its peer when it starts, and sends back every ping it gets with one more hop,
+// until the pings have made a number of hops
+class Pinger extends SimEntity {
+
+    static final int PING = 1;
+
+    private final int hops;
+    private final double delay;
+    private int peerId;
+
+    // time, source and hop of each ping received
+    final List<String> received = new ArrayList<>();
+
+    private Pinger(String name, int hops, double delay) {
+        super(name);
+
+        this.hops = hops;
+        this.delay = delay;
+    }
+
+    // Two pingers sending each other pings, the second one with twice the delay of the first
+    static Pinger[] pair(int hops, double delay) {
+        var pingers = new Pinger[] { new Pinger("ping", hops, delay), new Pinger("pong", hops, 2 * delay) };
+        pingers[0].peerId = pingers[1].getId();
+        pingers[1].peerId = pingers[0].getId();
+
+        return pingers;
+    }
+
+    @Override
+    public void startEntity() {
+        schedule(peerId, delay, PING, 0);
+    }
+
+    @Override
+    public void processEvent(SimEvent ev) {
+        int hop = (Integer) ev.getData();
+        received.add(CloudSim.clock() + " " + ev.getSource() + " " + hop);
+
+        if (hop < hops)
+            schedule(peerId, delay, PING, hop + 1);
+    }
+
+    @Override
+    public void shutdownEntity() {
+    }
+}
@@ -0,0 +1,98 @@
+package org.cloudbus.cloudsim.core;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunUntilTest {
+
+    private static final int HOPS = 20;
+
+    private Simulation simulation;
+    private Pinger[] pingers;
+
+    private void newSimulation() {
+        simulation = new Simulation();
+        simulation.init(0, Calendar.getInstance(), false);
+        pingers = Pinger.pair(HOPS, 1);
+    }
+
+    private List<String> received() {
+        List<String> received = new ArrayList<>(pingers[0].received);
+        received.addAll(pingers[1].received);
+        return received;
+    }
+
+    private List<String> runToTheEnd() {
+        newSimulation();
+        simulation.startSimulation();
+        return received();
+    }
+
+    @Test
+    void runUntilStopsAtTheTimeAndContinues() {
+        var expected = runToTheEnd();
+
+        newSimulation();
+        assertTrue(simulation.runUntil(4.5));
+        assertEquals(4.5, simulation.clock());
+        // ping gets pings at 2 and 3, pong at 1, 3 and 4
+        assertEquals(2, pingers[0].received.size());
+        assertEquals(3, pingers[1].received.size());
+
+        assertTrue(simulation.runUntil(10));
+        assertEquals(10, simulation.clock());
+        assertTrue(pingers[0].received.stream().allMatch(ping -> Double.parseDouble(ping.split(" ")[0]) <= 10));
+
+        assertFalse(simulation.runUntil(1000));
+        assertEquals(expected, received());
+        assertThrows(IllegalArgumentException.class, () -> simulation.runUntil(1));
+    }
+
+    @Test
+    void stepDeliversOneEventAtATime() {
+        var expected = runToTheEnd();
+
+        newSimulation();
+        int steps = 0;
+        while (simulation.step(1)) {
+            steps++;
+            // the events delivered so far are handled on the next step
+            assertTrue(received().size() <= steps);
+        }
+
+        assertEquals(expected, received());
+        assertEquals(expected.size(), steps);
+        assertThrows(IllegalArgumentException.class, () -> simulation.step(0));
+    }
+
+    @Test
+    void runUntilPredicateStopsAfterTheMatchingEvent() {
+        var expected = runToTheEnd();
+
+        newSimulation();
+        var tenthHop = new Predicate() {
+            @Override
+            public boolean match(SimEvent event) {
+                return event.getTag() == Pinger.PING && (Integer) event.getData() == 10;
+            }
+        };
+        assertTrue(simulation.runUntil(tenthHop));
+        double clock = simulation.clock();
+
+        // The matching event is handled once the simulation continues
+        assertTrue(received().stream().noneMatch(ping -> ping.endsWith(" 10")));
+        assertTrue(simulation.step(1));
+        var tenth = received().stream().filter(ping -> ping.endsWith(" 10")).toList();
+        assertEquals(1, tenth.size());
+        assertTrue(tenth.get(0).startsWith(clock + " "));
+
+        simulation.startSimulation();
+        assertEquals(expected, received());
+    }
+}
@@ -0,0 +1,104 @@
+package org.cloudbus.cloudsim.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimEventPoolTest {
+
+    // Keeps every event it gets, retaining them if asked to
+    private static class Keeper extends SimEntity {
+        final boolean retain;
+        final List<SimEvent> events = new ArrayList<>();
+
+        Keeper(boolean retain) {
+            super("keeper");
+
+            this.retain = retain;
+        }
+
+        @Override
+        public void startEntity() {
+            for (int i = 0; i < 10; i++)
+                schedule(getId(), i, Pinger.PING, i);
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            if (retain)
+                ev.retain();
+
+            events.add(ev);
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    private static List<String> runPingers(boolean pooling) {
+        CloudSim.init(0, Calendar.getInstance(), false);
+        CloudSim.setEventPooling(pooling);
+        var pingers = Pinger.pair(100, 0.5);
+        CloudSim.startSimulation();
+
+        List<String> received = new ArrayList<>(pingers[0].received);
+        received.addAll(pingers[1].received);
+        return received;
+    }
+
+    private static List<SimEvent> runKeeper(boolean retain) {
+        CloudSim.init(0, Calendar.getInstance(), false);
+        CloudSim.setEventPooling(true);
+        var keeper = new Keeper(retain);
+        CloudSim.startSimulation();
+
+        return keeper.events;
+    }
+
+    @Test
+    void pooledSimulationDeliversTheSameEvents() {
+        var received = runPingers(false);
+
+        assertEquals(202, received.size());
+        assertEquals(received, runPingers(true));
+    }
+
+    @Test
+    void retainedEventsAreNotRecycled() {
+        var events = runKeeper(true);
+
+        assertEquals(10, events.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, events.get(i).getData());
+            assertEquals(i, events.get(i).eventTime());
+        }
+
+        // The other events are recycled once processed
+        assertTrue(runKeeper(false).stream().allMatch(ev -> ev.getData() == null));
+    }
+
+    @Test
+    void poolGivesBackTheReleasedEventsOnly() {
+        var pool = new SimEventPool(1);
+        var released = pool.obtain(SimEvent.SEND, 1, 2, 3, 4, "data");
+        var retained = pool.obtain(SimEvent.SEND, 1, 2, 3, 4, "data");
+        retained.retain();
+
+        pool.release(retained);
+        pool.release(released);
+        var recycled = pool.obtain(SimEvent.SEND, 5, 6, 7, 8, null);
+        assertSame(released, recycled);
+        assertEquals(5, recycled.eventTime());
+        assertEquals(8, recycled.getTag());
+        assertNull(recycled.getData());
+
+        // The pool is empty again, and keeps no more events than its capacity
+        assertNotSame(released, pool.obtain(SimEvent.SEND, 1, 2, 3, 4, null));
+        assertEquals("data", retained.getData());
+    }
+}
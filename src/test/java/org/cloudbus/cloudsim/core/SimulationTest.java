@@ -0,0 +1,74 @@
+package org.cloudbus.cloudsim.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    // The pings received by two pingers, on a simulation of its own
+    private static List<String> runPingers(int hops, double delay) {
+        var simulation = new Simulation();
+        simulation.init(0, Calendar.getInstance(), false);
+        var pingers = Pinger.pair(hops, delay);
+        double clock = simulation.startSimulation();
+
+        List<String> received = new ArrayList<>(pingers[0].received);
+        received.addAll(pingers[1].received);
+        received.add("end " + clock);
+        return received;
+    }
+
+    @Test
+    void simulationsRunConcurrentlyOnTheirOwnState() throws Exception {
+        var expected = new ArrayList<List<String>>();
+        var tasks = new ArrayList<Callable<List<String>>>();
+        for (int i = 0; i < 8; i++) {
+            int hops = 50 + i;
+            double delay = 1 + i;
+            expected.add(runPingers(hops, delay));
+            tasks.add(() -> runPingers(hops, delay));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = executor.invokeAll(tasks);
+            for (int i = 0; i < 8; i++)
+                assertEquals(expected.get(i), results.get(i).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void staticMethodsUseTheSimulationOfTheThread() {
+        var first = new Simulation();
+        first.init(0, Calendar.getInstance(), false);
+        var firstPingers = Pinger.pair(3, 1);
+        var second = new Simulation();
+        second.init(0, Calendar.getInstance(), false);
+        Pinger.pair(3, 10);
+
+        assertSame(second, CloudSim.getSimulation());
+        second.startSimulation();
+
+        // Running the second simulation did not touch the first one
+        assertTrue(firstPingers[0].received.isEmpty());
+        CloudSim.setSimulation(first);
+        assertEquals(0, CloudSim.clock());
+        assertSame(firstPingers[1], CloudSim.getEntity("pong"));
+
+        first.startSimulation();
+        String pong = " " + firstPingers[1].getId() + " ";
+        assertEquals(List.of("2.0" + pong + "0", "3.0" + pong + "1", "5.0" + pong + "2", "6.0" + pong + "3"),
+                firstPingers[0].received);
+    }
+}
@@ -0,0 +1,90 @@
+package org.cloudbus.cloudsim.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    private static final int HOPS = 40;
+    private static final double DELAY = 0.5;
+
+    @TempDir
+    Path dir;
+
+    private static Simulation newSimulation() {
+        var simulation = new Simulation();
+        simulation.init(0, Calendar.getInstance(), false);
+        Pinger.pair(HOPS, DELAY);
+
+        return simulation;
+    }
+
+    // The pings received by the pingers of a simulation once it ends, and its end time
+    private static List<String> finish(Simulation simulation) {
+        // the pingers read the clock of the simulation bound to the thread
+        CloudSim.setSimulation(simulation);
+        // the entities can't be looked up by name once the simulation is finished
+        var ping = (Pinger) simulation.getEntity("ping");
+        var pong = (Pinger) simulation.getEntity("pong");
+        double clock = simulation.startSimulation();
+
+        List<String> received = new ArrayList<>(ping.received);
+        received.addAll(pong.received);
+        received.add("end " + clock);
+        return received;
+    }
+
+    @Test
+    void checkpointedSimulationContinuesFromTheCheckpoint() throws Exception {
+        var expected = finish(newSimulation());
+
+        var file = dir.resolve("checkpoint.gz").toFile();
+        var simulation = newSimulation();
+        simulation.setCheckpoint(10, file);
+        assertEquals(expected, finish(simulation));
+        assertTrue(file.exists());
+
+        Simulation restored;
+        try (var in = new FileInputStream(file)) {
+            restored = Simulation.readSnapshot(in);
+        }
+        assertSame(restored, CloudSim.getSimulation());
+        assertEquals(10, restored.clock(), 1);
+
+        // The restored simulation has the pings received up to the checkpoint only
+        var ping = (Pinger) restored.getEntity("ping");
+        assertFalse(ping.received.isEmpty());
+        assertTrue(ping.received.size() < HOPS / 2);
+        assertEquals(expected, finish(restored));
+    }
+
+    @Test
+    void snapshotOfAPausedSimulationCanBeRestoredSeveralTimes() throws Exception {
+        var expected = finish(newSimulation());
+
+        var simulation = newSimulation();
+        assertTrue(simulation.runUntil(7.25));
+        var out = new ByteArrayOutputStream();
+        simulation.writeSnapshot(out);
+        byte[] snapshot = out.toByteArray();
+
+        var first = Simulation.readSnapshot(new ByteArrayInputStream(snapshot));
+        var second = Simulation.readSnapshot(new ByteArrayInputStream(snapshot));
+        assertNotSame(first.getEntity("ping"), second.getEntity("ping"));
+        assertEquals(7.25, first.clock());
+
+        assertEquals(expected, finish(first));
+        assertEquals(expected, finish(second));
+        assertEquals(expected, finish(simulation));
+    }
+}
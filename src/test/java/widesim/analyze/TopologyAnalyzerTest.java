@@ -0,0 +1,84 @@
+package widesim.analyze;
+
+import org.jgrapht.alg.util.Pair;
+import org.junit.jupiter.api.Test;
+import widesim.core.Enums.RoutingModeEnum;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopologyAnalyzerTest {
+
+    // d0 -> d2 directly is as fast as through d1, but narrower. d2 -> d3 is fast and wide, the
+    // direct link d1 -> d3 slow and narrower. d3 -> d4 directly is as wide as through d5
+    private static TopologyAnalyzer analyzer() {
+        var analyzer = new TopologyAnalyzer();
+        for (int i = 0; i < 6; i++)
+            analyzer.addVertex("d" + i);
+
+        analyzer.addEdge("d0", "d1", 10, 1);
+        analyzer.addEdge("d1", "d2", 10, 1);
+        analyzer.addEdge("d0", "d2", 1, 2);
+        analyzer.addEdge("d2", "d3", 100, 1);
+        analyzer.addEdge("d1", "d3", 5, 5);
+        analyzer.addEdge("d3", "d4", 50, 1);
+        analyzer.addEdge("d3", "d5", 50, 1);
+        analyzer.addEdge("d5", "d4", 50, 1);
+        return analyzer;
+    }
+
+    private static List<String> route(HashMap<Pair<String, String>, String> table, String src, String dst) {
+        List<String> route = new ArrayList<>(List.of(src));
+        String hop = src;
+        while (!hop.equals(dst)) {
+            hop = table.get(Pair.of(hop, dst));
+            if (hop == null)
+                return null;
+
+            route.add(hop);
+            assertTrue(route.size() <= 6, "The route loops: " + route);
+        }
+
+        return route;
+    }
+
+    @Test
+    void minLatencyTableTakesTheFastestRoutes() {
+        var table = analyzer().buildRoutingTable(RoutingModeEnum.MIN_LATENCY);
+
+        // The fewest hops among the fastest routes
+        assertEquals(List.of("d0", "d2"), route(table, "d0", "d2"));
+        assertEquals(List.of("d0", "d2", "d3"), route(table, "d0", "d3"));
+        assertEquals(List.of("d1", "d2", "d3"), route(table, "d1", "d3"));
+        assertEquals(List.of("d0", "d2", "d3", "d4"), route(table, "d0", "d4"));
+    }
+
+    @Test
+    void maxBottleneckTableTakesTheWidestRoutes() {
+        var table = analyzer().buildRoutingTable(RoutingModeEnum.MAX_BOTTLENECK);
+
+        assertEquals(List.of("d0", "d1", "d2"), route(table, "d0", "d2"));
+        assertEquals(List.of("d0", "d1", "d2", "d3"), route(table, "d0", "d3"));
+        assertEquals(List.of("d1", "d2", "d3"), route(table, "d1", "d3"));
+        // The fewest hops among the widest routes
+        assertEquals(List.of("d3", "d4"), route(table, "d3", "d4"));
+        assertEquals(List.of("d0", "d1", "d2", "d3", "d4"), route(table, "d0", "d4"));
+    }
+
+    @Test
+    void tablesHaveAnEntryForEachPairOfDevices() {
+        for (RoutingModeEnum mode : RoutingModeEnum.values()) {
+            var table = analyzer().buildRoutingTable(mode);
+
+            assertEquals(36, table.size(), mode.toString());
+            // Nothing leads back from d3, nor from a device to itself
+            assertTrue(table.containsKey(Pair.of("d3", "d0")), mode.toString());
+            assertNull(table.get(Pair.of("d3", "d0")), mode.toString());
+            assertNull(route(table, "d4", "d0"), mode.toString());
+            assertEquals(List.of("d0", "d1"), route(table, "d0", "d1"), mode.toString());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EventTrace;
+import org.cloudbus.cloudsim.core.EventTraceReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import widesim.computation.Task;
+import widesim.core.Constants;
+import widesim.mapper.SimpleTaskToVmMapper;
+import widesim.parse.topology.PostProcessor;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceDirectoryTest {
+
+    @TempDir
+    Path dir;
+
+    private int numOfFogDevices;
+
+    private static List<FogDevice> fogDevices() {
+        return CloudSim.getEntityList().stream().filter(FogDevice.class::isInstance).map(FogDevice.class::cast).toList();
+    }
+
+    // taskId -> end of the execution of the first cycle, and the number of ids broadcast under "broadcasts"
+    private Map<String, Object> run(boolean withDirectory) throws Exception {
+        var broker = Scenario.newBroker(Scenario.TOPOLOGY, Scenario.MONTAGE, new SimpleTaskToVmMapper());
+        numOfFogDevices = fogDevices().size();
+        if (withDirectory)
+            PostProcessor.setDeviceDirectoryOfFogDevices(fogDevices());
+
+        var file = dir.resolve("trace" + withDirectory + ".bin").toFile();
+        Map<Integer, Task> tasks;
+        try (var trace = new EventTrace(file, 1 << 16)) {
+            CloudSim.setEventTrace(trace);
+            tasks = Scenario.run(broker);
+        }
+
+        Map<String, Object> result = new TreeMap<>();
+        for (Task task : tasks.values())
+            result.put("task " + task.getTaskId(), task.getTaskState().getState(0).endExecutionTime);
+
+        int broadcasts = 0;
+        try (var reader = new EventTraceReader(file)) {
+            assertEquals(reader.getCount(), reader.size());
+            for (int i = 0; i < reader.size(); i++)
+                if (reader.getTag(i) == Constants.MsgTag.BROADCAST_ID)
+                    broadcasts++;
+        }
+        result.put("broadcasts", broadcasts);
+        return result;
+    }
+
+    @Test
+    void directoryKnowsTheDevices() throws Exception {
+        Scenario.newBroker(Scenario.TOPOLOGY, Scenario.MONTAGE, new SimpleTaskToVmMapper());
+        var fogDevices = fogDevices();
+        var directory = PostProcessor.setDeviceDirectoryOfFogDevices(fogDevices);
+
+        assertEquals(fogDevices.size(), directory.size());
+        assertEquals(fogDevices.stream().map(FogDevice::getId).sorted().toList(), directory.getIds());
+        for (FogDevice fogDevice : fogDevices) {
+            assertSame(directory, fogDevice.getDeviceDirectory());
+            assertEquals(fogDevice.getId(), directory.idOf(fogDevice.getName()));
+            assertEquals(fogDevice.getName(), directory.nameOf(fogDevice.getId()));
+            assertTrue(directory.contains(fogDevice.getId()));
+            assertFalse(directory.hasFileCache(fogDevice.getId()));
+        }
+
+        assertEquals(-1, directory.idOf("unknown"));
+        assertNull(directory.nameOf(-1));
+        assertNull(directory.nameOf(1000));
+        assertFalse(directory.contains(CloudSim.getEntityId("broker")));
+    }
+
+    @Test
+    void devicesWithADirectoryDoNotBroadcastTheirIds() throws Exception {
+        var broadcast = run(false);
+        var directory = run(true);
+
+        int n = numOfFogDevices;
+        assertEquals(n * (n - 1), broadcast.remove("broadcasts"));
+        assertEquals(0, directory.remove("broadcasts"));
+        assertEquals(25, directory.size());
+        assertEquals(broadcast, directory);
+    }
+}
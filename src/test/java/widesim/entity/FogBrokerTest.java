@@ -0,0 +1,134 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EventTrace;
+import org.cloudbus.cloudsim.core.EventTraceReader;
+import org.jgrapht.alg.util.Pair;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import widesim.computation.Task;
+import widesim.core.Constants;
+import widesim.mapper.SimpleTaskToVmMapper;
+import widesim.mapper.TaskToVmMapper;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FogBrokerTest {
+
+    // Maps the tasks like the simple mapper, but always with the whole queue of the broker
+    private static class NonIncrementalMapper implements TaskToVmMapper {
+        final SimpleTaskToVmMapper mapper = new SimpleTaskToVmMapper();
+        FogBroker broker;
+        int calls;
+
+        @Override
+        public Map<Integer, Integer> map(List<Vm> createdVms, List<Vm> failedVms, List<Task> queuedTasks,
+                                         Set<Task> completedTasks, Set<Task> dispatchedTasks, Map<Integer, Integer> taskToVm,
+                                         Map<Pair<Integer, Integer>, Integer> routingTable, Map<Integer, Integer> vmToFogDevice) {
+            calls++;
+            assertEquals(0, broker.getNumOfRecordedChanges());
+
+            return mapper.map(createdVms, failedVms, queuedTasks, completedTasks, dispatchedTasks, taskToVm, routingTable, vmToFogDevice);
+        }
+    }
+
+    // taskId -> (vm, end of the execution) of the first cycle
+    private static Map<Integer, Pair<Integer, Double>> run(FogBroker broker) {
+        Map<Integer, Pair<Integer, Double>> executions = new TreeMap<>();
+        for (Task task : Scenario.run(broker).values())
+            executions.put(task.getTaskId(), Pair.of(task.getVmId(), task.getTaskState().getState(0).endExecutionTime));
+
+        return executions;
+    }
+
+    @Test
+    void nonIncrementalMapperGetsNoRecordedChanges() throws Exception {
+        var incremental = run(Scenario.newBroker(Scenario.TOPOLOGY, Scenario.MONTAGE, new SimpleTaskToVmMapper()));
+
+        var mapper = new NonIncrementalMapper();
+        var broker = Scenario.newBroker(Scenario.TOPOLOGY, Scenario.MONTAGE, mapper);
+        mapper.broker = broker;
+        var nonIncremental = run(broker);
+
+        assertTrue(mapper.calls > 0);
+        assertEquals(0, broker.getNumOfRecordedChanges());
+        assertEquals(25, nonIncremental.size());
+        assertEquals(incremental, nonIncremental);
+        assertTrue(nonIncremental.values().stream().allMatch(execution -> execution.getSecond() > 0));
+    }
+
+    @Test
+    void dispatchedChildrenAreIndexedByParent() throws Exception {
+        var broker = Scenario.newBroker(Scenario.TOPOLOGY, Scenario.MONTAGE, new SimpleTaskToVmMapper());
+        var tasks = Scenario.run(broker);
+
+        assertEquals(25, tasks.size());
+        for (Task task : tasks.values()) {
+            var children = broker.getDispatchedChildren(task.getTaskId()).stream().toList();
+            assertEquals(Set.copyOf(task.getChildren()), children.stream().map(Task::getTaskId).collect(Collectors.toSet()));
+
+            // in the order they were dispatched
+            for (int i = 1; i < children.size(); i++)
+                assertTrue(children.get(i - 1).getTaskState().getState(0).exitBrokerWaitingQueue
+                        <= children.get(i).getTaskState().getState(0).exitBrokerWaitingQueue);
+        }
+    }
+
+    @Test
+    void multicastForgetsTheOutputOnceAllTheChildrenAreDispatched() throws Exception {
+        var broker = Scenario.newBroker(Scenario.TOPOLOGY, Scenario.MONTAGE, new SimpleTaskToVmMapper());
+        broker.setMulticastStageOut(true);
+        var executions = run(broker);
+
+        assertEquals(25, executions.size());
+        assertTrue(executions.values().stream().allMatch(execution -> execution.getSecond() > 0));
+        assertEquals(0, broker.getNumOfStagedOutputs());
+    }
+
+    @Test
+    void brokerSendsOneEventToADeviceForEachEventItProcesses(@TempDir Path dir) throws Exception {
+        var broker = Scenario.newBroker(Scenario.TOPOLOGY, Scenario.MONTAGE, new SimpleTaskToVmMapper());
+        int brokerId = broker.getId();
+        var fogDeviceIds = FogDevice.fogDeviceIds();
+
+        var file = dir.resolve("trace.bin").toFile();
+        try (var trace = new EventTrace(file, 1 << 16)) {
+            CloudSim.setEventTrace(trace);
+            assertEquals(25, Scenario.run(broker).size());
+        }
+
+        // time -> events processed by the broker, and (time, fog device) -> events the broker sent
+        Map<Double, Integer> processed = new HashMap<>();
+        Map<Pair<Double, Integer>, Integer> sent = new HashMap<>();
+        int batches = 0;
+        try (var reader = new EventTraceReader(file)) {
+            assertEquals(reader.getCount(), reader.size());
+            for (int i = 0; i < reader.size(); i++) {
+                double time = reader.getTime(i);
+                if (reader.getDestination(i) == brokerId)
+                    processed.merge(time, 1, Integer::sum);
+
+                // the stage in of the root tasks is sent on its own, with a delay
+                if (reader.getSource(i) == brokerId && fogDeviceIds.contains(reader.getDestination(i))
+                        && reader.getTag(i) != Constants.MsgTag.EXECUTE_TASK_WITH_DATA)
+                    sent.merge(Pair.of(time, reader.getDestination(i)), 1, Integer::sum);
+
+                if (reader.getTag(i) == Constants.MsgTag.BATCH)
+                    batches++;
+            }
+        }
+
+        assertTrue(batches > 0);
+        for (var entry : sent.entrySet())
+            assertTrue(entry.getValue() <= processed.get(entry.getKey().getFirst()), entry.toString());
+    }
+}
@@ -0,0 +1,143 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import widesim.computation.Task;
+import widesim.mapper.SimpleTaskToVmMapper;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FogDeviceTest {
+
+    // A parent on d0 sending a file of 10000 bytes to its children on d3 and d4, through links of
+    // 1000, 500 and 1000 bytes/s with a latency of 0.5 each
+    private static final String FORK = "src/test/resources/transfer/fork.xml";
+
+    // The simple mapper puts the parent, task 1, on vm 1 and its children on vms 2 and 3
+    private static final String CHAIN = """
+            {"fog_devices": [
+              {"device_id": "d0", "neighbors": [{"neighbor_id": "d1", "bandwidth": 1000, "latency": 0.5}], %1$s},
+              {"device_id": "d1", "neighbors": [{"neighbor_id": "d0"}, {"neighbor_id": "d2", "bandwidth": 500, "latency": 0.5}], %1$s},
+              {"device_id": "d2", "neighbors": [{"neighbor_id": "d1"}, {"neighbor_id": "d3", "bandwidth": 1000, "latency": 0.5},
+                {"neighbor_id": "d4", "bandwidth": 1000, "latency": 0.5}], %1$s},
+              {"device_id": "d3", "neighbors": [{"neighbor_id": "d2"}], %1$s},
+              {"device_id": "d4", "neighbors": [{"neighbor_id": "d2"}], %1$s}],
+             "vms": [{"vm_id": 0, "fog_device_id": "d0"}, {"vm_id": 1, "fog_device_id": "d0"},
+                     {"vm_id": 2, "fog_device_id": "d3"}, {"vm_id": 3, "fog_device_id": "d4"}]}
+            """;
+
+    private static final String DEVICE = """
+            "hosts": [{"host_id": 0, "pes": [{"pe_id": 0}]}, {"host_id": 1, "pes": [{"pe_id": 0}]}],
+             "down_link_bw": 1000000000000, "link_model": "%s", "transfer_mode": "%s\"""";
+
+    // A root task on d3, with an input of 1 MB staged in from d0 through links of 256, 128 and
+    // 256 KB/s with a latency of 0.5 each, and written to a storage of 1 MB/s
+    private static final String STAGE_IN = "src/test/resources/transfer/stagein.xml";
+
+    private static final String SOURCE_CHAIN = """
+            {"fog_devices": [
+              {"device_id": "d0", "data_source": %2$s, "neighbors": [{"neighbor_id": "d1", "bandwidth": 262144, "latency": 0.5}], %1$s},
+              {"device_id": "d1", "neighbors": [{"neighbor_id": "d0"}, {"neighbor_id": "d2", "bandwidth": 131072, "latency": 0.5}], %1$s},
+              {"device_id": "d2", "neighbors": [{"neighbor_id": "d1"}, {"neighbor_id": "d3", "bandwidth": 262144, "latency": 0.5}], %1$s},
+              {"device_id": "d3", "neighbors": [{"neighbor_id": "d2"}], "storage_transfer_rate": 1, %1$s}],
+             "vms": [{"vm_id": 0, "fog_device_id": "d3"}]}
+            """;
+
+    // The downloads and the storage of the hops add a few milliseconds
+    private static final double DELTA = 0.01;
+
+    @TempDir
+    Path dir;
+
+    private List<Double> transferDelays(String linkModel, String transferMode) throws Exception {
+        return transferDelays(linkModel, transferMode, false);
+    }
+
+    // The time each child gets the data of the parent after the parent ends, in increasing order
+    private List<Double> transferDelays(String linkModel, String transferMode, boolean multicast) throws Exception {
+        Path topology = dir.resolve(linkModel + transferMode + ".json");
+        Files.writeString(topology, String.format(CHAIN, String.format(DEVICE, linkModel, transferMode)));
+
+        var broker = Scenario.newBroker(topology.toString(), FORK, new SimpleTaskToVmMapper());
+        broker.setMulticastStageOut(multicast);
+        Map<Integer, Task> tasks = Scenario.run(broker);
+
+        var vmToFogDevice = broker.getVmToFogDevice();
+        assertEquals(3, tasks.values().stream().map(task -> vmToFogDevice.get(task.getVmId())).distinct().count());
+
+        double parentEnd = tasks.get(1).getTaskState().getState(0).endExecutionTime;
+        return List.of(2, 3).stream()
+                .map(taskId -> tasks.get(taskId).getTaskState().getState(0).startExecutionTime - parentEnd)
+                .sorted()
+                .toList();
+    }
+
+    // The time the root task starts executing
+    private double stageInEnd(String transferMode, boolean dataSource) throws Exception {
+        Path topology = dir.resolve(transferMode + dataSource + ".json");
+        Files.writeString(topology, String.format(SOURCE_CHAIN, String.format(DEVICE, "Fifo", transferMode), dataSource));
+
+        var broker = Scenario.newBroker(topology.toString(), STAGE_IN, new SimpleTaskToVmMapper());
+        int d3 = CloudSim.getEntityId("d3");
+        Map<Integer, Task> tasks = Scenario.run(broker);
+
+        assertEquals(d3, broker.getVmToFogDevice().get(tasks.get(1).getVmId()));
+        return tasks.get(1).getTaskState().getState(0).startExecutionTime;
+    }
+
+    @Test
+    void pipelinedTransferStreamsAtTheBottleneck() throws Exception {
+        var storeAndForward = transferDelays("Fifo", "StoreAndForward");
+        var pipelined = transferDelays("Fifo", "Pipelined");
+
+        // Each hop sends the data once all of it has arrived
+        assertEquals(10 + 20 + 10 + 1.5, storeAndForward.get(0), DELTA);
+        // The data streams through the route at 500 bytes/s
+        assertEquals(20 + 1.5, pipelined.get(0), DELTA);
+    }
+
+    @Test
+    void pipelinedTransfersShareTheLinks() throws Exception {
+        var storeAndForward = transferDelays("Fifo", "StoreAndForward");
+        var pipelined = transferDelays("Fifo", "Pipelined");
+        var fair = transferDelays("MaxMinFair", "Pipelined");
+
+        // The second transfer waits for the first one at the bottleneck, then goes hop by hop
+        assertEquals(10 + 20 + 20 + 10 + 1.5, storeAndForward.get(1), DELTA);
+        // The second transfer waits for the first one at the bottleneck
+        assertEquals(20 + 20 + 1.5, pipelined.get(1), DELTA);
+        // Both transfers share the bottleneck all along
+        assertEquals(40 + 1.5, fair.get(0), DELTA);
+        assertEquals(40 + 1.5, fair.get(1), DELTA);
+    }
+
+    @Test
+    void multicastStageOutSendsTheOutputOnceThroughTheSharedHops() throws Exception {
+        var storeAndForward = transferDelays("Fifo", "StoreAndForward", true);
+        var pipelined = transferDelays("Fifo", "Pipelined", true);
+
+        // The output goes once through d0 -> d1 -> d2, then to d3 and d4 at the same time
+        assertEquals(10 + 20 + 10 + 1.5, storeAndForward.get(0), DELTA);
+        assertEquals(10 + 20 + 10 + 1.5, storeAndForward.get(1), DELTA);
+        // Each device still gets its own cut-through transfer
+        assertEquals(transferDelays("Fifo", "Pipelined"), pipelined);
+    }
+
+    @Test
+    void rootTaskInputIsStagedInFromTheDataSource() throws Exception {
+        // Without a data source, the input is staged in after a fixed delay
+        double fixedDelayEnd = stageInEnd("StoreAndForward", false);
+        assertEquals(fixedDelayEnd, stageInEnd("Pipelined", false));
+
+        // Each hop sends the input once all of it has arrived, then it is written to the storage
+        assertEquals(4 + 8 + 4 + 1.5 + 1 - 0.11, stageInEnd("StoreAndForward", true) - fixedDelayEnd, DELTA);
+        // The input streams through the route at 128 KB/s
+        assertEquals(8 + 1.5 + 1 - 0.11, stageInEnd("Pipelined", true) - fixedDelayEnd, DELTA);
+    }
+}
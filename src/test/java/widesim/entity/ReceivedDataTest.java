@@ -0,0 +1,110 @@
+package widesim.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceivedDataTest {
+
+    @Test
+    void taskWithoutParentsIsReady() {
+        var received = new ReceivedData();
+
+        assertTrue(received.hasDataOfAll(0, List.of()));
+        assertFalse(received.hasNoDataOfAny(0, List.of()));
+        assertTrue(received.pendingParents(0, List.of()).isEmpty());
+    }
+
+    @Test
+    void taskIsReadyOnceAllParentsSentTheirData() {
+        var received = new ReceivedData();
+        received.add(0, 1, true);
+
+        assertFalse(received.hasDataOfAll(0, List.of(1, 2, 3)));
+        assertEquals(List.of(2, 3), new ArrayList<>(received.pendingParents(0, List.of(1, 2, 3))));
+
+        received.add(0, 3, true);
+        received.add(0, 2, true);
+        assertTrue(received.hasDataOfAll(0, List.of(1, 2, 3)));
+
+        // The data of a cycle is not the data of another
+        assertFalse(received.hasDataOfAll(1, List.of(1)));
+    }
+
+    @Test
+    void parentWithoutDataIsNotPending() {
+        var received = new ReceivedData();
+        received.add(0, 1, false);
+        received.add(0, 2, true);
+
+        assertTrue(received.hasNoDataOfAny(0, List.of(1, 2)));
+        assertFalse(received.hasNoDataOfAny(0, List.of(2)));
+        assertFalse(received.hasNoDataOfAny(1, List.of(1)));
+        // A parent without data never sends any
+        assertFalse(received.hasDataOfAll(0, List.of(1, 2)));
+    }
+
+    @Test
+    void cycleIsKeptUntilFinished() {
+        var received = new ReceivedData();
+
+        // The data may arrive before the task, and must not be dropped before the cycle is finished
+        received.add(0, 1, true);
+        received.hold(5, 0);
+        received.release(5, 0);
+        assertEquals(1, received.getNumOfCycles());
+
+        received.hold(6, 0);
+        assertTrue(received.hasDataOfAll(0, List.of(1)));
+        received.release(6, 0);
+        assertEquals(1, received.getNumOfCycles());
+
+        received.finish(0);
+        assertEquals(0, received.getNumOfCycles());
+    }
+
+    @Test
+    void finishedCycleIsKeptWhileHeld() {
+        var received = new ReceivedData();
+        received.hold(5, 0);
+        received.hold(6, 0);
+        received.add(0, 1, true);
+        received.add(1, 1, true);
+
+        received.finish(0);
+        assertEquals(2, received.getNumOfCycles());
+
+        received.release(5, 0);
+        assertTrue(received.hasDataOfAll(0, List.of(1)));
+        received.release(6, 0);
+        assertEquals(1, received.getNumOfCycles());
+
+        // Finishing an earlier cycle again changes nothing, the next cycle is still there
+        received.finish(-1);
+        assertTrue(received.hasDataOfAll(1, List.of(1)));
+
+        received.finish(1);
+        assertEquals(0, received.getNumOfCycles());
+    }
+
+    @Test
+    void dataArrivingAfterTheCycleIsFinishedReachesTheWaitingTask() {
+        var received = new ReceivedData();
+        received.hold(5, 0);
+        received.add(0, 1, true);
+
+        // The broker finishes the cycle while the task still waits for the data of its parent 2
+        received.finish(0);
+        assertEquals(List.of(2), new ArrayList<>(received.pendingParents(0, List.of(1, 2))));
+
+        received.add(0, 2, true);
+        assertTrue(received.hasDataOfAll(0, List.of(1, 2)));
+
+        // The task starts on the arrival of its last data, and the finished cycle is dropped
+        received.release(5, 0);
+        assertEquals(0, received.getNumOfCycles());
+    }
+}
@@ -0,0 +1,61 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import widesim.computation.Task;
+import widesim.core.Enums.RoutingModeEnum;
+import widesim.mapper.SimpleVmToFogDeviceMapper;
+import widesim.mapper.TaskToVmMapper;
+import widesim.parse.dax.DaxParser;
+import widesim.parse.topology.Parser;
+import widesim.parse.topology.PostProcessor;
+import widesim.provision.SimpleVmProvisioner;
+
+import java.io.File;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// A broker running a DAX workflow on a topology, set up the way the examples do it
+class Scenario {
+
+    static final String TOPOLOGY = "src/main/resources/topologies/topology.json";
+    static final String MONTAGE = "src/main/resources/dax/Montage_25.xml";
+
+    static FogBroker newBroker(String topology, String dax, TaskToVmMapper mapper) throws Exception {
+        CloudSim.init(1, Calendar.getInstance(), false);
+
+        var deviceAndVms = new Parser(new File(topology)).parse();
+        var fogDevices = deviceAndVms.getFirst();
+        PostProcessor.connectHostToDatacenter(fogDevices);
+        var router = PostProcessor.buildRouter(fogDevices, PostProcessor.buildTopologyAnalyzer(fogDevices), RoutingModeEnum.HOP_COUNT);
+        PostProcessor.setRouterOfFogDevices(fogDevices, router);
+
+        var broker = new FogBroker("broker", new SimpleVmProvisioner(), new SimpleVmToFogDeviceMapper(), mapper, 10L, 10L, router, fogDevices);
+        var vms = deviceAndVms.getSecond();
+        vms.forEach(vm -> {
+            vm.setUid(Vm.getUid(broker.getId(), vm.getId()));
+            vm.setUserId(broker.getId());
+        });
+        broker.submitVmList(vms);
+
+        var workflowEngine = new WorkflowEngine(broker.getId());
+        broker.setWorkflowEngineId(workflowEngine.getId());
+        new TaskManager(workflowEngine.getId(), List.of(new DaxParser(dax).buildWorkflow()));
+
+        return broker;
+    }
+
+    // Runs the simulation, and gives the tasks received by the broker by id
+    static Map<Integer, Task> run(FogBroker broker) {
+        CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+
+        Map<Integer, Task> tasks = new TreeMap<>();
+        for (Task task : broker.getReceivedTasks())
+            tasks.put(task.getTaskId(), task);
+
+        return tasks;
+    }
+}
@@ -0,0 +1,176 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.junit.jupiter.api.Test;
+import widesim.computation.Task;
+import widesim.computation.Workflow;
+import widesim.core.Constants;
+import widesim.message.IncomingTaskMsg;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskManagerTest {
+
+    // Records the tasks received from the task manager, with the time they arrive
+    private static class Engine extends SimEntity {
+        final List<Task> tasks = new ArrayList<>();
+        final List<Double> times = new ArrayList<>();
+
+        Engine() {
+            super("Engine");
+        }
+
+        @Override
+        public void startEntity() {
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            if (ev.getTag() == Constants.MsgTag.INCOMING_TASK) {
+                tasks.add(((IncomingTaskMsg) ev.getData()).getTask());
+                times.add(CloudSim.clock());
+            }
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    // A source recording how many of its tasks are taken ahead of their entry time
+    private static class Source implements Iterator<Task> {
+        final List<Task> tasks;
+        int next;
+        int maxAhead;
+
+        Source(List<Task> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < tasks.size();
+        }
+
+        @Override
+        public Task next() {
+            // The tasks taken before this one have all been sent
+            int ahead = 0;
+            for (int i = 0; i < next; i++)
+                if (tasks.get(i).getEntryTime() > CloudSim.clock())
+                    ahead++;
+
+            maxAhead = Math.max(maxAhead, ahead);
+            return tasks.get(next++);
+        }
+    }
+
+    private static List<Task> newTasks(double... entryTimes) {
+        var full = new UtilizationModelFull();
+        List<Task> tasks = new ArrayList<>();
+        for (int id = 0; id < entryTimes.length; id++)
+            tasks.add(new Task(id, 1000, 1, 0, 0, full, full, full, new ArrayList<>(), 0, entryTimes[id], "w"));
+
+        return tasks;
+    }
+
+    // Runs a task manager over the tasks, and checks that each one arrives at its entry time, in order
+    private static Source run(List<Task> tasks, int window) {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        var engine = new Engine();
+        var source = new Source(tasks);
+        new TaskManager(engine.getId(), source, window);
+
+        CloudSim.startSimulation();
+
+        assertEquals(tasks, engine.tasks);
+        for (int i = 0; i < tasks.size(); i++)
+            assertEquals(tasks.get(i).getEntryTime(), engine.times.get(i), "Entry time of Task(" + i + ")");
+
+        return source;
+    }
+
+    @Test
+    void sendsOneTaskAheadWithWindowOfOne() {
+        var source = run(newTasks(0, 1, 2, 3, 5, 8, 13), 1);
+
+        assertEquals(1, source.maxAhead);
+    }
+
+    @Test
+    void sendsTwoTasksAheadWithWindowOfTwo() {
+        var source = run(newTasks(0, 1, 2, 3, 5, 8, 13, 21, 34), 2);
+
+        assertEquals(2, source.maxAhead);
+    }
+
+    @Test
+    void sendsAllTasksAtOnceWithWindowLargerThanTrace() {
+        var tasks = newTasks(1, 2, 3, 5, 8);
+        var source = run(tasks, 100);
+
+        // All the tasks are taken at the start
+        assertEquals(tasks.size() - 1, source.maxAhead);
+    }
+
+    @Test
+    void sendsTasksEnteringTogetherAtOnce() {
+        // With a window of one, the tasks entering at the same time still go ahead together
+        var source = run(newTasks(0, 0, 2, 2, 2, 3, 4, 4, 7), 1);
+
+        assertEquals(3, source.maxAhead);
+    }
+
+    @Test
+    void sendsEveryTaskWhenAllEnterTogether() {
+        run(newTasks(5, 5, 5, 5, 5), 2);
+        run(newTasks(), 1);
+    }
+
+    @Test
+    void taskManagerOfWorkflowsIsPartOfSnapshot() throws Exception {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        var engine = new Engine();
+        var tasks = newTasks(0, 1, 2, 3);
+        // The workflows are not in entry time order
+        new TaskManager(engine.getId(), List.of(new Workflow(List.of(tasks.get(2), tasks.get(3)), "w"),
+                new Workflow(List.of(tasks.get(0), tasks.get(1)), "w")));
+
+        var snapshot = new ByteArrayOutputStream();
+        CloudSim.writeSnapshot(snapshot);
+        CloudSim.readSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+        var restored = (Engine) CloudSim.getEntity("Engine");
+        CloudSim.startSimulation();
+
+        assertNotSame(engine, restored);
+        assertEquals(List.of(0, 1, 2, 3), restored.tasks.stream().map(Task::getTaskId).toList());
+        assertEquals(List.of(0.0, 1.0, 2.0, 3.0), restored.times);
+    }
+
+    @Test
+    void rejectsTasksOutOfEntryTimeOrder() {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        var engine = new Engine();
+        var taskManager = new TaskManager(engine.getId(), newTasks(0, 2, 1).iterator(), 100);
+
+        assertThrows(IllegalArgumentException.class, taskManager::startEntity);
+    }
+
+    @Test
+    void rejectsEmptyWindow() {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        var engine = new Engine();
+
+        assertThrows(IllegalArgumentException.class, () -> new TaskManager(engine.getId(), newTasks(0).iterator(), 0));
+    }
+}
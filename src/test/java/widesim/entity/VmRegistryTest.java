@@ -0,0 +1,69 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Vm;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VmRegistryTest {
+
+    private static Vm newVm(int id) {
+        return new Vm(id, 0, 1000, 1, 512, 1000, 10000, "Xen", new CloudletSchedulerTimeShared());
+    }
+
+    @Test
+    void vmsAreFoundById() {
+        var registry = new VmRegistry();
+        var vms = new Vm[] { newVm(0), newVm(5), newVm(100) };
+        for (Vm vm : vms)
+            registry.add(vm);
+
+        for (Vm vm : vms) {
+            assertSame(vm, registry.get(vm.getId()));
+            assertTrue(registry.contains(vm.getId()));
+        }
+        assertNull(registry.get(1));
+        assertNull(registry.get(-1));
+        assertNull(registry.get(1000));
+        assertFalse(registry.contains(1000));
+
+        // The first vm registered with an id is kept
+        registry.add(newVm(5));
+        assertSame(vms[1], registry.get(5));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.add(newVm(-1)));
+    }
+
+    @Test
+    void vmsAreEitherCreatedOrFailed() {
+        var registry = new VmRegistry();
+        for (int id = 0; id < 3; id++)
+            registry.add(newVm(id));
+
+        registry.setCreated(0);
+        registry.setFailed(1);
+        assertTrue(registry.isCreated(0));
+        assertFalse(registry.isFailed(0));
+        assertTrue(registry.isFailed(1));
+        assertFalse(registry.isCreated(1));
+        assertFalse(registry.isCreated(2));
+        assertFalse(registry.isFailed(2));
+        assertFalse(registry.isCreated(-1));
+
+        // A failed vm created again, and a created one failing
+        registry.setCreated(1);
+        registry.setFailed(0);
+        assertTrue(registry.isCreated(1));
+        assertFalse(registry.isFailed(1));
+        assertTrue(registry.isFailed(0));
+        assertFalse(registry.isCreated(0));
+
+        registry.clearStates();
+        for (int id = 0; id < 3; id++) {
+            assertFalse(registry.isCreated(id));
+            assertFalse(registry.isFailed(id));
+            assertTrue(registry.contains(id));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package widesim.entity;
+
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.junit.jupiter.api.Test;
+import widesim.computation.Task;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitingTasksTest {
+
+    private static Task newTask(int id, int cycle, Integer... parentIds) {
+        var full = new UtilizationModelFull();
+        var task = new Task(id, 1000, 1, 0, 0, full, full, full, new ArrayList<>(), 0, 0, "w");
+        task.setCycle(cycle);
+        task.setParents(new LinkedHashSet<>(List.of(parentIds)));
+
+        return task;
+    }
+
+    @Test
+    void waitingTaskIsReadyOnceAllItsParentsSentTheirData() {
+        var received = new ReceivedData();
+        var waiting = new WaitingTasks();
+        var task = newTask(10, 0, 1, 2);
+        received.add(0, 1, true);
+
+        waiting.add(task, received.pendingParents(0, task.getParents()));
+        assertEquals(1, waiting.size());
+        assertEquals(List.of(), waiting.removeDependents(1, 0));
+        // The data of the parent on another cycle
+        assertEquals(List.of(), waiting.removeDependents(2, 1));
+
+        assertEquals(List.of(10), waiting.removeDependents(2, 0));
+        assertTrue(waiting.received(10));
+        waiting.remove(task);
+        assertEquals(0, waiting.size());
+    }
+
+    @Test
+    void dependentsAreInWaitingOrder() {
+        var waiting = new WaitingTasks();
+        var first = newTask(12, 0, 1, 2);
+        var second = newTask(11, 0, 1);
+        var third = newTask(13, 0, 2, 1);
+        waiting.add(first, first.getParents());
+        waiting.add(second, second.getParents());
+        waiting.add(third, third.getParents());
+
+        assertEquals(List.of(12, 11, 13), waiting.removeDependents(1, 0));
+        assertFalse(waiting.received(12));
+        assertTrue(waiting.received(11));
+        assertFalse(waiting.received(13));
+
+        assertEquals(List.of(12, 13), waiting.removeDependents(2, 0));
+        assertTrue(waiting.received(12));
+        assertTrue(waiting.received(13));
+    }
+
+    @Test
+    void taskSentBackIsNotIndexedAnymore() {
+        var waiting = new WaitingTasks();
+        var task = newTask(10, 0, 1, 2, 3);
+        waiting.add(task, task.getParents());
+
+        // Parent 1 has generated no data, so the task is sent back without waiting for the others
+        assertEquals(List.of(10), waiting.removeDependents(1, 0));
+        waiting.remove(task);
+
+        assertEquals(0, waiting.size());
+        assertEquals(List.of(), waiting.removeDependents(2, 0));
+        assertEquals(List.of(), waiting.removeDependents(3, 0));
+    }
+}
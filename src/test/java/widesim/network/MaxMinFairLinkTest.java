@@ -0,0 +1,111 @@
+package widesim.network;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaxMinFairLinkTest {
+
+    private static final int LINK = 1;
+    private static final int ARRIVED = 2;
+    private static final int START = 3;
+
+    private static final long BANDWIDTH = 100;
+    private static final double LATENCY = 0.5;
+
+    private record Transfer(double start, long size, String name) {
+    }
+
+    // Starts transfers through a link of its own, sending them to itself
+    private static class Device extends SimEntity {
+        final Link link;
+        final List<Transfer> transfers;
+        // time and name of each transfer arrived
+        final List<String> arrived = new ArrayList<>();
+        int mostActiveTransfers;
+
+        Device(BiFunction<Integer, Integer, Link> newLink, List<Transfer> transfers) {
+            super("device");
+
+            this.link = newLink.apply(getId(), LINK);
+            this.transfers = transfers;
+        }
+
+        @Override
+        public void startEntity() {
+            for (Transfer transfer : transfers)
+                schedule(getId(), transfer.start, START, transfer);
+        }
+
+        @Override
+        public void processEvent(SimEvent ev) {
+            switch (ev.getTag()) {
+                case LINK -> link.processEvent(ev, this::send);
+                case ARRIVED -> arrived.add(CloudSim.clock() + " " + ev.getData());
+                case START -> {
+                    var transfer = (Transfer) ev.getData();
+                    link.transfer(getId(), transfer.size, ARRIVED, transfer.name, this::send);
+                }
+            }
+
+            if (link instanceof MaxMinFairLink fair)
+                mostActiveTransfers = Math.max(mostActiveTransfers, fair.getActiveTransfers());
+        }
+
+        @Override
+        public void shutdownEntity() {
+        }
+    }
+
+    private static Device run(BiFunction<Integer, Integer, Link> newLink, Transfer... transfers) {
+        CloudSim.init(0, Calendar.getInstance(), false);
+        var device = new Device(newLink, List.of(transfers));
+        CloudSim.startSimulation();
+
+        return device;
+    }
+
+    private static Device runFair(Transfer... transfers) {
+        return run((deviceId, tag) -> new MaxMinFairLink(deviceId, BANDWIDTH, LATENCY, tag), transfers);
+    }
+
+    @Test
+    void twoTransfersShareTheBandwidth() {
+        var device = runFair(new Transfer(0, 1000, "a"), new Transfer(2, 500, "b"));
+
+        // a gets 200 bytes alone, then both get 50 bytes/s until b is done, and a sends its last
+        // 300 bytes alone
+        assertEquals(List.of("12.5 b", "15.5 a"), device.arrived);
+        assertEquals(2, device.mostActiveTransfers);
+        assertEquals(0, ((MaxMinFairLink) device.link).getActiveTransfers());
+
+        // One transfer at a time, a first
+        var fifo = run((deviceId, tag) -> new FifoLink(deviceId, BANDWIDTH, LATENCY, tag),
+                new Transfer(0, 1000, "a"), new Transfer(2, 500, "b"));
+        assertEquals(List.of("10.5 a", "15.5 b"), fifo.arrived);
+    }
+
+    @Test
+    void equalTransfersEndTogether() {
+        var device = runFair(new Transfer(0, 300, "a"), new Transfer(0, 300, "b"), new Transfer(0, 300, "c"));
+
+        assertEquals(List.of("9.5 a", "9.5 b", "9.5 c"), device.arrived);
+        assertEquals(3, device.mostActiveTransfers);
+    }
+
+    @Test
+    void transferAloneGetsTheWholeBandwidth() {
+        var device = runFair(new Transfer(0, 200, "a"), new Transfer(5, 200, "b"));
+
+        assertEquals(List.of("2.5 a", "7.5 b"), device.arrived);
+        assertEquals(1, device.mostActiveTransfers);
+    }
+}
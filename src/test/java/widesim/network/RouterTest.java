@@ -0,0 +1,216 @@
+package widesim.network;
+
+import org.jgrapht.alg.util.Pair;
+import org.junit.jupiter.api.Test;
+import widesim.analyze.TopologyAnalyzer;
+import widesim.core.Enums.RoutingModeEnum;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+
+    private static final int ID_OFFSET = 10;
+
+    // The devices d0, d1... have the entity ids 10, 11...
+    private static class Topology {
+        final int n;
+        final TopologyAnalyzer analyzer = new TopologyAnalyzer();
+        final Map<String, Integer> ids = new HashMap<>();
+        final long[][] bandwidths;
+        final double[][] latencies;
+
+        Topology(int n) {
+            this.n = n;
+            this.bandwidths = new long[n][n];
+            this.latencies = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                analyzer.addVertex(name(i));
+                ids.put(name(i), i + ID_OFFSET);
+            }
+        }
+
+        void addLink(int src, int dst, long bandwidth, double latency) {
+            analyzer.addEdge(name(src), name(dst), bandwidth, latency);
+            bandwidths[src][dst] = bandwidth;
+            latencies[src][dst] = latency;
+        }
+
+        static String name(int index) {
+            return "d" + index;
+        }
+    }
+
+    private static MatrixRouter matrixRouter(Topology topology, HashMap<Pair<String, String>, String> table) {
+        int n = topology.n;
+        int[] ids = new int[n];
+        int[] nextHops = new int[n * n];
+        for (int src = 0; src < n; src++) {
+            ids[src] = src + ID_OFFSET;
+            for (int dst = 0; dst < n; dst++) {
+                String hop = table.get(Pair.of(Topology.name(src), Topology.name(dst)));
+                nextHops[src * n + dst] = hop == null ? -1 : topology.ids.get(hop) - ID_OFFSET;
+            }
+        }
+
+        return new MatrixRouter(ids, nextHops);
+    }
+
+    // The devices of the route from a device to another, by index, or null if there is no route
+    private static List<Integer> route(Router router, int src, int dst, int n) {
+        List<Integer> route = new ArrayList<>(List.of(src));
+        int hop = src;
+        while (hop != dst) {
+            int next = router.nextHop(hop + ID_OFFSET, dst + ID_OFFSET);
+            if (next == -1)
+                return null;
+
+            hop = next - ID_OFFSET;
+            route.add(hop);
+            assertTrue(route.size() <= n, "The route loops: " + route);
+        }
+
+        return route;
+    }
+
+    private static double latency(Topology topology, List<Integer> route) {
+        double latency = 0;
+        for (int i = 1; i < route.size(); i++)
+            latency += topology.latencies[route.get(i - 1)][route.get(i)];
+
+        return latency;
+    }
+
+    private static long bottleneck(Topology topology, List<Integer> route) {
+        long bottleneck = Long.MAX_VALUE;
+        for (int i = 1; i < route.size(); i++)
+            bottleneck = Math.min(bottleneck, topology.bandwidths[route.get(i - 1)][route.get(i)]);
+
+        return bottleneck;
+    }
+
+    @Test
+    void eachModeTakesItsOwnRoute() {
+        // d0 -> d3 directly is the shortest, through d1 the fastest, through d2 the widest
+        var topology = new Topology(4);
+        topology.addLink(0, 3, 1, 10);
+        topology.addLink(0, 1, 5, 1);
+        topology.addLink(1, 3, 5, 1);
+        topology.addLink(0, 2, 100, 3);
+        topology.addLink(2, 3, 100, 3);
+
+        Map<RoutingModeEnum, Integer> expected = Map.of(
+                RoutingModeEnum.HOP_COUNT, 3,
+                RoutingModeEnum.MIN_LATENCY, 1,
+                RoutingModeEnum.MAX_BOTTLENECK, 2);
+
+        for (var entry : expected.entrySet()) {
+            RoutingModeEnum mode = entry.getKey();
+            int hop = entry.getValue() + ID_OFFSET;
+            var table = topology.analyzer.buildRoutingTable(mode);
+
+            assertEquals(Topology.name(entry.getValue()), table.get(Pair.of("d0", "d3")), mode.toString());
+            assertEquals(hop, matrixRouter(topology, table).nextHop(ID_OFFSET, 3 + ID_OFFSET), mode.toString());
+            assertEquals(hop, topology.analyzer.buildRouter(topology.ids, mode, 1).nextHop(ID_OFFSET, 3 + ID_OFFSET), mode.toString());
+        }
+    }
+
+    @Test
+    void unknownDevicesAndUnreachableOnesHaveNoNextHop() {
+        var topology = new Topology(3);
+        topology.addLink(0, 1, 10, 1);
+
+        for (RoutingModeEnum mode : RoutingModeEnum.values()) {
+            var tree = topology.analyzer.buildRouter(topology.ids, mode, 1);
+            var matrix = matrixRouter(topology, topology.analyzer.buildRoutingTable(mode));
+            for (Router router : List.of(tree, matrix)) {
+                assertEquals(1 + ID_OFFSET, router.nextHop(ID_OFFSET, 1 + ID_OFFSET));
+                assertEquals(-1, router.nextHop(1 + ID_OFFSET, ID_OFFSET));
+                assertEquals(-1, router.nextHop(ID_OFFSET, 2 + ID_OFFSET));
+                assertEquals(-1, router.nextHop(ID_OFFSET, ID_OFFSET));
+                assertEquals(-1, router.nextHop(ID_OFFSET, 99));
+                assertEquals(-1, router.nextHop(-1, ID_OFFSET));
+            }
+        }
+    }
+
+    @Test
+    void matrixRouterOfRoutingTableGivesItsNextHops() {
+        var topology = new Topology(4);
+        topology.addLink(0, 1, 10, 1);
+        topology.addLink(1, 2, 10, 1);
+        topology.addLink(2, 3, 10, 1);
+
+        Map<Pair<Integer, Integer>, Integer> table = new HashMap<>();
+        for (var entry : topology.analyzer.buildRoutingTable().entrySet()) {
+            if (entry.getValue() != null)
+                table.put(Pair.of(topology.ids.get(entry.getKey().getFirst()), topology.ids.get(entry.getKey().getSecond())),
+                        topology.ids.get(entry.getValue()));
+        }
+        // A next hop that is not one of the devices
+        table.put(Pair.of(3 + ID_OFFSET, ID_OFFSET), 99);
+
+        var router = MatrixRouter.of(new int[] { ID_OFFSET, 1 + ID_OFFSET, 2 + ID_OFFSET, 3 + ID_OFFSET }, table);
+        assertEquals(List.of(0, 1, 2, 3), route(router, 0, 3, 4));
+        assertEquals(1 + ID_OFFSET, router.nextHop(ID_OFFSET, 2 + ID_OFFSET));
+        assertEquals(-1, router.nextHop(3 + ID_OFFSET, ID_OFFSET));
+        assertEquals(-1, router.nextHop(2 + ID_OFFSET, 1 + ID_OFFSET));
+    }
+
+    @Test
+    void routesAreAsGoodAsTheFloydWarshallOnes() {
+        var random = new Random(42);
+
+        for (int trial = 0; trial < 30; trial++) {
+            int n = 4 + random.nextInt(12);
+            var topology = new Topology(n);
+            for (int src = 0; src < n; src++) {
+                for (int dst = 0; dst < n; dst++) {
+                    // Few distinct bandwidths and latencies, so that there are ties
+                    if (src != dst && random.nextInt(4) == 0)
+                        topology.addLink(src, dst, 10 * (1 + random.nextInt(4)), 1 + random.nextInt(5));
+                }
+            }
+
+            for (RoutingModeEnum mode : RoutingModeEnum.values()) {
+                var table = topology.analyzer.buildRoutingTable(mode);
+                var matrix = matrixRouter(topology, table);
+                // A small cache, so that the trees are evicted and computed again
+                var tree = topology.analyzer.buildRouter(topology.ids, mode, 2);
+
+                for (int src = 0; src < n; src++) {
+                    for (int dst = 0; dst < n; dst++) {
+                        if (src == dst)
+                            continue;
+
+                        String hop = table.get(Pair.of(Topology.name(src), Topology.name(dst)));
+                        assertEquals(hop == null ? -1 : topology.ids.get(hop), matrix.nextHop(src + ID_OFFSET, dst + ID_OFFSET));
+
+                        List<Integer> expected = route(matrix, src, dst, n);
+                        List<Integer> actual = route(tree, src, dst, n);
+                        String message = String.format("%s from d%s to d%s", mode, src, dst);
+                        if (expected == null) {
+                            assertNull(actual, message);
+                            continue;
+                        }
+
+                        assertNotNull(actual, message);
+                        switch (mode) {
+                            case HOP_COUNT -> assertEquals(expected.size(), actual.size(), message);
+                            case MIN_LATENCY -> {
+                                assertEquals(latency(topology, expected), latency(topology, actual), message);
+                                assertEquals(expected.size(), actual.size(), message);
+                            }
+                            case MAX_BOTTLENECK -> assertEquals(bottleneck(topology, expected), bottleneck(topology, actual), message);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
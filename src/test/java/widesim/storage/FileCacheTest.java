@@ -0,0 +1,120 @@
+package widesim.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileCacheTest {
+
+    private static final FileKey A = new FileKey("w", "a");
+    private static final FileKey B = new FileKey("w", "b");
+    private static final FileKey C = new FileKey("w", "c");
+    private static final FileKey D = new FileKey("w", "d");
+    private static final FileKey E = new FileKey("w", "e");
+
+    // Adds the version of each file produced by task 1 with a size of 10
+    private static void addAll(FileCache cache, FileKey... files) {
+        for (FileKey file : files)
+            cache.add(file, 1, 10);
+    }
+
+    @Test
+    void lruEvictsTheLeastRecentlyUsedFile() {
+        var cache = new LruFileCache(30);
+        addAll(cache, A, B, C);
+
+        assertTrue(cache.lookup(A, 1, 10));
+        addAll(cache, D);
+        assertFalse(cache.contains(B));
+
+        // Adding a cached version again uses it
+        addAll(cache, C);
+        addAll(cache, E);
+        assertFalse(cache.contains(A));
+        assertTrue(cache.contains(C));
+        assertTrue(cache.contains(D));
+        assertTrue(cache.contains(E));
+
+        assertEquals(2, cache.getEvictions());
+        assertEquals(3, cache.getNumOfFiles());
+        assertEquals(30, cache.getUsedSpace());
+    }
+
+    @Test
+    void lfuEvictsTheLeastFrequentlyUsedFile() {
+        var cache = new LfuFileCache(30);
+        addAll(cache, A, B, C);
+
+        assertTrue(cache.lookup(A, 1, 10));
+        assertTrue(cache.lookup(A, 1, 10));
+        assertTrue(cache.lookup(B, 1, 10));
+        addAll(cache, D);
+        assertFalse(cache.contains(C));
+
+        // D is used once, B twice
+        addAll(cache, E);
+        assertFalse(cache.contains(D));
+
+        // Among the files used twice, the least recently used one
+        assertTrue(cache.lookup(E, 1, 10));
+        addAll(cache, C);
+        assertFalse(cache.contains(B));
+        assertTrue(cache.contains(A));
+        assertTrue(cache.contains(E));
+
+        assertEquals(3, cache.getEvictions());
+        assertEquals(4, cache.getHits());
+    }
+
+    @Test
+    void anotherVersionReplacesTheCachedOne() {
+        var cache = new LruFileCache(30);
+        cache.add(A, 1, 10);
+        cache.add(A, 2, 15);
+
+        assertFalse(cache.lookup(A, 1, 10));
+        assertTrue(cache.lookup(A, 2, 15));
+        assertFalse(cache.lookup(A, 2, 10));
+        assertEquals(1, cache.getNumOfFiles());
+        assertEquals(15, cache.getUsedSpace());
+        assertEquals(0, cache.getEvictions());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void fileCachedOnACycleIsFoundOnTheNextOnes() {
+        var cache = new LruFileCache(30);
+        // The file sent to a child on cycle 0 is the one sent again on cycles 1 and 2
+        for (int cycle = 0; cycle < 3; cycle++) {
+            if (!cache.lookup(A, 1, 10))
+                cache.add(A, 1, 10);
+        }
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(10, cache.getUsedSpace());
+    }
+
+    @Test
+    void filesAreKeyedByWorkflow() {
+        var cache = new LfuFileCache(30);
+        cache.add(new FileKey("w1", "a"), 1, 10);
+
+        assertTrue(cache.contains(new FileKey("w1", "a")));
+        assertFalse(cache.contains(new FileKey("w2", "a")));
+        assertFalse(cache.lookup(new FileKey("w2", "a"), 1, 10));
+    }
+
+    @Test
+    void fileLargerThanTheCacheIsNotKept() {
+        var cache = new LruFileCache(30);
+        addAll(cache, A, B);
+        cache.add(C, 1, 31);
+
+        assertFalse(cache.contains(C));
+        assertTrue(cache.contains(A));
+        assertTrue(cache.contains(B));
+        assertEquals(0, cache.getEvictions());
+    }
+}